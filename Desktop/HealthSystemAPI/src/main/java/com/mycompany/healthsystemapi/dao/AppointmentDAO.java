@@ -2,10 +2,14 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.Appointment;
-import com.mycompany.healthsystemapi.model.Doctor;
-import com.mycompany.healthsystemapi.model.Patient;
+import com.mycompany.healthsystemapi.model.BookingResult;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.RangeIndex;
+import com.mycompany.healthsystemapi.store.SecondaryIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -18,18 +22,23 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class AppointmentDAO {
-    private static List<Appointment> appointments = new ArrayList<>(); // Store list of appointments
+    private static final EntityStore<Appointment> appointments = new EntityStore<>("appointments", Appointment.class, Appointment::getId); // Store of appointments keyed by ID
+    private static final SerializedEntities<Appointment> appointmentsJson = appointments.addSerializedForm(ObjectMapperProvider.writerFor(Appointment.class));
+    private static final SecondaryIndex<Appointment> appointmentsByDoctor = appointments.addIndex("doctorId", Appointment::getDoctorId);
+    private static final SecondaryIndex<Appointment> appointmentsByPatient = appointments.addIndex("patientId", Appointment::getPatientId);
+    // Appointments ordered by start time, over all doctors and per doctor
+    private static final RangeIndex<Appointment> appointmentsByTime = new RangeIndex<>(Appointment::getStartMinute, Appointment::getDoctorId);
+    // Prevents double-booking a doctor
+    private static final BookingEngine bookings = new BookingEngine(appointments, BookingEngine.DEFAULT_LOCK_STRIPES);
     private static final Logger logger = LoggerFactory.getLogger(AppointmentDAO.class); // For logging messages
     
-    // Initializing some demo appointments
+    // Initializing some demo appointments, unless the store already holds data
     static {
-        Patient patient1 = new Patient("Chronic allergies", "Stable", 1, "Anne Smith", "0772563564", "1A, Main Street, Galle");
-        Doctor doctor1 = new Doctor(1, "Dr. John Legend", "0712345678", "123, Main Street, Colombo", "Cardiologist");
-        appointments.add(new Appointment(1, "2024-04-23", patient1, doctor1));
-
-        Patient patient2 = new Patient("Diabetes type 2", "Under control", 2, "Mary Lee", "0772564824", "5A, Main Street, Galle");
-        Doctor doctor2 = new Doctor(2, "Dr. Olivia Rodrigo", "0712345679", "456, Park Road, Kandy", "Physician");
-        appointments.add(new Appointment(2, "2024-04-24", patient2, doctor2));
+        if (appointments.isEmpty()) {
+            appointments.put(new Appointment(1, "2024-04-23", 1, 1));
+            appointments.put(new Appointment(2, "2024-04-24", 2, 2));
+        }
+        appointments.addListener(appointmentsByTime);
     }
     
     /**
@@ -37,59 +46,161 @@ public class AppointmentDAO {
      */
     public List<Appointment> getAllAppointments() {
         try {
-            return appointments;
+            return appointments.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all appointments: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve appointments.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit appointments ordered by ID, starting after the specified ID.
+     */
+    public Page<Appointment> getAllAppointments(Integer afterId, int limit) {
+        return appointments.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all appointments in ID order without copying them into a list.
+     */
+    public Iterable<Appointment> scanAllAppointments() {
+        return appointments.scan();
+    }
+
     /**
      * Retrieves the appointment with the specified ID.
      */
     public Appointment getAppointmentById(int id) {
-        for (Appointment appointment : appointments) {
-            if (appointment.getId() == id) {
-                return appointment;
-            }
-        }
-        return null;
+        return appointments.get(id);
+    }
+
+    /**
+     * Gives the version of the appointments: it changes whenever any appointment is added, updated or deleted.
+     */
+    public long getAppointmentsVersion() {
+        return appointments.version();
+    }
+
+    /**
+     * Gives the version of the appointment with the specified ID: it changes whenever that appointment is written.
+     */
+    public long getAppointmentVersion(int id) {
+        return appointments.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the appointment, as sent by the API.
+     */
+    public byte[] getAppointmentJson(Appointment appointment) {
+        return appointmentsJson.toJson(appointment);
+    }
+
+    /**
+     * Gives the JSON array of the appointments, as sent by the API.
+     */
+    public byte[] getAppointmentsJson(List<Appointment> page) {
+        return appointmentsJson.toJsonArray(page);
+    }
+
+    /**
+     * Gives the version of the appointments of the specified doctor: it changes whenever one of them is written.
+     */
+    public long getAppointmentsByDoctorVersion(int doctorId) {
+        return appointmentsByDoctor.versionOf(doctorId);
+    }
+
+    /**
+     * Gives the version of the appointments of the specified patient: it changes whenever one of them is written.
+     */
+    public long getAppointmentsByPatientVersion(int patientId) {
+        return appointmentsByPatient.versionOf(patientId);
     }
 
     /**
      * Retrieves appointments associated with a specific doctor.
      */
     public List<Appointment> getAppointmentsByDoctorId(int doctorId) {
-        List<Appointment> doctorAppointments = new ArrayList<>();
-        for (Appointment appointment : appointments) {
-            if (appointment.getDoctor().getId() == doctorId) {
-                doctorAppointments.add(appointment);
-            }
-        }
-        return doctorAppointments;
+        return appointments.findBy(appointmentsByDoctor, doctorId);
+    }
+
+    /**
+     * Retrieves up to limit appointments associated with a specific doctor, ordered by ID and starting after the specified ID.
+     */
+    public Page<Appointment> getAppointmentsByDoctorId(int doctorId, Integer afterId, int limit) {
+        return appointments.findBy(appointmentsByDoctor, doctorId, afterId, limit);
+    }
+
+    /**
+     * Iterates over the appointments associated with a specific doctor in ID order without copying them into a list.
+     */
+    public Iterable<Appointment> scanAppointmentsByDoctorId(int doctorId) {
+        return appointments.scanBy(appointmentsByDoctor, doctorId);
+    }
+
+    /**
+     * Retrieves appointments associated with a specific patient.
+     */
+    public List<Appointment> getAppointmentsByPatientId(int patientId) {
+        return appointments.findBy(appointmentsByPatient, patientId);
+    }
+
+    /**
+     * Retrieves up to limit appointments associated with a specific patient, ordered by ID and starting after the specified ID.
+     */
+    public Page<Appointment> getAppointmentsByPatientId(int patientId, Integer afterId, int limit) {
+        return appointments.findBy(appointmentsByPatient, patientId, afterId, limit);
+    }
+
+    /**
+     * Iterates over the appointments associated with a specific patient in ID order without copying them into a list.
+     */
+    public Iterable<Appointment> scanAppointmentsByPatientId(int patientId) {
+        return appointments.scanBy(appointmentsByPatient, patientId);
+    }
+
+    /**
+     * Retrieves up to limit appointments starting between the specified epoch minutes, both included, ordered by start time.
+     * Only the appointments of the specified doctor are included, unless it is null, and the page starts after the specified position.
+     */
+    public Page<Appointment> getAppointmentsBetween(int fromMinute, int toMinute, Integer doctorId, Long afterPosition, int limit) {
+        return appointments.findInRange(appointmentsByTime, fromMinute, toMinute, doctorId, afterPosition, limit);
+    }
+
+    /**
+     * Iterates over the appointments starting between the specified epoch minutes, both included, ordered by start time,
+     * without copying them into a list. Only the appointments of the specified doctor are included, unless it is null.
+     */
+    public Iterable<Appointment> scanAppointmentsBetween(int fromMinute, int toMinute, Integer doctorId) {
+        return appointments.scanRange(appointmentsByTime, fromMinute, toMinute, doctorId);
     }
 
     /**
      * Adds a new appointment to the list of appointments.
+     * It throws AppointmentConflictException if the doctor already has an appointment at that time.
      */
     public void addAppointment(Appointment appointment) {
-        int newAppointmentId = getNextAppointmentId();
-        appointment.setId(newAppointmentId);
-        appointments.add(appointment);
+        bookings.book(appointment);
         logger.info("Appointment added: {}", appointment);
     }
 
+    /**
+     * Adds a batch of appointments and returns the outcome of each, in the order given.
+     * Appointments overlapping a booked one, or one earlier in the batch, are left out and reported as conflicts.
+     */
+    public List<BookingResult> addAppointments(List<Appointment> batch) {
+        List<BookingResult> results = bookings.bookAll(batch);
+        long created = results.stream().filter(result -> BookingResult.CREATED.equals(result.getStatus())).count();
+        logger.info("{} of {} appointments added in bulk", created, batch.size());
+        return results;
+    }
+
     /**
      * Updates an existing appointment.
+     * It throws AppointmentConflictException if the doctor already has another appointment at the new time.
      */
     public void updateAppointment(Appointment updatedAppointment) {
-        for (int i = 0; i < appointments.size(); i++) {
-            Appointment appointment = appointments.get(i);
-            if (appointment.getId() == updatedAppointment.getId()) {
-                appointments.set(i, updatedAppointment);
-                logger.info("Appointment updated: {}", updatedAppointment);
-                return;
-            }
+        if (bookings.reschedule(updatedAppointment)) {
+            logger.info("Appointment updated: {}", updatedAppointment);
         }
     }
 
@@ -97,22 +208,15 @@ public class AppointmentDAO {
      * Deletes an appointment by ID.
      */
     public void deleteAppointment(int id) {
-        appointments.removeIf(appointment -> appointment.getId() == id);
+        bookings.cancel(id);
         logger.info("Appointment with ID {} deleted", id);
     }
 
     /**
      * Gives the ID for the next appointment.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextAppointmentId() {
-        int maxAppointmentId = Integer.MIN_VALUE;
-
-        for (Appointment appointment : appointments) {
-            int appointmentId = appointment.getId();
-            if (appointmentId > maxAppointmentId) {
-                maxAppointmentId = appointmentId;
-            }
-        }
-        return maxAppointmentId + 1;
+        return appointments.nextId();
     }
 }
\ No newline at end of file
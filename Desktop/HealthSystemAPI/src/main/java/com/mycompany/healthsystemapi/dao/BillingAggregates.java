@@ -0,0 +1,105 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.BillingSummary;
+import com.mycompany.healthsystemapi.store.StoreListener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Running billing totals per patient: the number of invoices, the amount invoiced and the amount outstanding.
+ * Every write to a billing adjusts the totals of its patient by the difference it makes, so a summary is read
+ * without looking at the billings. Patients owing money are also kept ranked by the amount they owe.
+ * Amounts are summed in whole cents, so that adding and removing the same billings always returns to the same total.
+ *
+ * @author rachelcooray
+ */
+public class BillingAggregates implements StoreListener<Billing> {
+    // Attributes of this class
+    private final ConcurrentHashMap<Integer, Totals> byPatient = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Totals> byOutstanding = new ConcurrentSkipListSet<>();
+
+    @Override
+    public void onWrite(int id, Billing previous, Billing current) {
+        if (previous != null) {
+            add(previous.getPatientId(), -1, -previous.getAmountCents(), -previous.getOutstandingBalanceCents());
+        }
+        if (current != null) {
+            add(current.getPatientId(), 1, current.getAmountCents(), current.getOutstandingBalanceCents());
+        }
+    }
+
+    /**
+     * Adds to the totals of a patient. The totals are replaced rather than changed, so readers always see a consistent set,
+     * and the ranking is updated under the same per-patient lock of the map.
+     */
+    private void add(int patientId, int invoices, long invoicedCents, long outstandingCents) {
+        byPatient.compute(patientId, (key, totals) -> {
+            Totals updated = totals == null
+                    ? new Totals(patientId, invoices, invoicedCents, outstandingCents)
+                    : new Totals(patientId, totals.invoices + invoices, totals.invoicedCents + invoicedCents, totals.outstandingCents + outstandingCents);
+            if (totals != null && totals.outstandingCents > 0) {
+                byOutstanding.remove(totals);
+            }
+            if (updated.invoices == 0) {
+                return null;
+            }
+            if (updated.outstandingCents > 0) {
+                byOutstanding.add(updated);
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Gives the billing totals of the specified patient, all zero if the patient has no billings.
+     */
+    public BillingSummary summary(int patientId) {
+        Totals totals = byPatient.get(patientId);
+        return totals == null ? new BillingSummary(patientId, 0, 0, 0) : totals.toSummary();
+    }
+
+    /**
+     * Gives the totals of the n patients owing the most, largest amount first.
+     */
+    public List<BillingSummary> topOutstanding(int n) {
+        List<BillingSummary> top = new ArrayList<>(Math.min(n, 64));
+        Iterator<Totals> ranking = byOutstanding.iterator();
+        while (top.size() < n && ranking.hasNext()) {
+            top.add(ranking.next().toSummary());
+        }
+        return top;
+    }
+
+    /**
+     * Immutable totals of one patient, ordered by amount outstanding, largest first, then by patient ID.
+     */
+    private static final class Totals implements Comparable<Totals> {
+        private final int patientId;
+        private final int invoices;
+        private final long invoicedCents;
+        private final long outstandingCents;
+
+        private Totals(int patientId, int invoices, long invoicedCents, long outstandingCents) {
+            this.patientId = patientId;
+            this.invoices = invoices;
+            this.invoicedCents = invoicedCents;
+            this.outstandingCents = outstandingCents;
+        }
+
+        private BillingSummary toSummary() {
+            return new BillingSummary(patientId, invoices, invoicedCents / 100.0, outstandingCents / 100.0);
+        }
+
+        @Override
+        public int compareTo(Totals other) {
+            int byAmount = Long.compare(other.outstandingCents, outstandingCents);
+            return byAmount != 0 ? byAmount : Integer.compare(patientId, other.patientId);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.DateTimes;
+import com.mycompany.healthsystemapi.store.StoreListener;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Column-oriented copy of the billing fields the outstanding filter scans: one primitive array per field,
+ * outstanding balances in whole cents and invoice dates as epoch days, with row i holding the billing with ID i.
+ * A scan is then a tight loop over a few arrays rather than a walk over billing objects and their strings.
+ * The store stays the source of the billings; the columns follow its writes and are rebuilt from it at startup.
+ * Revenue and per-patient totals are not scanned here: RevenueRollups and BillingAggregates keep them up to date
+ * per write and answer them without a scan, so only the filter needs the columns.
+ *
+ * Rows are addressed by ID, which relies on the store handing billing IDs out as a dense sequence from 1:
+ * the arrays grow to the highest ID written, about 12 bytes per ID, and the rows of deleted billings are only
+ * marked dead in the live bitset, never reclaimed. IDs set by hand far above the sequence would waste that much memory.
+ *
+ * @author rachelcooray
+ */
+public class BillingColumns implements StoreListener<Billing> {
+    // Marks a missing or unparseable date in a date column
+    static final int NO_DAY = Integer.MIN_VALUE;
+
+    // Attributes of this class
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] live = new long[1];
+    private long[] outstandingCents = new long[64];
+    private int[] invoiceDays = new int[64];
+    private int rows;
+
+    @Override
+    public void onWrite(int id, Billing previous, Billing current) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Billing IDs must not be negative: " + id);
+        }
+        lock.writeLock().lock();
+        try {
+            if (current == null) {
+                if (id < rows) {
+                    live[id >>> 6] &= ~(1L << id);
+                }
+                return;
+            }
+            ensureCapacity(id + 1);
+            outstandingCents[id] = current.getOutstandingBalanceCents();
+            invoiceDays[id] = day(current.getInvoiceDate());
+            live[id >>> 6] |= 1L << id;
+            rows = Math.max(rows, id + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int day(String date) {
+        Integer day = DateTimes.toEpochDayOrNull(date);
+        return day == null ? NO_DAY : day;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > invoiceDays.length) {
+            int capacity = Math.max(size, invoiceDays.length + (invoiceDays.length >> 1));
+            outstandingCents = Arrays.copyOf(outstandingCents, capacity);
+            invoiceDays = Arrays.copyOf(invoiceDays, capacity);
+        }
+        if ((size + 63) >>> 6 > live.length) {
+            live = Arrays.copyOf(live, Math.max((size + 63) >>> 6, live.length * 2));
+        }
+    }
+
+    /**
+     * Finds, in ID order and after the specified ID, up to limit billings with an outstanding balance
+     * that were invoiced before the specified epoch day, and returns their IDs.
+     */
+    public int[] findOutstanding(int invoicedBefore, int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            long start = Math.max(0L, afterId + 1L);
+            if (start >= rows) {
+                return new int[0];
+            }
+            int[] found = new int[Math.min(limit, 64)];
+            int count = 0;
+            for (int id = (int) start; id < rows && count < limit; id++) {
+                if (outstandingCents[id] > 0 && invoiceDays[id] < invoicedBefore && invoiceDays[id] != NO_DAY
+                        && (live[id >>> 6] & (1L << id)) != 0) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, Math.min(limit, count * 2));
+                    }
+                    found[count++] = id;
+                }
+            }
+            return Arrays.copyOf(found, count);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -2,6 +2,13 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.BillingSummary;
+import com.mycompany.healthsystemapi.model.RevenueReport;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.SecondaryIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,13 +23,23 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class BillingDAO {
-    private static List<Billing> billings = new ArrayList<>();
+    private static final EntityStore<Billing> billings = new EntityStore<>("billings", Billing.class, Billing::getId);
+    private static final SerializedEntities<Billing> billingsJson = billings.addSerializedForm(ObjectMapperProvider.writerFor(Billing.class));
+    private static final SecondaryIndex<Billing> billingsByPatient = billings.addIndex("patientId", Billing::getPatientId);
+    private static final BillingAggregates billingAggregates = new BillingAggregates();
+    private static final RevenueRollups revenueRollups = new RevenueRollups();
+    private static final BillingColumns billingColumns = new BillingColumns();
     private static final Logger logger = LoggerFactory.getLogger(BillingDAO.class); // For logging messages
     
-    // Initializing some demo billings
+    // Initializing some demo billings, unless the store already holds data
     static {
-        billings.add(new Billing(1, 1, 100.0, "Paid", "2024-04-23", "2024-04-23", 0.0));
-        billings.add(new Billing(2, 2, 150.0, "Pending", "2024-04-23", "2024-04-23", 150.0)); 
+        if (billings.isEmpty()) {
+            billings.put(new Billing(1, 1, 100.0, "Paid", "2024-04-23", "2024-04-23", 0.0));
+            billings.put(new Billing(2, 2, 150.0, "Pending", "2024-04-23", "2024-04-23", 150.0)); 
+        }
+        billings.addListener(billingAggregates);
+        billings.addListener(revenueRollups);
+        billings.addListener(billingColumns);
     }
     
     /**
@@ -30,32 +47,135 @@ public class BillingDAO {
      */
     public List<Billing> getAllBillings() {
         try {
-            return billings;
+            return billings.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all billings: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve billings.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit billings ordered by ID, starting after the specified ID.
+     */
+    public Page<Billing> getAllBillings(Integer afterId, int limit) {
+        return billings.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all billings in ID order without copying them into a list.
+     */
+    public Iterable<Billing> scanAllBillings() {
+        return billings.scan();
+    }
+
     /**
      * Retrieves the billing with the specified ID.
      */
     public Billing getBillingById(int id) {
-        for (Billing billing : billings) {
-            if (billing.getId() == id) {
-                return billing;
+        return billings.get(id);
+    }
+
+    /**
+     * Gives the version of the billings: it changes whenever any billing is added, updated or deleted.
+     */
+    public long getBillingsVersion() {
+        return billings.version();
+    }
+
+    /**
+     * Gives the version of the billing with the specified ID: it changes whenever that billing is written.
+     */
+    public long getBillingVersion(int id) {
+        return billings.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the billing, as sent by the API.
+     */
+    public byte[] getBillingJson(Billing billing) {
+        return billingsJson.toJson(billing);
+    }
+
+    /**
+     * Gives the JSON array of the billings, as sent by the API.
+     */
+    public byte[] getBillingsJson(List<Billing> page) {
+        return billingsJson.toJsonArray(page);
+    }
+
+    /**
+     * Gives the version of the billings of the specified patient: it changes whenever one of them is written.
+     */
+    public long getBillingsByPatientVersion(int patientId) {
+        return billingsByPatient.versionOf(patientId);
+    }
+    
+    /**
+     * Retrieves billings associated with a specific patient.
+     */
+    public List<Billing> getBillingsByPatientId(int patientId) {
+        return billings.findBy(billingsByPatient, patientId);
+    }
+
+    /**
+     * Retrieves up to limit billings associated with a specific patient, ordered by ID and starting after the specified ID.
+     */
+    public Page<Billing> getBillingsByPatientId(int patientId, Integer afterId, int limit) {
+        return billings.findBy(billingsByPatient, patientId, afterId, limit);
+    }
+
+    /**
+     * Iterates over the billings associated with a specific patient in ID order without copying them into a list.
+     */
+    public Iterable<Billing> scanBillingsByPatientId(int patientId) {
+        return billings.scanBy(billingsByPatient, patientId);
+    }
+    
+    /**
+     * Retrieves the billing totals of a specific patient: invoice count, total invoiced and total outstanding.
+     */
+    public BillingSummary getBillingSummary(int patientId) {
+        return billingAggregates.summary(patientId);
+    }
+
+    /**
+     * Retrieves the billing totals of the n patients with the largest outstanding balance, largest first.
+     */
+    public List<BillingSummary> getTopOutstanding(int n) {
+        return billingAggregates.topOutstanding(n);
+    }
+
+    /**
+     * Retrieves the revenue invoiced and collected from day 'from' to day 'to' (epoch days, both included), per period.
+     */
+    public List<RevenueReport> getRevenue(int from, int to, RevenueRollups.Period period) {
+        return revenueRollups.report(from, to, period);
+    }
+
+    /**
+     * Retrieves up to limit billings with an outstanding balance that were invoiced before the specified epoch day,
+     * ordered by ID and starting after the specified ID.
+     */
+    public Page<Billing> getOutstandingBillings(int invoicedBefore, Integer afterId, int limit) {
+        int[] ids = billingColumns.findOutstanding(invoicedBefore, afterId == null ? -1 : afterId, limit + 1);
+        List<Billing> items = new ArrayList<>(Math.min(limit, ids.length));
+        for (int i = 0; i < Math.min(limit, ids.length); i++) {
+            Billing billing = billings.get(ids[i]);
+            // Checked again, as the billing may have been paid since the columns were read
+            if (billing != null && billing.getOutstandingBalanceCents() > 0) {
+                items.add(billing);
             }
         }
-        return null;
+        return new Page<>(items, ids.length > limit ? ids[limit - 1] : null);
     }
-    
+
     /**
      * Adds a new billing to the list of billings.
      */
     public void addBilling(Billing billing) {
         int newBillingId = getNextBillingId();
         billing.setId(newBillingId);
-        billings.add(billing);
+        billings.put(billing);
         logger.info("Billing added: {}", billing);
     }
 
@@ -63,13 +183,8 @@ public class BillingDAO {
      * Updates an existing billing.
      */
     public void updateBilling(Billing updatedBilling) {
-        for (int i = 0; i < billings.size(); i++) {
-            Billing billing = billings.get(i);
-            if (billing.getId() == updatedBilling.getId()) {
-                billings.set(i, updatedBilling);
-                logger.info("Billing updated: {}", updatedBilling);
-                return;
-            }
+        if (billings.replace(updatedBilling)) {
+            logger.info("Billing updated: {}", updatedBilling);
         }
     }
 
@@ -77,22 +192,15 @@ public class BillingDAO {
      * Deletes a billing by ID.
      */
     public void deleteBilling(int id) {
-        billings.removeIf(billing -> billing.getId() == id);
+        billings.remove(id);
         logger.info("Billing with ID {} deleted", id);
     }
     
     /**
      * Gives the ID for the next billing.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextBillingId() {
-        int maxBillingId = Integer.MIN_VALUE;
-        
-        for (Billing billing : billings) {
-            int billingId = billing.getId();
-            if (billingId > maxBillingId) {
-                maxBillingId = billingId;
-            }
-        }
-        return maxBillingId + 1;
+        return billings.nextId();
     }
 }
\ No newline at end of file
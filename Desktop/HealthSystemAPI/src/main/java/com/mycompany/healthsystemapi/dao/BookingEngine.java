@@ -0,0 +1,336 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.exception.AppointmentConflictException;
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.BookingResult;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.RangeIndex;
+import com.mycompany.healthsystemapi.store.StoreListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Books, reschedules and cancels appointments so that no doctor is ever booked twice for the same time.
+ * Each doctor has a schedule holding the bookings sorted by start time, so an overlap is found in O(log n).
+ * Writes for a doctor run under one of a fixed set of locks chosen by doctor ID, so bookings for different doctors
+ * rarely contend while concurrent bookings for the same doctor are checked and stored one at a time.
+ *
+ * @author rachelcooray
+ */
+public class BookingEngine implements StoreListener<Appointment> {
+    public static final int DEFAULT_LOCK_STRIPES = 64;
+    public static final String INVALID_DURATION = "durationMinutes must be from 1 to " + Appointment.MAX_DURATION_MINUTES
+            + ", or left out for " + Appointment.DEFAULT_DURATION_MINUTES;
+    public static final String INVALID_DATE_TIME = "dateTime must be a date like 2024-04-23 or a date and time like 2024-04-23T09:30";
+
+    // Attributes of this class
+    private final EntityStore<Appointment> appointments;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<Integer, DoctorSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a booking engine over the store of appointments, with the specified number of lock stripes,
+     * and loads the schedules from the appointments already stored.
+     */
+    public BookingEngine(EntityStore<Appointment> appointments, int lockStripes) {
+        this.appointments = appointments;
+        this.stripes = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        appointments.addListener(this);
+    }
+
+    /**
+     * Gives a new ID to the appointment and stores it.
+     * It throws AppointmentConflictException if the appointment overlaps another one of the same doctor,
+     * and IllegalArgumentException if its date and time or its duration is invalid.
+     */
+    public void book(Appointment appointment) {
+        checkTiming(appointment);
+        withDoctors(Collections.singleton(doctorIdOf(appointment)), () -> {
+            checkFree(appointment, null);
+            appointment.setId(appointments.nextId());
+            appointments.put(appointment);
+            return null;
+        });
+    }
+
+    /**
+     * Books a batch of appointments at once and returns the outcome of each, in the order given.
+     * The locks of all the doctors involved are taken once, conflicts are checked against both the stored appointments
+     * and the ones accepted earlier in the batch, the accepted appointments get a contiguous block of IDs,
+     * and they are stored in a single write so indexes are updated once for the batch.
+     */
+    public List<BookingResult> bookAll(List<Appointment> batch) {
+        Set<Integer> doctorIds = new HashSet<>();
+        for (Appointment appointment : batch) {
+            // Null items are reported as invalid below
+            if (appointment != null) {
+                doctorIds.add(doctorIdOf(appointment));
+            }
+        }
+        return withDoctors(doctorIds, () -> {
+            BookingResult[] results = new BookingResult[batch.size()];
+            List<Appointment> accepted = new ArrayList<>();
+            List<Integer> acceptedIndexes = new ArrayList<>();
+            Map<Integer, DoctorSchedule> pending = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Appointment appointment = batch.get(i);
+                if (appointment == null) {
+                    results[i] = new BookingResult(i, BookingResult.INVALID, null, "The appointment is missing");
+                    continue;
+                }
+                if (appointment.getStartMinute() == null) {
+                    results[i] = new BookingResult(i, BookingResult.INVALID, null, INVALID_DATE_TIME);
+                    continue;
+                }
+                if (!appointment.isDurationValid()) {
+                    results[i] = new BookingResult(i, BookingResult.INVALID, null, INVALID_DURATION);
+                    continue;
+                }
+                try {
+                    checkFree(appointment, null);
+                } catch (AppointmentConflictException ex) {
+                    results[i] = new BookingResult(i, BookingResult.CONFLICT, null, ex.getMessage());
+                    continue;
+                }
+                Integer doctorId = doctorIdOf(appointment);
+                if (doctorId != null) {
+                    DoctorSchedule batchSchedule = pending.computeIfAbsent(doctorId, key -> new DoctorSchedule());
+                    Integer conflictIndex = batchSchedule.findOverlap(appointment.getStartMinute(), appointment.getEndMinute(), null);
+                    if (conflictIndex != null) {
+                        results[i] = new BookingResult(i, BookingResult.CONFLICT, null,
+                                "Overlaps appointment " + conflictIndex + " of this request for doctor " + doctorId);
+                        continue;
+                    }
+                    // Keyed by the position in the request, as the appointment has no ID yet
+                    batchSchedule.add(i, appointment.getStartMinute(), appointment.getEndMinute());
+                }
+                accepted.add(appointment);
+                acceptedIndexes.add(i);
+            }
+            if (!accepted.isEmpty()) {
+                int firstId = appointments.nextIds(accepted.size());
+                for (int i = 0; i < accepted.size(); i++) {
+                    accepted.get(i).setId(firstId + i);
+                    results[acceptedIndexes.get(i)] = new BookingResult(acceptedIndexes.get(i), BookingResult.CREATED, firstId + i, null);
+                }
+                appointments.putAll(accepted);
+            }
+            return Arrays.asList(results);
+        });
+    }
+
+    /**
+     * Replaces the appointment stored under the same ID, possibly moving it to another time or doctor.
+     * It returns false if no such appointment exists,
+     * throws AppointmentConflictException if the new time overlaps another appointment of the doctor,
+     * and IllegalArgumentException if the new date and time or duration is invalid.
+     */
+    public boolean reschedule(Appointment updated) {
+        checkTiming(updated);
+        while (true) {
+            Appointment existing = appointments.get(updated.getId());
+            if (existing == null) {
+                return false;
+            }
+            Integer oldDoctorId = doctorIdOf(existing);
+            Boolean replaced = withDoctors(Arrays.asList(oldDoctorId, doctorIdOf(updated)), () -> {
+                Appointment current = appointments.get(updated.getId());
+                if (current == null) {
+                    return false;
+                }
+                if (!Objects.equals(doctorIdOf(current), oldDoctorId)) {
+                    return null; // Moved to another doctor meanwhile; its locks must be taken instead
+                }
+                checkFree(updated, updated.getId());
+                return appointments.replace(updated);
+            });
+            if (replaced != null) {
+                return replaced;
+            }
+        }
+    }
+
+    /**
+     * Removes the appointment with the specified ID and returns it, or null if there was none.
+     */
+    public Appointment cancel(int id) {
+        while (true) {
+            Appointment existing = appointments.get(id);
+            if (existing == null) {
+                return null;
+            }
+            Integer doctorId = doctorIdOf(existing);
+            Appointment[] removed = new Appointment[1];
+            boolean done = withDoctors(Collections.singleton(doctorId), () -> {
+                Appointment current = appointments.get(id);
+                if (current != null && !Objects.equals(doctorIdOf(current), doctorId)) {
+                    return false;
+                }
+                removed[0] = current == null ? null : appointments.remove(id);
+                return true;
+            });
+            if (done) {
+                return removed[0];
+            }
+        }
+    }
+
+    /**
+     * Throws IllegalArgumentException if the appointment has no valid start or duration,
+     * the same checks bookAll reports as invalid items.
+     */
+    private static void checkTiming(Appointment appointment) {
+        if (appointment.getStartMinute() == null) {
+            throw new IllegalArgumentException(INVALID_DATE_TIME);
+        }
+        if (!appointment.isDurationValid()) {
+            throw new IllegalArgumentException(INVALID_DURATION);
+        }
+    }
+
+    /**
+     * Throws AppointmentConflictException if the appointment overlaps a booking of its doctor other than ignoreId.
+     * The caller must hold the doctor's lock.
+     */
+    private void checkFree(Appointment appointment, Integer ignoreId) {
+        Integer doctorId = doctorIdOf(appointment);
+        Integer start = appointment.getStartMinute();
+        if (doctorId == null || start == null) {
+            return;
+        }
+        DoctorSchedule schedule = schedules.get(doctorId);
+        Integer conflictId = schedule == null ? null : schedule.findOverlap(start, appointment.getEndMinute(), ignoreId);
+        if (conflictId != null) {
+            Appointment conflict = appointments.get(conflictId);
+            throw new AppointmentConflictException("Doctor " + doctorId + " already has appointment " + conflictId
+                    + (conflict == null ? "" : " at " + conflict.getDateTime()) + " overlapping this time", conflictId);
+        }
+    }
+
+    /**
+     * Runs the action while holding the locks of the specified doctors.
+     * The locks are always taken in the same order, so two callers cannot deadlock.
+     */
+    <R> R withDoctors(Collection<Integer> doctorIds, Supplier<R> action) {
+        TreeSet<Integer> stripeIndexes = new TreeSet<>();
+        for (Integer doctorId : doctorIds) {
+            if (doctorId != null) {
+                stripeIndexes.add(Math.floorMod(doctorId, stripes.length));
+            }
+        }
+        for (int index : stripeIndexes) {
+            stripes[index].lock();
+        }
+        try {
+            return action.get();
+        } finally {
+            for (int index : stripeIndexes.descendingSet()) {
+                stripes[index].unlock();
+            }
+        }
+    }
+
+    /**
+     * Keeps the schedules in step with every write to the store.
+     */
+    @Override
+    public void onWrite(int id, Appointment previous, Appointment current) {
+        if (previous != null && doctorIdOf(previous) != null && previous.getStartMinute() != null) {
+            DoctorSchedule schedule = schedules.get(doctorIdOf(previous));
+            if (schedule != null) {
+                schedule.remove(id, previous.getStartMinute());
+            }
+        }
+        if (current != null && doctorIdOf(current) != null && current.getStartMinute() != null) {
+            schedules.computeIfAbsent(doctorIdOf(current), key -> new DoctorSchedule())
+                    .add(id, current.getStartMinute(), current.getEndMinute());
+        }
+    }
+
+    /**
+     * Gives the schedule of the doctor, or null if the doctor has never been booked.
+     */
+    DoctorSchedule scheduleOf(int doctorId) {
+        return schedules.get(doctorId);
+    }
+
+    /**
+     * Gives the doctor ID of the appointment, or null if it has no doctor.
+     */
+    static Integer doctorIdOf(Appointment appointment) {
+        return appointment.getDoctorId() == 0 ? null : appointment.getDoctorId();
+    }
+
+    /**
+     * Bookings of one doctor, sorted by start time.
+     * As a doctor's bookings do not overlap, a booking overlapping a new one must start less than the longest
+     * current booking's duration before the new one starts, so only that stretch of the schedule is examined.
+     * The durations are counted as bookings come and go, so the longest one drops again once a long booking
+     * is cancelled or rescheduled.
+     */
+    static class DoctorSchedule {
+        // End minute of each booking, keyed by its position (start minute, ID)
+        private final TreeMap<Long, Integer> ends = new TreeMap<>();
+        // Number of bookings of each duration
+        private final TreeMap<Integer, Integer> durations = new TreeMap<>();
+
+        synchronized void add(int id, int start, int end) {
+            Integer replaced = ends.put(RangeIndex.position(start, id), end);
+            if (replaced != null) {
+                forget(replaced - start);
+            }
+            durations.merge(end - start, 1, Integer::sum);
+        }
+
+        synchronized void remove(int id, int start) {
+            Integer end = ends.remove(RangeIndex.position(start, id));
+            if (end != null) {
+                forget(end - start);
+            }
+        }
+
+        private void forget(int duration) {
+            durations.computeIfPresent(duration, (key, count) -> count == 1 ? null : count - 1);
+        }
+
+        /**
+         * Gives the duration of the longest booking, or zero if there is none.
+         */
+        synchronized int longest() {
+            return durations.isEmpty() ? 0 : durations.lastKey();
+        }
+
+        /**
+         * Gives the ID of a booking overlapping the time from start to end, other than ignoreId, or null if there is none.
+         */
+        synchronized Integer findOverlap(int start, int end, Integer ignoreId) {
+            int earliest = (int) Math.max((long) start - longest(), Integer.MIN_VALUE);
+            for (Map.Entry<Long, Integer> booking : ends.subMap(RangeIndex.position(earliest, 0), true,
+                    RangeIndex.position(end, 0), false).entrySet()) {
+                int id = RangeIndex.idOf(booking.getKey());
+                if (booking.getValue() > start && (ignoreId == null || id != ignoreId)) {
+                    return id;
+                }
+            }
+            return null;
+        }
+    }
+}
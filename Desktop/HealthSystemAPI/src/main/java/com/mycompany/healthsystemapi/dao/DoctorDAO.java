@@ -2,8 +2,13 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.Doctor;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.PrefixIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
+import com.mycompany.healthsystemapi.store.TermIndex;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -16,13 +21,20 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class DoctorDAO {
-    private static List<Doctor> doctors = new ArrayList<>();
+    private static final EntityStore<Doctor> doctors = new EntityStore<>("doctors", Doctor.class, Doctor::getId);
+    private static final SerializedEntities<Doctor> doctorsJson = doctors.addSerializedForm(ObjectMapperProvider.writerFor(Doctor.class));
+    private static final TermIndex<Doctor> doctorsBySpecialization = new TermIndex<>(Doctor::getSpecialization);
+    private static final PrefixIndex<Doctor> doctorsByName = PersonIndexes.nameIndex();
     private static final Logger logger = LoggerFactory.getLogger(DoctorDAO.class); // For logging messages
     
-    // Initializing some demo doctors
+    // Initializing some demo doctors, unless the store already holds data
     static {
-        doctors.add(new Doctor(1, "Dr. John Legend", "0712345678", "123, Main Street, Colombo", "Cardiologist"));
-        doctors.add(new Doctor(2, "Dr. Olivia Rodrigo", "0712345679", "456, Park Road, Kandy", "Physician"));
+        if (doctors.isEmpty()) {
+            doctors.put(new Doctor(1, "Dr. John Legend", "0712345678", "123, Main Street, Colombo", "Cardiologist"));
+            doctors.put(new Doctor(2, "Dr. Olivia Rodrigo", "0712345679", "456, Park Road, Kandy", "Physician"));
+        }
+        doctors.addListener(doctorsBySpecialization);
+        doctors.addListener(doctorsByName);
     }
     
     /**
@@ -30,32 +42,98 @@ public class DoctorDAO {
      */
     public List<Doctor> getAllDoctors() {
         try {
-            return doctors;
+            return doctors.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all doctors: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve doctors.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit doctors ordered by ID, starting after the specified ID.
+     */
+    public Page<Doctor> getAllDoctors(Integer afterId, int limit) {
+        return doctors.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all doctors in ID order without copying them into a list.
+     */
+    public Iterable<Doctor> scanAllDoctors() {
+        return doctors.scan();
+    }
+
     /**
      * Retrieves the doctor with the specified ID.
      */
     public Doctor getDoctorById(int id) {
-        for (Doctor doctor : doctors) {
-            if (doctor.getId() == id) {
-                return doctor;
-            }
-        }
-        return null;
+        return doctors.get(id);
+    }
+
+    /**
+     * Gives the version of the doctors: it changes whenever any doctor is added, updated or deleted.
+     */
+    public long getDoctorsVersion() {
+        return doctors.version();
+    }
+
+    /**
+     * Gives the version of the doctor with the specified ID: it changes whenever that doctor is written.
+     */
+    public long getDoctorVersion(int id) {
+        return doctors.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the doctor, as sent by the API.
+     */
+    public byte[] getDoctorJson(Doctor doctor) {
+        return doctorsJson.toJson(doctor);
+    }
+
+    /**
+     * Gives the JSON array of the doctors, as sent by the API.
+     */
+    public byte[] getDoctorsJson(List<Doctor> page) {
+        return doctorsJson.toJsonArray(page);
     }
     
+    /**
+     * Retrieves up to limit doctors with the specified specialization, ignoring case, ordered by ID and starting after the specified ID.
+     */
+    public Page<Doctor> getDoctorsBySpecialization(String specialization, Integer afterId, int limit) {
+        return doctors.findByTerm(doctorsBySpecialization, specialization, afterId, limit);
+    }
+
+    /**
+     * Iterates over the doctors with the specified specialization, ignoring case, in ID order without copying them into a list.
+     */
+    public Iterable<Doctor> scanDoctorsBySpecialization(String specialization) {
+        return doctors.scanByTerm(doctorsBySpecialization, specialization);
+    }
+
+    /**
+     * Retrieves up to limit doctors with, for every word of the query, a word of their name or contact info starting with it,
+     * ordered by ID and starting after the specified ID.
+     */
+    public Page<Doctor> searchDoctors(String query, Integer afterId, int limit) {
+        return doctors.findByPrefix(doctorsByName, query, afterId, limit);
+    }
+
+    /**
+     * Iterates over the doctors matching the query of searchDoctors in ID order without copying them into a list.
+     */
+    public Iterable<Doctor> scanDoctorsMatching(String query) {
+        return doctors.scanByPrefix(doctorsByName, query);
+    }
+
     /**
      * Adds a new doctor to the list of doctors.
      */
     public void addDoctor(Doctor doctor) {
         int newDoctorId = getNextDoctorId();
         doctor.setId(newDoctorId);
-        doctors.add(doctor);
+        doctors.put(doctor);
         logger.info("Doctor added: {}", doctor);
     }
 
@@ -63,13 +141,8 @@ public class DoctorDAO {
      * Updates an existing doctor.
      */
     public void updateDoctor(Doctor updatedDoctor) {
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor doctor = doctors.get(i);
-            if (doctor.getId() == updatedDoctor.getId()) {
-                doctors.set(i, updatedDoctor);
-                logger.info("Doctor updated: {}", updatedDoctor);
-                return;
-            }
+        if (doctors.replace(updatedDoctor)) {
+            logger.info("Doctor updated: {}", updatedDoctor);
         }
     }
 
@@ -77,22 +150,15 @@ public class DoctorDAO {
      * Deletes an doctor by ID.
      */
     public void deleteDoctor(int id) {
-        doctors.removeIf(doctor -> doctor.getId() == id);
+        doctors.remove(id);
         logger.info("Doctor with ID {} deleted", id);
     }
     
     /**
      * Gives the ID for the next doctor.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextDoctorId() {
-        int maxDoctorId = Integer.MIN_VALUE;
-        
-        for (Doctor doctor : doctors) {
-            int doctorId = doctor.getId();
-            if (doctorId > maxDoctorId) {
-                maxDoctorId = doctorId;
-            }
-        }
-        return maxDoctorId + 1;
+        return doctors.nextId();
     }
 }
@@ -2,8 +2,14 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.MedicalRecord;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.SecondaryIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
+import com.mycompany.healthsystemapi.store.TextIndex;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -16,13 +22,27 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class MedicalRecordDAO {
-    private static List<MedicalRecord> medicalRecords = new ArrayList<>();
+    private static final EntityStore<MedicalRecord> medicalRecords = new EntityStore<>("medicalRecords", MedicalRecord.class, MedicalRecord::getId);
+    private static final SerializedEntities<MedicalRecord> medicalRecordsJson = medicalRecords.addSerializedForm(ObjectMapperProvider.writerFor(MedicalRecord.class));
+    private static final SecondaryIndex<MedicalRecord> medicalRecordsByPatient = medicalRecords.addIndex("patientId", MedicalRecord::getPatientId);
+    private static final TextIndex<MedicalRecord> medicalRecordText = textIndex();
     private static final Logger logger = LoggerFactory.getLogger(MedicalRecordDAO.class); // For logging messages
     
-    // Initializing some demo medical records
+    // Initializing some demo medical records, unless the store already holds data
     static {
-        medicalRecords.add(new MedicalRecord(1, 1, "Record details for patient 1", "Diabetes", "Insulin therapy", "None"));
-        medicalRecords.add(new MedicalRecord(2, 2, "Record details for patient 2", "Hypertension", "Lifestyle modifications", "None"));
+        if (medicalRecords.isEmpty()) {
+            medicalRecords.put(new MedicalRecord(1, 1, "Record details for patient 1", "Diabetes", "Insulin therapy", "None"));
+            medicalRecords.put(new MedicalRecord(2, 2, "Record details for patient 2", "Hypertension", "Lifestyle modifications", "None"));
+        }
+        medicalRecords.addListener(medicalRecordText);
+    }
+
+    /**
+     * Creates a full-text index over the free-text fields of medical records.
+     */
+    static TextIndex<MedicalRecord> textIndex() {
+        return new TextIndex<>(Arrays.asList(MedicalRecord::getRecordDetails, MedicalRecord::getConveringDiagnose,
+                MedicalRecord::getTreatment, MedicalRecord::getOtherData));
     }
     
     /**
@@ -30,45 +50,107 @@ public class MedicalRecordDAO {
      */
     public List<MedicalRecord> getAllMedicalRecords() {
         try {
-            return medicalRecords;
+            return medicalRecords.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all medical records: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve medical records.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit medical records ordered by ID, starting after the specified ID.
+     */
+    public Page<MedicalRecord> getAllMedicalRecords(Integer afterId, int limit) {
+        return medicalRecords.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all medical records in ID order without copying them into a list.
+     */
+    public Iterable<MedicalRecord> scanAllMedicalRecords() {
+        return medicalRecords.scan();
+    }
+
     /**
      * Retrieves the medical record with the specified ID.
      */
     public MedicalRecord getMedicalRecordById(int id) {
-        for (MedicalRecord medicalRecord : medicalRecords) {
-            if (medicalRecord.getId() == id) {
-                return medicalRecord;
-            }
-        }
-        return null;
+        return medicalRecords.get(id);
+    }
+
+    /**
+     * Gives the version of the medical records: it changes whenever any medical record is added, updated or deleted.
+     */
+    public long getMedicalRecordsVersion() {
+        return medicalRecords.version();
+    }
+
+    /**
+     * Gives the version of the medical record with the specified ID: it changes whenever that medical record is written.
+     */
+    public long getMedicalRecordVersion(int id) {
+        return medicalRecords.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the medical record, as sent by the API.
+     */
+    public byte[] getMedicalRecordJson(MedicalRecord medicalRecord) {
+        return medicalRecordsJson.toJson(medicalRecord);
+    }
+
+    /**
+     * Gives the JSON array of the medical records, as sent by the API.
+     */
+    public byte[] getMedicalRecordsJson(List<MedicalRecord> page) {
+        return medicalRecordsJson.toJsonArray(page);
+    }
+
+    /**
+     * Gives the version of the medical records of the specified patient: it changes whenever one of them is written.
+     */
+    public long getMedicalRecordsByPatientVersion(int patientId) {
+        return medicalRecordsByPatient.versionOf(patientId);
     }
     
     /**
      * Retrieves medical records associated with a specific patient.
      */
     public List<MedicalRecord> getMedicalRecordsByPatientId(int patientId) {
-        List<MedicalRecord> patientMedicalRecords = new ArrayList<>();
-        for (MedicalRecord medicalRecord : medicalRecords) {
-            if (medicalRecord.getPatientId() == patientId) {
-                patientMedicalRecords.add(medicalRecord);
-            }
-        }
-        return patientMedicalRecords;
+        return medicalRecords.findBy(medicalRecordsByPatient, patientId);
+    }
+
+    /**
+     * Retrieves up to limit medical records associated with a specific patient, ordered by ID and starting after the specified ID.
+     */
+    public Page<MedicalRecord> getMedicalRecordsByPatientId(int patientId, Integer afterId, int limit) {
+        return medicalRecords.findBy(medicalRecordsByPatient, patientId, afterId, limit);
+    }
+
+    /**
+     * Iterates over the medical records associated with a specific patient in ID order without copying them into a list.
+     */
+    public Iterable<MedicalRecord> scanMedicalRecordsByPatientId(int patientId) {
+        return medicalRecords.scanBy(medicalRecordsByPatient, patientId);
     }
     
+    /**
+     * Searches the free text of the medical records for every word of the query and returns up to limit of them, best match first.
+     * The search is restricted to the records of the specified patient if it is not null,
+     * and resumes after the cursor of a previous page if it is not null.
+     */
+    public Page<MedicalRecord> searchMedicalRecords(String query, Integer patientId, TextIndex.Cursor after, int limit) {
+        Iterable<MedicalRecord> within = patientId == null ? null : medicalRecords.scanBy(medicalRecordsByPatient, patientId);
+        return medicalRecords.search(medicalRecordText, query, within, after, limit);
+    }
+
     /**
      * Adds a new medical record to the list of medical records.
      */
     public void addMedicalRecord(MedicalRecord medicalRecord) {
         int newMedicalRecordId = getNextMedicalRecordId();
         medicalRecord.setId(newMedicalRecordId);
-        medicalRecords.add(medicalRecord);
+        medicalRecords.put(medicalRecord);
         logger.info("Medical Record added: {}", medicalRecord);
     }
 
@@ -76,13 +158,8 @@ public class MedicalRecordDAO {
      * Updates an existing medical record.
      */
     public void updateMedicalRecord(MedicalRecord updatedMedicalRecord) {
-        for (int i = 0; i < medicalRecords.size(); i++) {
-            MedicalRecord medicalRecord = medicalRecords.get(i);
-            if (medicalRecord.getId() == updatedMedicalRecord.getId()) {
-                medicalRecords.set(i, updatedMedicalRecord);
-                logger.info("Medical Record updated: {}", updatedMedicalRecord);
-                return;
-            }
+        if (medicalRecords.replace(updatedMedicalRecord)) {
+            logger.info("Medical Record updated: {}", updatedMedicalRecord);
         }
     }
 
@@ -90,22 +167,15 @@ public class MedicalRecordDAO {
      * Deletes an medical record by ID.
      */
     public void deleteMedicalRecord(int id) {
-        medicalRecords.removeIf(medicalRecord -> medicalRecord.getId() == id);
+        medicalRecords.remove(id);
         logger.info("Medical Record with ID {} deleted", id);
     }
     
     /**
      * Gives the ID for the next medical record.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextMedicalRecordId() {
-        int maxMedicalRecordId = Integer.MIN_VALUE;
-        
-        for (MedicalRecord medicalRecord : medicalRecords) {
-            int medicalRecordId = medicalRecord.getId();
-            if (medicalRecordId > maxMedicalRecordId) {
-                maxMedicalRecordId = medicalRecordId;
-            }
-        }
-        return maxMedicalRecordId + 1;
+        return medicalRecords.nextId();
     }
 }
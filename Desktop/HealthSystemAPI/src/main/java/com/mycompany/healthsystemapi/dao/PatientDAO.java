@@ -2,7 +2,11 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.Patient;
-import java.util.ArrayList;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.PrefixIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,13 +18,18 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class PatientDAO {
-    private static List<Patient> patients = new ArrayList<>();
+    private static final EntityStore<Patient> patients = new EntityStore<>("patients", Patient.class, Patient::getId);
+    private static final SerializedEntities<Patient> patientsJson = patients.addSerializedForm(ObjectMapperProvider.writerFor(Patient.class));
+    private static final PrefixIndex<Patient> patientsByName = PersonIndexes.nameIndex();
     private static final Logger logger = LoggerFactory.getLogger(PatientDAO.class); // For logging messages
     
-    // Initializing some demo patients
+    // Initializing some demo patients, unless the store already holds data
     static {
-        patients.add(new Patient("Chronic allergies", "Stable", 1, "Taylor Lautner", "0772563564", "1A, Main Street, Galle"));
-        patients.add(new Patient("Diabetes type 2", "Under control", 2, "Tim Collins", "0772564824", "5A, Main Street, Galle")); 
+        if (patients.isEmpty()) {
+            patients.put(new Patient("Chronic allergies", "Stable", 1, "Taylor Lautner", "0772563564", "1A, Main Street, Galle"));
+            patients.put(new Patient("Diabetes type 2", "Under control", 2, "Tim Collins", "0772564824", "5A, Main Street, Galle")); 
+        }
+        patients.addListener(patientsByName);
     }
     
     /**
@@ -28,32 +37,84 @@ public class PatientDAO {
      */
     public List<Patient> getAllPatients() {
         try {
-            return patients;
+            return patients.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all patients: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve patients.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit patients ordered by ID, starting after the specified ID.
+     */
+    public Page<Patient> getAllPatients(Integer afterId, int limit) {
+        return patients.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all patients in ID order without copying them into a list.
+     */
+    public Iterable<Patient> scanAllPatients() {
+        return patients.scan();
+    }
+
     /**
      * Retrieves the patient with the specified ID.
      */
     public Patient getPatientById(int id) {
-        for (Patient patient : patients) {
-            if (patient.getId() == id) {
-                return patient;
-            }
-        }
-        return null;
+        return patients.get(id);
+    }
+
+    /**
+     * Gives the version of the patients: it changes whenever any patient is added, updated or deleted.
+     */
+    public long getPatientsVersion() {
+        return patients.version();
+    }
+
+    /**
+     * Gives the version of the patient with the specified ID: it changes whenever that patient is written.
+     */
+    public long getPatientVersion(int id) {
+        return patients.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the patient, as sent by the API.
+     */
+    public byte[] getPatientJson(Patient patient) {
+        return patientsJson.toJson(patient);
+    }
+
+    /**
+     * Gives the JSON array of the patients, as sent by the API.
+     */
+    public byte[] getPatientsJson(List<Patient> page) {
+        return patientsJson.toJsonArray(page);
     }
     
+    /**
+     * Retrieves up to limit patients with, for every word of the query, a word of their name or contact info starting with it,
+     * ordered by ID and starting after the specified ID.
+     */
+    public Page<Patient> searchPatients(String query, Integer afterId, int limit) {
+        return patients.findByPrefix(patientsByName, query, afterId, limit);
+    }
+
+    /**
+     * Iterates over the patients matching the query of searchPatients in ID order without copying them into a list.
+     */
+    public Iterable<Patient> scanPatientsMatching(String query) {
+        return patients.scanByPrefix(patientsByName, query);
+    }
+
     /**
      * Adds a new patient to the list of patients.
      */
     public void addPatient(Patient patient) {
         int newPatientId = getNextPatientId();
         patient.setId(newPatientId);
-        patients.add(patient);
+        patients.put(patient);
         logger.info("Patient added: {}", patient);
     }
 
@@ -61,13 +122,8 @@ public class PatientDAO {
      * Updates an existing patient.
      */
     public void updatePatient(Patient updatedPatient) {
-        for (int i = 0; i < patients.size(); i++) {
-            Patient patient = patients.get(i);
-            if (patient.getId() == updatedPatient.getId()) {
-                patients.set(i, updatedPatient);
-                logger.info("Patient updated: {}", updatedPatient);
-                return;
-            }
+        if (patients.replace(updatedPatient)) {
+            logger.info("Patient updated: {}", updatedPatient);
         }
     }
 
@@ -75,22 +131,15 @@ public class PatientDAO {
      * Deletes an patient by ID.
      */
     public void deletePatient(int id) {
-        patients.removeIf(patient -> patient.getId() == id);
+        patients.remove(id);
         logger.info("Patient with ID {} deleted", id);
     }
     
     /**
      * Gives the ID for the next patient.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextPatientId() {
-        int maxPatientId = Integer.MIN_VALUE;
-        
-        for (Patient patient : patients) {
-            int patientId = patient.getId();
-            if (patientId > maxPatientId) {
-                maxPatientId = patientId;
-            }
-        }
-        return maxPatientId + 1;
+        return patients.nextId();
     }
 }
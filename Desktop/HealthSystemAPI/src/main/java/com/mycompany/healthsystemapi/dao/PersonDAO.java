@@ -2,8 +2,12 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.Person;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.PrefixIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -16,13 +20,18 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class PersonDAO {
-    private static List<Person> persons = new ArrayList<>();
+    private static final EntityStore<Person> persons = new EntityStore<>("persons", Person.class, Person::getId);
+    private static final SerializedEntities<Person> personsJson = persons.addSerializedForm(ObjectMapperProvider.writerFor(Person.class));
+    private static final PrefixIndex<Person> personsByName = PersonIndexes.nameIndex();
     private static final Logger logger = LoggerFactory.getLogger(PersonDAO.class); // For logging messages
     
-    // Initializing some demo persons
+    // Initializing some demo persons, unless the store already holds data
     static {
-        persons.add(new Person(1, "Taylor Lautner", "0772563564", "1A, Main Street, Galle"));
-        persons.add(new Person(2, "Tim Collins", "0772564824", "5A, Main Street, Galle"));
+        if (persons.isEmpty()) {
+            persons.put(new Person(1, "Taylor Lautner", "0772563564", "1A, Main Street, Galle"));
+            persons.put(new Person(2, "Tim Collins", "0772564824", "5A, Main Street, Galle"));
+        }
+        persons.addListener(personsByName);
     }
     
     /**
@@ -30,32 +39,84 @@ public class PersonDAO {
      */
     public List<Person> getAllPersons() {
         try {
-            return persons;
+            return persons.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all persons: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve persons.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit persons ordered by ID, starting after the specified ID.
+     */
+    public Page<Person> getAllPersons(Integer afterId, int limit) {
+        return persons.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all persons in ID order without copying them into a list.
+     */
+    public Iterable<Person> scanAllPersons() {
+        return persons.scan();
+    }
+
     /**
      * Retrieves the person with the specified ID.
      */
     public Person getPersonById(int id) {
-        for (Person person : persons) {
-            if (person.getId() == id) {
-                return person;
-            }
-        }
-        return null;
+        return persons.get(id);
+    }
+
+    /**
+     * Gives the version of the persons: it changes whenever any person is added, updated or deleted.
+     */
+    public long getPersonsVersion() {
+        return persons.version();
+    }
+
+    /**
+     * Gives the version of the person with the specified ID: it changes whenever that person is written.
+     */
+    public long getPersonVersion(int id) {
+        return persons.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the person, as sent by the API.
+     */
+    public byte[] getPersonJson(Person person) {
+        return personsJson.toJson(person);
+    }
+
+    /**
+     * Gives the JSON array of the persons, as sent by the API.
+     */
+    public byte[] getPersonsJson(List<Person> page) {
+        return personsJson.toJsonArray(page);
     }
     
+    /**
+     * Retrieves up to limit persons with, for every word of the query, a word of their name or contact info starting with it,
+     * ordered by ID and starting after the specified ID.
+     */
+    public Page<Person> searchPersons(String query, Integer afterId, int limit) {
+        return persons.findByPrefix(personsByName, query, afterId, limit);
+    }
+
+    /**
+     * Iterates over the persons matching the query of searchPersons in ID order without copying them into a list.
+     */
+    public Iterable<Person> scanPersonsMatching(String query) {
+        return persons.scanByPrefix(personsByName, query);
+    }
+
     /**
      * Adds a new person to the list of persons.
      */
     public void addPerson(Person person) {
         int newPersonId = getNextPersonId();
         person.setId(newPersonId);
-        persons.add(person);
+        persons.put(person);
         logger.info("Person added: {}", person);
     }
 
@@ -63,13 +124,8 @@ public class PersonDAO {
      * Updates an existing person.
      */
     public void updatePerson(Person updatedPerson) {
-        for (int i = 0; i < persons.size(); i++) {
-            Person person = persons.get(i);
-            if (person.getId() == updatedPerson.getId()) {
-                persons.set(i, updatedPerson);
-                logger.info("Person updated: {}", updatedPerson);
-                return;
-            }
+        if (persons.replace(updatedPerson)) {
+            logger.info("Person updated: {}", updatedPerson);
         }
     }
 
@@ -77,22 +133,15 @@ public class PersonDAO {
      * Deletes an person by ID.
      */
     public void deletePerson(int id) {
-        persons.removeIf(person -> person.getId() == id);
+        persons.remove(id);
         logger.info("Person with ID {} deleted", id);
     }
     
     /**
      * Gives the ID for the next person.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextPersonId() {
-        int maxPersonId = Integer.MIN_VALUE;
-        
-        for (Person person : persons) {
-            int userId = person.getId();
-            if (userId > maxPersonId) {
-                maxPersonId = userId;
-            }
-        }
-        return maxPersonId + 1;
+        return persons.nextId();
     }
 }
@@ -0,0 +1,24 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Person;
+import com.mycompany.healthsystemapi.store.PrefixIndex;
+import java.util.Arrays;
+
+/**
+ * Index definitions shared by the stores of each kind of person: persons, patients and doctors.
+ *
+ * @author rachelcooray
+ */
+final class PersonIndexes {
+
+    private PersonIndexes() {
+    }
+
+    /**
+     * Creates a typeahead index over the name and contact info of persons.
+     */
+    static <T extends Person> PrefixIndex<T> nameIndex() {
+        return new PrefixIndex<>(Arrays.asList(Person::getName, Person::getContactInfo));
+    }
+}
@@ -2,8 +2,12 @@ package com.mycompany.healthsystemapi.dao;
 
 // Import required classes and libraries
 import com.mycompany.healthsystemapi.model.Prescription;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.SecondaryIndex;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
@@ -16,13 +20,17 @@ import org.slf4j.LoggerFactory;
  * @author rachelcooray
  */
 public class PrescriptionDAO {
-    private static List<Prescription> prescriptions = new ArrayList<>();
+    private static final EntityStore<Prescription> prescriptions = new EntityStore<>("prescriptions", Prescription.class, Prescription::getId);
+    private static final SerializedEntities<Prescription> prescriptionsJson = prescriptions.addSerializedForm(ObjectMapperProvider.writerFor(Prescription.class));
+    private static final SecondaryIndex<Prescription> prescriptionsByPatient = prescriptions.addIndex("patientId", Prescription::getPatientId);
     private static final Logger logger = LoggerFactory.getLogger(PrescriptionDAO.class); // For logging messages
     
-    // Initializing some demo prescriptions
+    // Initializing some demo prescriptions, unless the store already holds data
     static {
-        prescriptions.add(new Prescription(1, 1, "Paracetamol", "500mg", "Take twice daily", "7 days"));
-        prescriptions.add(new Prescription(2, 2, "Aspirin", "325mg", "Take with food", "14 days"));
+        if (prescriptions.isEmpty()) {
+            prescriptions.put(new Prescription(1, 1, "Paracetamol", "500mg", "Take twice daily", "7 days"));
+            prescriptions.put(new Prescription(2, 2, "Aspirin", "325mg", "Take with food", "14 days"));
+        }
     }
     
     /**
@@ -30,23 +38,88 @@ public class PrescriptionDAO {
      */
     public List<Prescription> getAllPrescriptions() {
         try {
-            return prescriptions;
+            return prescriptions.values();
         } catch (Exception ex) {
             logger.error("Error occurred while retrieving all prescriptions: {}", ex.getMessage());
             throw new RuntimeException("Failed to retrieve prescriptions.", ex);
         }
     }
 
+    /**
+     * Retrieves up to limit prescriptions ordered by ID, starting after the specified ID.
+     */
+    public Page<Prescription> getAllPrescriptions(Integer afterId, int limit) {
+        return prescriptions.page(afterId, limit);
+    }
+
+    /**
+     * Iterates over all prescriptions in ID order without copying them into a list.
+     */
+    public Iterable<Prescription> scanAllPrescriptions() {
+        return prescriptions.scan();
+    }
+
     /**
      * Retrieves the prescription with the specified ID.
      */
     public Prescription getPrescriptionById(int id) {
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getId() == id) {
-                return prescription;
-            }
-        }
-        return null;
+        return prescriptions.get(id);
+    }
+
+    /**
+     * Gives the version of the prescriptions: it changes whenever any prescription is added, updated or deleted.
+     */
+    public long getPrescriptionsVersion() {
+        return prescriptions.version();
+    }
+
+    /**
+     * Gives the version of the prescription with the specified ID: it changes whenever that prescription is written.
+     */
+    public long getPrescriptionVersion(int id) {
+        return prescriptions.versionOf(id);
+    }
+
+    /**
+     * Gives the JSON of the prescription, as sent by the API.
+     */
+    public byte[] getPrescriptionJson(Prescription prescription) {
+        return prescriptionsJson.toJson(prescription);
+    }
+
+    /**
+     * Gives the JSON array of the prescriptions, as sent by the API.
+     */
+    public byte[] getPrescriptionsJson(List<Prescription> page) {
+        return prescriptionsJson.toJsonArray(page);
+    }
+
+    /**
+     * Gives the version of the prescriptions of the specified patient: it changes whenever one of them is written.
+     */
+    public long getPrescriptionsByPatientVersion(int patientId) {
+        return prescriptionsByPatient.versionOf(patientId);
+    }
+    
+    /**
+     * Retrieves prescriptions associated with a specific patient.
+     */
+    public List<Prescription> getPrescriptionsByPatientId(int patientId) {
+        return prescriptions.findBy(prescriptionsByPatient, patientId);
+    }
+
+    /**
+     * Retrieves up to limit prescriptions associated with a specific patient, ordered by ID and starting after the specified ID.
+     */
+    public Page<Prescription> getPrescriptionsByPatientId(int patientId, Integer afterId, int limit) {
+        return prescriptions.findBy(prescriptionsByPatient, patientId, afterId, limit);
+    }
+
+    /**
+     * Iterates over the prescriptions associated with a specific patient in ID order without copying them into a list.
+     */
+    public Iterable<Prescription> scanPrescriptionsByPatientId(int patientId) {
+        return prescriptions.scanBy(prescriptionsByPatient, patientId);
     }
     
     /**
@@ -55,7 +128,7 @@ public class PrescriptionDAO {
     public void addPrescription(Prescription prescription) {
         int newPrescriptionId = getNextPrescriptionId();
         prescription.setId(newPrescriptionId);
-        prescriptions.add(prescription);
+        prescriptions.put(prescription);
         logger.info("Prescription added: {}", prescription);
     }
 
@@ -63,13 +136,8 @@ public class PrescriptionDAO {
      * Updates an existing prescription.
      */
     public void updatePrescription(Prescription updatedPrescription) {
-        for (int i = 0; i < prescriptions.size(); i++) {
-            Prescription prescription = prescriptions.get(i);
-            if (prescription.getId() == updatedPrescription.getId()) {
-                prescriptions.set(i, updatedPrescription);
-                logger.info("Prescription updated: {}", updatedPrescription);
-                return;
-            }
+        if (prescriptions.replace(updatedPrescription)) {
+            logger.info("Prescription updated: {}", updatedPrescription);
         }
     }
 
@@ -77,22 +145,15 @@ public class PrescriptionDAO {
      * Deletes an prescription by ID.
      */
     public void deletePrescription(int id) {
-        prescriptions.removeIf(prescription -> prescription.getId() == id);
+        prescriptions.remove(id);
         logger.info("Prescription with ID {} deleted", id);
     }
     
     /**
      * Gives the ID for the next prescription.
+     * Each call reserves a new ID, so concurrent callers never receive the same one.
      */
     public int getNextPrescriptionId() {
-        int maxPrescriptionId = Integer.MIN_VALUE;
-        
-        for (Prescription prescription : prescriptions) {
-            int prescriptionId = prescription.getId();
-            if (prescriptionId > maxPrescriptionId) {
-                maxPrescriptionId = prescriptionId;
-            }
-        }
-        return maxPrescriptionId + 1;
+        return prescriptions.nextId();
     }
 }
@@ -0,0 +1,141 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.DateTimes;
+import com.mycompany.healthsystemapi.model.RevenueReport;
+import com.mycompany.healthsystemapi.store.StoreListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Daily revenue buckets of the billings: per day, the invoices issued and the amount invoiced (by invoice date),
+ * and the payments made and the amount collected (by payment date), where a billing has collected its amount
+ * less its outstanding balance. Every write to a billing takes the previous version out of its buckets
+ * and puts the current one in, so a revenue report over any range of dates sums the buckets of the days in it
+ * instead of reading the billings. Billings without a valid date are left out of that date's buckets.
+ * Amounts are summed in whole cents, so that taking a billing out always restores the previous totals.
+ *
+ * @author rachelcooray
+ */
+public class RevenueRollups implements StoreListener<Billing> {
+
+    /**
+     * The length of the periods a report is broken into.
+     */
+    public enum Period {
+        DAY, MONTH, YEAR, TOTAL
+    }
+
+    // Attributes of this class
+    private final ConcurrentSkipListMap<Integer, Bucket> days = new ConcurrentSkipListMap<>();
+
+    @Override
+    public void onWrite(int id, Billing previous, Billing current) {
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        if (current != null) {
+            apply(current, 1);
+        }
+    }
+
+    private void apply(Billing billing, int sign) {
+        Integer invoiceDay = DateTimes.toEpochDayOrNull(billing.getInvoiceDate());
+        if (invoiceDay != null) {
+            add(invoiceDay, new Bucket(sign, sign * billing.getAmountCents(), 0, 0));
+        }
+        Integer paymentDay = DateTimes.toEpochDayOrNull(billing.getPaymentDate());
+        long collectedCents = billing.getAmountCents() - billing.getOutstandingBalanceCents();
+        if (paymentDay != null && collectedCents != 0) {
+            add(paymentDay, new Bucket(0, 0, sign, sign * collectedCents));
+        }
+    }
+
+    private void add(int day, Bucket change) {
+        days.compute(day, (key, bucket) -> {
+            Bucket updated = bucket == null ? change : bucket.plus(change);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * Gives the revenue of each period with billings from day 'from' to day 'to' (epoch days, both included), in date order.
+     * With TOTAL it gives a single row for the whole range, labelled with the first and last day in it that has billings.
+     */
+    public List<RevenueReport> report(int from, int to, Period period) {
+        List<RevenueReport> rows = new ArrayList<>();
+        if (from > to) {
+            return rows;
+        }
+        String label = null;
+        Bucket sum = null;
+        int firstDay = 0;
+        int lastDay = 0;
+        for (Map.Entry<Integer, Bucket> day : days.subMap(from, true, to, true).entrySet()) {
+            String dayLabel = label(day.getKey(), period);
+            if (sum != null && !dayLabel.equals(label)) {
+                rows.add(sum.toReport(label));
+                sum = null;
+            }
+            if (sum == null) {
+                firstDay = day.getKey();
+            }
+            lastDay = day.getKey();
+            label = dayLabel;
+            sum = sum == null ? day.getValue() : sum.plus(day.getValue());
+        }
+        if (sum != null) {
+            rows.add(sum.toReport(period == Period.TOTAL ? LocalDate.ofEpochDay(firstDay) + "/" + LocalDate.ofEpochDay(lastDay) : label));
+        }
+        return rows;
+    }
+
+    private static String label(int day, Period period) {
+        String date = LocalDate.ofEpochDay(day).toString();
+        switch (period) {
+            case DAY:
+                return date;
+            case MONTH:
+                return date.substring(0, 7);
+            case YEAR:
+                return date.substring(0, 4);
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Immutable totals of one day, or of several days once summed.
+     */
+    private static final class Bucket {
+        private final int invoices;
+        private final long invoicedCents;
+        private final int payments;
+        private final long collectedCents;
+
+        private Bucket(int invoices, long invoicedCents, int payments, long collectedCents) {
+            this.invoices = invoices;
+            this.invoicedCents = invoicedCents;
+            this.payments = payments;
+            this.collectedCents = collectedCents;
+        }
+
+        private Bucket plus(Bucket other) {
+            return new Bucket(invoices + other.invoices, invoicedCents + other.invoicedCents,
+                    payments + other.payments, collectedCents + other.collectedCents);
+        }
+
+        private boolean isEmpty() {
+            return invoices == 0 && invoicedCents == 0 && payments == 0 && collectedCents == 0;
+        }
+
+        private RevenueReport toReport(String period) {
+            return new RevenueReport(period, invoices, invoicedCents / 100.0, payments, collectedCents / 100.0);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.mycompany.healthsystemapi.exception;
+
+/**
+ * Exception class to represent an appointment that overlaps another appointment of the same doctor.
+ * It extends the RuntimeException class.
+ * 
+ * @author rachelcooray
+ */
+public class AppointmentConflictException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    // Attributes of this class
+    private final int conflictingAppointmentId;
+
+    /**
+     * Constructs a new AppointmentConflictException with the specified detail message and the ID of the appointment it overlaps.
+     */
+    public AppointmentConflictException(String message, int conflictingAppointmentId) {
+        super(message);
+        this.conflictingAppointmentId = conflictingAppointmentId;
+    }
+
+    public int getConflictingAppointmentId() {
+        return conflictingAppointmentId;
+    }
+}
@@ -0,0 +1,36 @@
+package com.mycompany.healthsystemapi.exception;
+
+// Import required libraries
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Exception mapper class to handle AppointmentConflictExceptions.
+ * It implements the ExceptionMapper interface for mapping AppointmentConflictException to a Response.
+ * 
+ * @author rachelcooray
+ */
+@Provider
+public class AppointmentConflictExceptionMapper implements ExceptionMapper<AppointmentConflictException> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentConflictExceptionMapper.class);
+
+    /**
+     * Maps an AppointmentConflictException to a Response object.
+     * It returns a Response object with status code 409 (Conflict) and the exception message.
+     */
+    @Override
+    public Response toResponse(AppointmentConflictException exception) {
+        LOGGER.warn("AppointmentConflictException caught: {}", exception.getMessage());
+
+        return Response.status(Response.Status.CONFLICT)
+                .entity(exception.getMessage())
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+}
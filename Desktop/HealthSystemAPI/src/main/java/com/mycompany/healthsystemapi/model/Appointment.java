@@ -1,27 +1,41 @@
 package com.mycompany.healthsystemapi.model;
 
+// Import required classes and libraries
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Represents an appointment in the health system.
  * 
- * An appointment includes information such as ID, date and time, patient details, and doctor details.
+ * An appointment includes information such as ID, date and time, and the IDs of its patient and doctor.
+ * The patient and doctor are only referenced by ID, so that their details are kept once, in their own stores;
+ * they are joined back in when an appointment is read with ?expand=patient,doctor.
+ * The date and time is also kept parsed, as epoch minutes, so appointments can be ordered and queried by time.
+ * An appointment lasts durationMinutes, or DEFAULT_DURATION_MINUTES if no duration was given;
+ * a given duration must be from 1 to MAX_DURATION_MINUTES.
  *
  * @author rachelcooray
  */
 public class Appointment {
+    public static final int DEFAULT_DURATION_MINUTES = 30;
+    public static final int MAX_DURATION_MINUTES = 24 * 60;
+
     // Attributes of this class
     private int id;
     private String dateTime;
-    private Patient patient;
-    private Doctor doctor;
+    private transient Integer startMinute;
+    private int durationMinutes;
+    private int patientId;
+    private int doctorId;
 
     /**
-     * Constructs an appointment object with the specified ID, date and time, patient details, and doctor details.
+     * Constructs an appointment object with the specified ID, date and time, patient ID, and doctor ID.
      */
-    public Appointment(int id, String dateTime, Patient patient, Doctor doctor) {
+    public Appointment(int id, String dateTime, int patientId, int doctorId) {
         this.id = id;
-        this.dateTime = dateTime;
-        this.patient = patient;
-        this.doctor = doctor;
+        setDateTime(dateTime);
+        this.patientId = patientId;
+        this.doctorId = doctorId;
     }
     
     /**
@@ -46,22 +60,76 @@ public class Appointment {
 
     public void setDateTime(String dateTime) {
         this.dateTime = dateTime;
+        this.startMinute = DateTimes.toEpochMinuteOrNull(dateTime);
     }
 
-    public Patient getPatient() {
-        return patient;
+    /**
+     * Gives the start of the appointment in epoch minutes, or null if its date and time cannot be parsed.
+     */
+    @JsonIgnore
+    public Integer getStartMinute() {
+        return startMinute;
     }
 
-    public void setPatient(Patient patient) {
-        this.patient = patient;
+    public int getDurationMinutes() {
+        return durationMinutes;
     }
 
-    public Doctor getDoctor() {
-        return doctor;
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
     }
 
+    /**
+     * Checks whether the duration is left out (zero) or from 1 to MAX_DURATION_MINUTES.
+     */
+    @JsonIgnore
+    public boolean isDurationValid() {
+        return durationMinutes >= 0 && durationMinutes <= MAX_DURATION_MINUTES;
+    }
+
+    /**
+     * Gives the end of the appointment in epoch minutes, excluded, or null if its date and time cannot be parsed.
+     * An invalid duration, as may be found in data stored before durations were checked, is capped to the valid range.
+     */
+    @JsonIgnore
+    public Integer getEndMinute() {
+        if (startMinute == null) {
+            return null;
+        }
+        int duration = durationMinutes > 0 ? Math.min(durationMinutes, MAX_DURATION_MINUTES) : DEFAULT_DURATION_MINUTES;
+        return (int) Math.min(Integer.MAX_VALUE, (long) startMinute + duration);
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(int patientId) {
+        this.patientId = patientId;
+    }
+
+    public int getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(int doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    /**
+     * Takes the patient ID from an embedded patient, as sent by older clients and stored in older journals.
+     */
+    @JsonProperty("patient")
+    public void setPatient(Patient patient) {
+        this.patientId = patient == null ? 0 : patient.getId();
+    }
+
+    /**
+     * Takes the doctor ID from an embedded doctor, as sent by older clients and stored in older journals.
+     */
+    @JsonProperty("doctor")
     public void setDoctor(Doctor doctor) {
-        this.doctor = doctor;
+        this.doctorId = doctor == null ? 0 : doctor.getId();
     }
      
 }
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.mycompany.healthsystemapi.model;
 
+// Import required classes and libraries
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * Represents a billing object in the health system.
  * 
@@ -93,6 +96,22 @@ public class Billing {
     public void setOutstandingBalance(double outstandingBalance) {
         this.outstandingBalance = outstandingBalance;
     }
+
+    /**
+     * Gives the amount rounded to whole cents, in which amounts are summed so that they add up exactly.
+     */
+    @JsonIgnore
+    public long getAmountCents() {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Gives the outstanding balance rounded to whole cents.
+     */
+    @JsonIgnore
+    public long getOutstandingBalanceCents() {
+        return Math.round(outstandingBalance * 100);
+    }
     
     
 }
@@ -0,0 +1,66 @@
+package com.mycompany.healthsystemapi.model;
+
+/**
+ * Represents the running billing totals of one patient.
+ * 
+ * A summary includes the patient ID, the number of invoices, the total amount invoiced and the total still outstanding.
+ *
+ * @author rachelcooray
+ */
+public class BillingSummary {
+    // Attributes of this class
+    private int patientId;
+    private int invoiceCount;
+    private double totalInvoiced;
+    private double totalOutstanding;
+
+    /**
+     * Constructs a summary with the specified patient ID and totals.
+     */
+    public BillingSummary(int patientId, int invoiceCount, double totalInvoiced, double totalOutstanding) {
+        this.patientId = patientId;
+        this.invoiceCount = invoiceCount;
+        this.totalInvoiced = totalInvoiced;
+        this.totalOutstanding = totalOutstanding;
+    }
+
+    /**
+     * Default constructor for the class.
+     */
+    public BillingSummary() {
+
+    }
+
+    // Getters and setters of each attribute
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(int patientId) {
+        this.patientId = patientId;
+    }
+
+    public int getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public void setInvoiceCount(int invoiceCount) {
+        this.invoiceCount = invoiceCount;
+    }
+
+    public double getTotalInvoiced() {
+        return totalInvoiced;
+    }
+
+    public void setTotalInvoiced(double totalInvoiced) {
+        this.totalInvoiced = totalInvoiced;
+    }
+
+    public double getTotalOutstanding() {
+        return totalOutstanding;
+    }
+
+    public void setTotalOutstanding(double totalOutstanding) {
+        this.totalOutstanding = totalOutstanding;
+    }
+}
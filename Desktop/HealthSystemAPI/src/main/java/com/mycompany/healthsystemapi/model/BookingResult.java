@@ -0,0 +1,71 @@
+package com.mycompany.healthsystemapi.model;
+
+/**
+ * Represents the outcome of booking one appointment of a bulk request.
+ * 
+ * A result includes the position of the appointment in the request, its status, the ID it was given if it was created,
+ * and a message explaining why it was not.
+ *
+ * @author rachelcooray
+ */
+public class BookingResult {
+    public static final String CREATED = "CREATED";
+    public static final String CONFLICT = "CONFLICT";
+    public static final String INVALID = "INVALID";
+
+    // Attributes of this class
+    private int index;
+    private String status;
+    private Integer id;
+    private String message;
+
+    /**
+     * Constructs a result with the specified position in the request, status, ID and message.
+     */
+    public BookingResult(int index, String status, Integer id, String message) {
+        this.index = index;
+        this.status = status;
+        this.id = id;
+        this.message = message;
+    }
+
+    /**
+     * Default constructor for the class.
+     */
+    public BookingResult() {
+
+    }
+
+    // Getters and setters of each attribute
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
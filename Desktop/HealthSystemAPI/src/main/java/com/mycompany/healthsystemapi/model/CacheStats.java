@@ -0,0 +1,117 @@
+package com.mycompany.healthsystemapi.model;
+
+/**
+ * Represents the counters of the response cache.
+ *
+ * Stats include the lookups answered from the cache (hits) or not (misses), the entries evicted to make room,
+ * the entries dropped because what they were read from was written since (invalidations),
+ * the responses not let in because they were asked for less often than the entries they would evict (rejections),
+ * and the entries and bytes held against the limit.
+ *
+ * @author rachelcooray
+ */
+public class CacheStats {
+    // Attributes of this class
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long rejections;
+    private int entries;
+    private long bytes;
+    private long maxBytes;
+
+    /**
+     * Constructs stats with the specified counters.
+     */
+    public CacheStats(long hits, long misses, long evictions, long invalidations, long rejections, int entries, long bytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.rejections = rejections;
+        this.entries = entries;
+        this.bytes = bytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Default constructor for the class.
+     */
+    public CacheStats() {
+
+    }
+
+    /**
+     * Gives the share of lookups answered from the cache, or 0 if there was none.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    // Getters and setters of each attribute
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public void setInvalidations(long invalidations) {
+        this.invalidations = invalidations;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(long rejections) {
+        this.rejections = rejections;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public void setEntries(int entries) {
+        this.entries = entries;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
@@ -0,0 +1,71 @@
+package com.mycompany.healthsystemapi.model;
+
+// Import required classes and libraries
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses the free-form date and time strings used by the models, such as "2024-04-23", "2024-04-23T09:30"
+ * or "2024-04-23 09:30", into minutes since 1970-01-01T00:00, which sort and compare as plain numbers.
+ * Times are clinic-local and carry no time zone, so they are converted as if they were UTC.
+ *
+ * @author rachelcooray
+ */
+public final class DateTimes {
+
+    private DateTimes() {
+    }
+
+    /**
+     * Converts a date or date and time into epoch minutes. A date alone gives the start of the day,
+     * or its last minute if endOfDay is true.
+     * It throws DateTimeParseException if the text is not a supported date or date and time.
+     */
+    public static int toEpochMinute(String text, boolean endOfDay) {
+        String trimmed = text.trim();
+        LocalDateTime dateTime;
+        if (trimmed.length() == 10) {
+            LocalDate date = LocalDate.parse(trimmed);
+            dateTime = endOfDay ? date.atTime(23, 59) : date.atStartOfDay();
+        } else {
+            dateTime = LocalDateTime.parse(trimmed.replace(' ', 'T'));
+        }
+        long minutes = dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+        if (minutes < Integer.MIN_VALUE || minutes > Integer.MAX_VALUE) {
+            throw new DateTimeParseException("Date out of range", text, 0);
+        }
+        return (int) minutes;
+    }
+
+    /**
+     * Converts a date or date and time into epoch minutes, or returns null if it is missing or cannot be parsed.
+     */
+    public static Integer toEpochMinuteOrNull(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return toEpochMinute(text, false);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Converts a date or date and time into days since 1970-01-01, the day it falls on.
+     * It throws DateTimeParseException if the text is not a supported date or date and time.
+     */
+    public static int toEpochDay(String text) {
+        return Math.floorDiv(toEpochMinute(text, false), 24 * 60);
+    }
+
+    /**
+     * Converts a date or date and time into epoch days, or returns null if it is missing or cannot be parsed.
+     */
+    public static Integer toEpochDayOrNull(String text) {
+        Integer minute = toEpochMinuteOrNull(text);
+        return minute == null ? null : Math.floorDiv(minute, 24 * 60);
+    }
+}
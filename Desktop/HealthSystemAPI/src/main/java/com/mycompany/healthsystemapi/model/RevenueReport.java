@@ -0,0 +1,77 @@
+package com.mycompany.healthsystemapi.model;
+
+/**
+ * Represents the revenue of one period, such as a day or a month.
+ * 
+ * A report row includes the period, the number of invoices issued and the amount invoiced in it,
+ * and the number of payments made and the amount collected in it.
+ *
+ * @author rachelcooray
+ */
+public class RevenueReport {
+    // Attributes of this class
+    private String period;
+    private int invoiceCount;
+    private double invoiced;
+    private int paymentCount;
+    private double collected;
+
+    /**
+     * Constructs a report row with the specified period and totals.
+     */
+    public RevenueReport(String period, int invoiceCount, double invoiced, int paymentCount, double collected) {
+        this.period = period;
+        this.invoiceCount = invoiceCount;
+        this.invoiced = invoiced;
+        this.paymentCount = paymentCount;
+        this.collected = collected;
+    }
+
+    /**
+     * Default constructor for the class.
+     */
+    public RevenueReport() {
+
+    }
+
+    // Getters and setters of each attribute
+    public String getPeriod() {
+        return period;
+    }
+
+    public void setPeriod(String period) {
+        this.period = period;
+    }
+
+    public int getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    public void setInvoiceCount(int invoiceCount) {
+        this.invoiceCount = invoiceCount;
+    }
+
+    public double getInvoiced() {
+        return invoiced;
+    }
+
+    public void setInvoiced(double invoiced) {
+        this.invoiced = invoiced;
+    }
+
+    public int getPaymentCount() {
+        return paymentCount;
+    }
+
+    public void setPaymentCount(int paymentCount) {
+        this.paymentCount = paymentCount;
+    }
+
+    public double getCollected() {
+        return collected;
+    }
+
+    public void setCollected(double collected) {
+        this.collected = collected;
+    }
+}
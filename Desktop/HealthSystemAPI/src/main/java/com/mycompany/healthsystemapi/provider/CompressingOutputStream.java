@@ -0,0 +1,249 @@
+package com.mycompany.healthsystemapi.provider;
+
+// Import required classes and libraries
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream compressing a response body with gzip or deflate once it grows past a threshold.
+ * The first bytes are held back until the threshold is reached, so a small body is written as it is;
+ * a larger one is compressed, and the callback is told first so that it can set the Content-Encoding header.
+ * Flushes are held back too until the choice is made, so that an early flush cannot commit the headers before it.
+ *
+ * Both encodings run on raw deflate, with the gzip or zlib header and checksum written around it,
+ * so one pool of compressors serves both. The compressors and their buffers are taken from the pool for the
+ * length of a response and handed back when it is closed, so no Deflater is created per response.
+ *
+ * @author rachelcooray
+ */
+final class CompressingOutputStream extends OutputStream {
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    // Deflate with a 32K window, and check bits making the header a multiple of 31
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+
+    /**
+     * The encodings the stream can write.
+     */
+    enum Encoding {
+        GZIP("gzip"), DEFLATE("deflate");
+
+        // Attributes of this enum
+        private final String token;
+
+        Encoding(String token) {
+            this.token = token;
+        }
+
+        /**
+         * Gives the name of the encoding in the Accept-Encoding and Content-Encoding headers.
+         */
+        String token() {
+            return token;
+        }
+    }
+
+    // Attributes of this class
+    private final OutputStream out;
+    private final Encoding encoding;
+    private final Runnable onCompress;
+    private final Pool pool;
+    private final byte[] pending;
+    private int pendingCount;
+    private Compressor compressor;
+    private boolean decided;
+    private boolean closed;
+
+    /**
+     * Constructs a stream writing to out, compressing with the specified encoding once the body passes the pool's threshold,
+     * and running onCompress just before the first compressed byte is written.
+     */
+    CompressingOutputStream(OutputStream out, Encoding encoding, Pool pool, Runnable onCompress) {
+        this.out = out;
+        this.encoding = encoding;
+        this.pool = pool;
+        this.onCompress = onCompress;
+        this.compressor = pool.take();
+        this.pending = compressor.pending;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (!decided) {
+            if (pendingCount + len <= pending.length) {
+                System.arraycopy(b, off, pending, pendingCount, len);
+                pendingCount += len;
+                return;
+            }
+            startCompressing();
+        }
+        if (compressor == null) {
+            out.write(b, off, len);
+        } else {
+            compressor.checksum.update(b, off, len);
+            compressor.deflater.setInput(b, off, len);
+            while (!compressor.deflater.needsInput()) {
+                drain(Deflater.NO_FLUSH);
+            }
+        }
+    }
+
+    /**
+     * Compresses what is held back and everything written after it.
+     */
+    private void startCompressing() throws IOException {
+        decided = true;
+        onCompress.run();
+        out.write(encoding == Encoding.GZIP ? GZIP_HEADER : ZLIB_HEADER);
+        compressor.start(encoding);
+        int count = pendingCount;
+        pendingCount = 0;
+        write(pending, 0, count);
+    }
+
+    /**
+     * Writes what is held back as it is, and the rest without compression.
+     */
+    private void writeUncompressed() throws IOException {
+        decided = true;
+        Compressor unused = compressor;
+        compressor = null;
+        out.write(pending, 0, pendingCount);
+        pool.release(unused);
+    }
+
+    private void drain(int flush) throws IOException {
+        int length = compressor.deflater.deflate(compressor.buffer, 0, compressor.buffer.length, flush);
+        if (length > 0) {
+            out.write(compressor.buffer, 0, length);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!decided) {
+            return;
+        }
+        if (compressor != null) {
+            // Emits what was compressed so far, so that a streamed response reaches the client as it is written
+            while (true) {
+                int length = compressor.deflater.deflate(compressor.buffer, 0, compressor.buffer.length, Deflater.SYNC_FLUSH);
+                out.write(compressor.buffer, 0, length);
+                if (length < compressor.buffer.length) {
+                    break;
+                }
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!decided) {
+                writeUncompressed();
+            } else if (compressor != null) {
+                compressor.deflater.finish();
+                while (!compressor.deflater.finished()) {
+                    drain(Deflater.NO_FLUSH);
+                }
+                writeTrailer();
+                pool.release(compressor);
+                compressor = null;
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        long checksum = compressor.checksum.getValue();
+        if (encoding == Encoding.GZIP) {
+            // CRC-32 and length of the uncompressed data, little-endian
+            long size = compressor.deflater.getBytesRead();
+            out.write(new byte[] {(byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24),
+                (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)});
+        } else {
+            // Adler-32 of the uncompressed data, big-endian
+            out.write(new byte[] {(byte) (checksum >> 24), (byte) (checksum >> 16), (byte) (checksum >> 8), (byte) checksum});
+        }
+    }
+
+    /**
+     * A raw deflate compressor with the checksums of both encodings and its buffers, borrowed from the pool per response.
+     */
+    static final class Compressor {
+        // Attributes of this class
+        private final Deflater deflater;
+        private final CRC32 crc32 = new CRC32();
+        private final Adler32 adler32 = new Adler32();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] pending;
+        private Checksum checksum;
+
+        private Compressor(int level, int threshold) {
+            this.deflater = new Deflater(level, true);
+            this.pending = new byte[threshold];
+        }
+
+        private void start(Encoding encoding) {
+            checksum = encoding == Encoding.GZIP ? crc32 : adler32;
+            checksum.reset();
+        }
+
+        private void reset() {
+            deflater.reset();
+            checksum = null;
+        }
+    }
+
+    /**
+     * Bounded pool of compressors. When it is empty a new compressor is made, and when it is full a returned one is ended.
+     */
+    static final class Pool {
+        // Attributes of this class
+        private final BlockingQueue<Compressor> idle;
+        private final int level;
+        private final int threshold;
+
+        /**
+         * Constructs a pool keeping up to size idle compressors of the specified level,
+         * for bodies compressed once they pass threshold bytes.
+         */
+        Pool(int size, int level, int threshold) {
+            this.idle = new ArrayBlockingQueue<>(size);
+            this.level = level;
+            this.threshold = threshold;
+        }
+
+        Compressor take() {
+            Compressor compressor = idle.poll();
+            return compressor != null ? compressor : new Compressor(level, threshold);
+        }
+
+        void release(Compressor compressor) {
+            compressor.reset();
+            if (!idle.offer(compressor)) {
+                compressor.deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.mycompany.healthsystemapi.provider;
+
+// Import required classes and libraries
+import java.io.IOException;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Interceptor compressing the JSON and text responses with gzip or deflate, whichever the client prefers in Accept-Encoding.
+ * Bodies shorter than the threshold are sent as they are, as compressing them saves less than it costs;
+ * see CompressingOutputStream for how the body is held back until its size is known and how compressors are pooled.
+ *
+ * healthsystem.compression.minBytes - size a body must reach to be compressed (default: 1024)
+ * healthsystem.compression.level - deflate level, from 1 (fastest) to 9 (smallest) (default: 6)
+ *
+ * @author rachelcooray
+ */
+@Provider
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+    private static final int MIN_BYTES = Integer.getInteger("healthsystem.compression.minBytes", 1024);
+    private static final int LEVEL = Integer.getInteger("healthsystem.compression.level", 6);
+    private static final CompressingOutputStream.Pool POOL = new CompressingOutputStream.Pool(
+            4 * Runtime.getRuntime().availableProcessors(), Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, LEVEL)), Math.max(0, MIN_BYTES));
+
+    @Context
+    private HttpHeaders requestHeaders;
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (!compressible(context.getMediaType()) || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        CompressingOutputStream.Encoding encoding = negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+        context.setOutputStream(new CompressingOutputStream(context.getOutputStream(), encoding, POOL, () -> {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding.token());
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }));
+        context.proceed();
+    }
+
+    private static boolean compressible(MediaType type) {
+        return type != null && ("text".equalsIgnoreCase(type.getType())
+                || MediaType.APPLICATION_JSON_TYPE.isCompatible(type) && !type.isWildcardSubtype());
+    }
+
+    /**
+     * Picks the encoding to use for an Accept-Encoding header: gzip or deflate, whichever has the higher quality,
+     * gzip on a tie, or null if neither is accepted.
+     */
+    static CompressingOutputStream.Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (coding.equals("deflate")) {
+                deflate = Math.max(deflate, quality);
+            } else if (coding.equals("*")) {
+                any = Math.max(any, quality);
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return CompressingOutputStream.Encoding.GZIP;
+        }
+        return deflate > 0 ? CompressingOutputStream.Encoding.DEFLATE : null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.mycompany.healthsystemapi.provider;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.BillingSummary;
+import com.mycompany.healthsystemapi.model.BookingResult;
+import com.mycompany.healthsystemapi.model.CacheStats;
+import com.mycompany.healthsystemapi.model.Doctor;
+import com.mycompany.healthsystemapi.model.MedicalRecord;
+import com.mycompany.healthsystemapi.model.Patient;
+import com.mycompany.healthsystemapi.model.Person;
+import com.mycompany.healthsystemapi.model.Prescription;
+import com.mycompany.healthsystemapi.model.RevenueReport;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Provider of the one Jackson ObjectMapper used for JSON everywhere: request and response bodies, streamed pages,
+ * the response cache, the serialized entity bytes and the storage files.
+ * It reads and writes properties through generated bytecode (Afterburner) rather than reflection,
+ * leaves out the features the models never need, and resolves the serializers and deserializers of the model classes
+ * when it is created, so that the first requests do not pay for introspecting them.
+ *
+ * @author rachelcooray
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class ObjectMapperProvider implements ContextResolver<ObjectMapper> {
+    private static final Class<?>[] MODELS = {Appointment.class, Billing.class, BillingSummary.class, BookingResult.class, CacheStats.class,
+        Doctor.class, MedicalRecord.class, Patient.class, Person.class, Prescription.class, RevenueReport.class};
+
+    /**
+     * The shared mapper. It must not be reconfigured once created, as it is used concurrently.
+     */
+    public static final ObjectMapper MAPPER = configure(new ObjectMapper(JsonFactory.builder()
+            // Field names are already canonicalized per parser factory; interning them as well only costs time
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build()));
+
+    private static final ConcurrentMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    static {
+        for (Class<?> model : MODELS) {
+            writerFor(model);
+            MAPPER.writerFor(MAPPER.getTypeFactory().constructCollectionType(List.class, model));
+            MAPPER.readerFor(model);
+        }
+    }
+
+    /**
+     * Applies the shared settings to a mapper, so that mappers of other formats, such as the binary one of the snapshots,
+     * read and write the models the same way. Factory features are fixed when the factory is built, so they are set by the callers.
+     */
+    public static ObjectMapper configure(ObjectMapper mapper) {
+        // Bodies are written whole, and flushed by the writers of streamed pages when they need to
+        mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        // No model has a collection without a setter for Jackson to fill through its getter
+        mapper.disable(MapperFeature.USE_GETTERS_AS_SETTERS);
+        return mapper.registerModule(new AfterburnerModule());
+    }
+
+    /**
+     * Gives the writer of the shared mapper for the specified type, with its serializer resolved on first use and kept.
+     */
+    public static ObjectWriter writerFor(Class<?> type) {
+        ObjectWriter writer = WRITERS.get(type);
+        return writer != null ? writer : WRITERS.computeIfAbsent(type, MAPPER::writerFor);
+    }
+
+    @Override
+    public ObjectMapper getContext(Class<?> type) {
+        return MAPPER;
+    }
+}
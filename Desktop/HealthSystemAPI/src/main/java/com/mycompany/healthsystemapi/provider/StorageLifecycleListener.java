@@ -0,0 +1,41 @@
+package com.mycompany.healthsystemapi.provider;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.store.StorageEngines;
+
+import javax.ws.rs.ext.Provider;
+
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listener flushing and closing the storage journals and database connections when the application is undeployed or reloaded,
+ * so that no buffered write is lost and the next deployment can reopen the files.
+ *
+ * @author rachelcooray
+ */
+@Provider
+public class StorageLifecycleListener implements ContainerLifecycleListener {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StorageLifecycleListener.class);
+
+    @Override
+    public void onStartup(Container container) {
+        // Stores open their journals when their DAO class is first used
+    }
+
+    @Override
+    public void onReload(Container container) {
+        // The stores are static and stay open across a reload of the Jersey application
+    }
+
+    /**
+     * Stops the periodic snapshots, then flushes and closes every open journal and the database connection pool.
+     */
+    @Override
+    public void onShutdown(Container container) {
+        LOGGER.info("Closing storage journals and database connections");
+        StorageEngines.closeAll();
+    }
+}
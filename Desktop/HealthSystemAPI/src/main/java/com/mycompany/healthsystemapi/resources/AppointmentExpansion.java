@@ -0,0 +1,149 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.mycompany.healthsystemapi.dao.AppointmentDAO;
+import com.mycompany.healthsystemapi.dao.DoctorDAO;
+import com.mycompany.healthsystemapi.dao.PatientDAO;
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.Doctor;
+import com.mycompany.healthsystemapi.model.Patient;
+import com.mycompany.healthsystemapi.store.Page;
+
+import java.util.Iterator;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Join layer for the ?expand= parameter of the appointment endpoints.
+ * Appointments only hold the IDs of their patient and doctor; with ?expand=patient, ?expand=doctor or both,
+ * each appointment is wrapped so that the current patient or doctor is looked up and written next to it
+ * while the response is serialized.
+ *
+ * @author rachelcooray
+ */
+final class AppointmentExpansion {
+    static final AppointmentExpansion NONE = new AppointmentExpansion(false, false);
+
+    private static final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private static final PatientDAO patientDAO = new PatientDAO();
+    private static final DoctorDAO doctorDAO = new DoctorDAO();
+
+    // Attributes of this class
+    private final boolean patient;
+    private final boolean doctor;
+
+    private AppointmentExpansion(boolean patient, boolean doctor) {
+        this.patient = patient;
+        this.doctor = doctor;
+    }
+
+    /**
+     * Parses the value of ?expand=, a comma-separated list of patient and doctor.
+     * It throws BadRequestException for any other field.
+     */
+    static AppointmentExpansion parse(String expand) {
+        if (expand == null || expand.trim().isEmpty()) {
+            return NONE;
+        }
+        boolean patient = false;
+        boolean doctor = false;
+        for (String field : expand.split(",")) {
+            switch (field.trim()) {
+                case "patient":
+                    patient = true;
+                    break;
+                case "doctor":
+                    doctor = true;
+                    break;
+                default:
+                    throw new BadRequestException("expand accepts patient and doctor, not: " + field.trim());
+            }
+        }
+        return new AppointmentExpansion(patient, doctor);
+    }
+
+    /**
+     * Builds the tag of a response holding appointments with the specified version, expanded this way.
+     * The versions of the patients and doctors it includes are part of it, as they may change while the appointments do not.
+     */
+    EntityTag tag(long appointmentsVersion) {
+        return EntityTags.of(appointmentsVersion, patient ? patientDAO.getPatientsVersion() : 0, doctor ? doctorDAO.getDoctorsVersion() : 0);
+    }
+
+    /**
+     * Gives what to serialize for the appointment: the appointment itself, or it with the expanded fields.
+     */
+    Object apply(Appointment appointment) {
+        return patient || doctor ? new ExpandedAppointment(appointment, this) : appointment;
+    }
+
+    Page<Object> apply(Page<Appointment> page) {
+        return page.map(this::apply);
+    }
+
+    /**
+     * Builds the HTTP response for the appointment expanded this way; unexpanded, it is sent as the JSON kept by its store.
+     */
+    Response ok(Appointment appointment) {
+        return Response.ok(patient || doctor ? apply(appointment) : appointmentDAO.getAppointmentJson(appointment)).build();
+    }
+
+    /**
+     * Builds the HTTP response for a page of appointments expanded this way; unexpanded, they are sent as the JSON kept by their store.
+     */
+    Response ok(Page<Appointment> page, int limit, UriInfo uriInfo) {
+        return patient || doctor ? Pagination.ok(apply(page), limit, uriInfo) : Pagination.ok(page, limit, uriInfo, appointmentDAO::getAppointmentsJson);
+    }
+
+    /**
+     * Wraps the appointments of an iteration one by one, as they are read.
+     */
+    Iterable<Object> apply(Iterable<Appointment> appointments) {
+        return () -> {
+            Iterator<Appointment> iterator = appointments.iterator();
+            return new Iterator<Object>() {
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    return apply(iterator.next());
+                }
+            };
+        };
+    }
+
+    /**
+     * An appointment written with its patient and doctor, looked up when the getters are called by the serializer.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ExpandedAppointment {
+        // Attributes of this class
+        private final Appointment appointment;
+        private final AppointmentExpansion expansion;
+
+        ExpandedAppointment(Appointment appointment, AppointmentExpansion expansion) {
+            this.appointment = appointment;
+            this.expansion = expansion;
+        }
+
+        @JsonUnwrapped
+        public Appointment getAppointment() {
+            return appointment;
+        }
+
+        public Patient getPatient() {
+            return expansion.patient ? patientDAO.getPatientById(appointment.getPatientId()) : null;
+        }
+
+        public Doctor getDoctor() {
+            return expansion.doctor ? doctorDAO.getDoctorById(appointment.getDoctorId()) : null;
+        }
+    }
+}
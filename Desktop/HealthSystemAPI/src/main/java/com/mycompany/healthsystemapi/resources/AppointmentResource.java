@@ -2,15 +2,25 @@ package com.mycompany.healthsystemapi.resources;
 
 // Import required classes and libraries 
 import com.mycompany.healthsystemapi.dao.AppointmentDAO;
+import com.mycompany.healthsystemapi.dao.BookingEngine;
 import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.DateTimes;
+import com.mycompany.healthsystemapi.exception.AppointmentConflictException;
 import com.mycompany.healthsystemapi.exception.ResourceNotFoundException;
 
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotAllowedException;
 
@@ -23,42 +33,91 @@ import javax.ws.rs.NotAllowedException;
 @Path("/appointments")
 public class AppointmentResource {
 
+    // Largest number of appointments accepted by one bulk request
+    static final int MAX_BULK_SIZE = 10000;
+
     private AppointmentDAO appointmentDAO = new AppointmentDAO();
     private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentResource.class);
 
     /**
-     * Retrieves all appointments by returning a list.
+     * Retrieves all appointments, one page at a time.
+     * It returns up to limit appointments after the given cursor, with the cursor of the next page in the response headers.
+     * With ?from=, ?to= or ?doctorId= it returns the appointments starting in that window, for that doctor, ordered by start time.
+     * With ?stream=true it streams all of them instead of a page, and with ?expand=patient,doctor each appointment includes its patient and doctor.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Appointment> getAllAppointments() {
+    public void getAllAppointments(@QueryParam("from") String from, @QueryParam("to") String to, @QueryParam("doctorId") Integer doctorId,
+            @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @QueryParam("expand") String expand, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all appointments");
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                AppointmentExpansion expansion = AppointmentExpansion.parse(expand);
+                boolean windowed = from != null || to != null || doctorId != null;
+                int fromMinute = from == null ? Integer.MIN_VALUE : epochMinute("from", from, false);
+                int toMinute = to == null ? Integer.MAX_VALUE : epochMinute("to", to, true);
+                int pageSize = Pagination.limit(limit);
+                // Windowed pages are read from the time index, whose cursors hold a position rather than an ID
+                Long afterPosition = windowed ? Pagination.afterPosition(after) : null;
+                Integer afterId = windowed ? null : Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, expansion.tag(appointmentDAO.getAppointmentsVersion()), () -> {
+                    if (windowed) {
+                        if (stream) {
+                            return JsonStreaming.ok(expansion.apply(appointmentDAO.scanAppointmentsBetween(fromMinute, toMinute, doctorId)));
+                        }
+                        return expansion.ok(appointmentDAO.getAppointmentsBetween(fromMinute, toMinute, doctorId, afterPosition, pageSize), pageSize, uriInfo);
+                    }
+                    if (stream) {
+                        return JsonStreaming.ok(expansion.apply(appointmentDAO.scanAllAppointments()));
+                    }
+                    return expansion.ok(appointmentDAO.getAllAppointments(afterId, pageSize), pageSize, uriInfo);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all appointments", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Parses a date or date and time query parameter into epoch minutes.
+     * A date alone stands for the whole day, so it gives its last minute when it ends the window.
+     * It throws BadRequestException if the value cannot be parsed.
+     */
+    private static int epochMinute(String name, String value, boolean endOfDay) {
         try {
-            return appointmentDAO.getAllAppointments();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all appointments", e);
-            throw new InternalServerErrorException("Internal server error occurred");
+            return DateTimes.toEpochMinute(value, endOfDay);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " must be a date like 2024-04-23 or a date and time like 2024-04-23T09:30");
         }
     }
 
     /**
      * Retrieves an appointment by its ID.
      * It returns the appointment with the specified ID, and throws ResourceNotFoundException if the appointment with the given ID is not found.
+     * With ?expand=patient,doctor the appointment includes its patient and doctor.
      */
     @GET
     @Path("/{appointmentId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Appointment getAppointmentById(@PathParam("appointmentId") int appointmentId) {
+    public Response getAppointmentById(@PathParam("appointmentId") int appointmentId, @QueryParam("expand") String expand, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting appointment by ID: {}", appointmentId);
         try {
-            Appointment appointment = appointmentDAO.getAppointmentById(appointmentId);
-            if (appointment == null) {
-                LOGGER.warn("Appointment with ID {} not found", appointmentId);
-                throw new ResourceNotFoundException("Appointment with ID " + appointmentId + " not found");
-            }
-            return appointment;
+            AppointmentExpansion expansion = AppointmentExpansion.parse(expand);
+            return EntityTags.conditional(request, uriInfo, expansion.tag(appointmentDAO.getAppointmentVersion(appointmentId)), () -> {
+                Appointment appointment = appointmentDAO.getAppointmentById(appointmentId);
+                if (appointment == null) {
+                    LOGGER.warn("Appointment with ID {} not found", appointmentId);
+                    throw new ResourceNotFoundException("Appointment with ID " + appointmentId + " not found");
+                }
+                return expansion.ok(appointment);
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
+        } catch (BadRequestException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Error occurred while getting appointment with ID " + appointmentId, e);
             throw new InternalServerErrorException("Internal server error occurred");
@@ -67,36 +126,82 @@ public class AppointmentResource {
     
     /**
      * Retrieves appointments associated with a specific doctor.
-     * It returns a list of appointments associated with the specified doctor.
+     * It returns one page of the appointments associated with the specified doctor, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page, and with ?expand=patient,doctor each appointment includes its patient and doctor.
      */
     @GET
     @Path("/doctor/{doctorId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Appointment> getAppointmentsByDoctorId(@PathParam("doctorId") int doctorId) {
+    public void getAppointmentsByDoctorId(@PathParam("doctorId") int doctorId, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @QueryParam("expand") String expand, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting appointments by doctor ID: {}", doctorId);
-        try {
-            return appointmentDAO.getAppointmentsByDoctorId(doctorId);
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting appointments for doctor with ID " + doctorId, e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                AppointmentExpansion expansion = AppointmentExpansion.parse(expand);
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, expansion.tag(appointmentDAO.getAppointmentsByDoctorVersion(doctorId)), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(expansion.apply(appointmentDAO.scanAppointmentsByDoctorId(doctorId)));
+                    }
+                    return expansion.ok(appointmentDAO.getAppointmentsByDoctorId(doctorId, afterId, pageSize), pageSize, uriInfo);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting appointments for doctor with ID " + doctorId, e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Retrieves appointments associated with a specific patient.
+     * It returns one page of the appointments associated with the specified patient, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page, and with ?expand=patient,doctor each appointment includes its patient and doctor.
+     */
+    @GET
+    @Path("/patient/{patientId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getAppointmentsByPatientId(@PathParam("patientId") int patientId, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @QueryParam("expand") String expand, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Getting appointments by patient ID: {}", patientId);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                AppointmentExpansion expansion = AppointmentExpansion.parse(expand);
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, expansion.tag(appointmentDAO.getAppointmentsByPatientVersion(patientId)), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(expansion.apply(appointmentDAO.scanAppointmentsByPatientId(patientId)));
+                    }
+                    return expansion.ok(appointmentDAO.getAppointmentsByPatientId(patientId, afterId, pageSize), pageSize, uriInfo);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting appointments for patient with ID " + patientId, e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
      * Adds a new appointment.
-     * It returns the HTTP response indicating success or failure of the operation.
+     * It returns the HTTP response indicating success or failure of the operation, with 409 if the doctor is already booked at that time.
      */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     public Response addAppointment(Appointment appointment) {
         LOGGER.info("Adding new appointment: {}", appointment);
         try {
+            validateTiming(appointment);
             appointmentDAO.addAppointment(appointment);
             return Response.status(Response.Status.CREATED)
                     .entity("Appointment added.")
                     .build();
         } catch (BadRequestException e) {
             throw e;
+        } catch (AppointmentConflictException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Error occurred while adding new appointment", e);
             throw new InternalServerErrorException("Internal server error occurred");
@@ -106,6 +211,7 @@ public class AppointmentResource {
     /**
      * Updates an existing appointment.
      * It returns the HTTP response indicating success or failure of the operation, and throws a ResourceNotFoundException if the appointment with the given ID is not found.
+     * It answers 409 if the doctor is already booked at the new time.
      */
     @PUT
     @Path("/{appointmentId}")
@@ -118,6 +224,7 @@ public class AppointmentResource {
                 LOGGER.warn("Appointment with ID {} not found", appointmentId);
                 throw new ResourceNotFoundException("Appointment with ID " + appointmentId + " not found");
             }
+            validateTiming(updatedAppointment);
             updatedAppointment.setId(appointmentId);
             appointmentDAO.updateAppointment(updatedAppointment);
             return Response.status(Response.Status.CREATED)
@@ -127,12 +234,58 @@ public class AppointmentResource {
             throw e;
         } catch (ResourceNotFoundException e) {
             throw e;
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (AppointmentConflictException e) {
+            throw e;
         } catch (Exception e) {
             LOGGER.error("Error occurred while updating appointment with ID " + appointmentId, e);
             throw new InternalServerErrorException("Internal server error occurred");
         }
     }
 
+    /**
+     * Adds many appointments in one request, such as a week of schedules.
+     * It returns the outcome of each appointment, in the order given: CREATED with its new ID,
+     * or CONFLICT or INVALID with the reason it was not added.
+     */
+    @POST
+    @Path("/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void addAppointments(List<Appointment> appointments, @Suspended AsyncResponse asyncResponse) {
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.BULK, () -> {
+            try {
+                if (appointments == null || appointments.isEmpty()) {
+                    throw new BadRequestException("The request must contain a list of appointments");
+                }
+                if (appointments.size() > MAX_BULK_SIZE) {
+                    throw new BadRequestException("At most " + MAX_BULK_SIZE + " appointments can be added at once");
+                }
+                LOGGER.info("Adding {} appointments in bulk", appointments.size());
+                return Response.ok(appointmentDAO.addAppointments(appointments)).build();
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while adding appointments in bulk", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Checks that the date and time of the appointment can be parsed, so that it can be found by time,
+     * and that its duration is valid. It throws BadRequestException otherwise.
+     */
+    private static void validateTiming(Appointment appointment) {
+        if (appointment.getDateTime() == null || appointment.getStartMinute() == null) {
+            throw new BadRequestException(BookingEngine.INVALID_DATE_TIME);
+        }
+        if (!appointment.isDurationValid()) {
+            throw new BadRequestException(BookingEngine.INVALID_DURATION);
+        }
+    }
+
     /**
      * Deletes an appointment by its ID.
      * It returns the HTTP response indicating success or failure of the operation.
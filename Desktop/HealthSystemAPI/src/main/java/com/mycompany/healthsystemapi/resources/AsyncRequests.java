@@ -0,0 +1,125 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor of the slow endpoints (pages, searches, reports and bulk writes), which suspend their request
+ * and are answered from here, so that they do not hold the container's request threads while they run.
+ * The work runs on a fixed pool of worker threads. The pool stands in for virtual threads on purpose: the project
+ * targets Java 8, where they do not exist, and the journal appends the writes make are synchronized, so on Java 21
+ * they would pin their carrier threads and run no more at once than this pool does.
+ *
+ * Only so many requests are admitted at once, running or waiting; any more are answered 503 Service Unavailable
+ * at once, rather than queueing up behind the others. Each endpoint has a deadline, after which its request is answered
+ * 503 as well, and work still waiting by then is dropped without running.
+ *
+ * healthsystem.async.maxPending - requests admitted at once, running or waiting (default: 1024)
+ * healthsystem.async.threads - worker threads (default: 4 per processor)
+ * healthsystem.async.listTimeoutMillis, healthsystem.async.reportTimeoutMillis, healthsystem.async.bulkTimeoutMillis -
+ *     deadlines of the endpoints of each kind (default: 5000, 10000 and 30000)
+ *
+ * @author rachelcooray
+ */
+final class AsyncRequests {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRequests.class);
+
+    static final AsyncRequests SHARED = new AsyncRequests(Integer.getInteger("healthsystem.async.maxPending", 1024),
+            Integer.getInteger("healthsystem.async.threads", 4 * Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The kinds of endpoints, each with its own deadline.
+     */
+    enum Deadline {
+        LIST("list", 5000), REPORT("report", 10000), BULK("bulk", 30000);
+
+        // Attributes of this enum
+        private final long millis;
+
+        Deadline(String name, long defaultMillis) {
+            this.millis = Long.getLong("healthsystem.async." + name + "TimeoutMillis", defaultMillis);
+        }
+
+        long millis() {
+            return millis;
+        }
+    }
+
+    // Attributes of this class
+    private final ExecutorService executor;
+    private final Semaphore pending;
+
+    AsyncRequests(int maxPending, int threads) {
+        this.pending = new Semaphore(Math.max(1, maxPending));
+        this.executor = workerPool(Math.max(1, threads));
+    }
+
+    private static ExecutorService workerPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "healthsystem-async-" + count.incrementAndGet());
+            // Idle workers time out, and never keep the JVM or an undeployed application alive
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        LOGGER.info("Running slow endpoints on {} worker threads", threads);
+        return pool;
+    }
+
+    /**
+     * Answers the suspended request with the response built by work on the executor, or with 503 Service Unavailable
+     * if too many requests are pending or the response is not ready by the deadline.
+     * Exceptions thrown by work are passed to the request, to be mapped like those of a synchronous method.
+     */
+    void submit(AsyncResponse response, Deadline deadline, Supplier<Response> work) {
+        if (!pending.tryAcquire()) {
+            LOGGER.warn("Too many pending requests, rejecting one");
+            response.resume(unavailable("Server busy, try again later"));
+            return;
+        }
+        response.setTimeoutHandler(timedOut -> timedOut.resume(unavailable("Request timed out")));
+        response.setTimeout(deadline.millis(), TimeUnit.MILLISECONDS);
+        try {
+            executor.execute(() -> {
+                try {
+                    // Skips the work if the request timed out while it waited
+                    if (!response.isDone()) {
+                        response.resume(work.get());
+                    }
+                } catch (Throwable e) {
+                    response.resume(e);
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.release();
+            response.resume(unavailable("Server busy, try again later"));
+        }
+    }
+
+    private static Response unavailable(String message) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 1)
+                .entity(message)
+                .type(MediaType.TEXT_PLAIN)
+                .build();
+    }
+}
@@ -2,15 +2,24 @@ package com.mycompany.healthsystemapi.resources;
 
 // Import required classes and libraries 
 import com.mycompany.healthsystemapi.dao.BillingDAO;
+import com.mycompany.healthsystemapi.dao.RevenueRollups;
 import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.DateTimes;
 import com.mycompany.healthsystemapi.exception.ResourceNotFoundException;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotAllowedException;
 
@@ -28,18 +37,31 @@ public class BillingResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(BillingResource.class);
 
     /**
-     * Retrieves all billings by returning a list.
+     * Retrieves all billings, one page at a time.
+     * It returns up to limit billings after the given cursor, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Billing> getAllBillings() {
+    public void getAllBillings(@QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all billings");
-        try {
-            return billingDAO.getAllBillings();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all billings", e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingsVersion()), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(billingDAO.scanAllBillings());
+                    }
+                    return Pagination.ok(billingDAO.getAllBillings(afterId, pageSize), pageSize, uriInfo, billingDAO::getBillingsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all billings", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
@@ -49,15 +71,17 @@ public class BillingResource {
     @GET
     @Path("/{billingId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Billing getBillingById(@PathParam("billingId") int billingId) {
+    public Response getBillingById(@PathParam("billingId") int billingId, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting billing by ID: {}", billingId);
         try {
-            Billing billing = billingDAO.getBillingById(billingId);
-            if (billing == null) {
-                LOGGER.warn("Billing with ID {} not found", billingId);
-                throw new ResourceNotFoundException("Billing with ID " + billingId + " not found");
-            }
-            return billing;
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingVersion(billingId)), () -> {
+                Billing billing = billingDAO.getBillingById(billingId);
+                if (billing == null) {
+                    LOGGER.warn("Billing with ID {} not found", billingId);
+                    throw new ResourceNotFoundException("Billing with ID " + billingId + " not found");
+                }
+                return Response.ok(billingDAO.getBillingJson(billing)).build();
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -66,6 +90,158 @@ public class BillingResource {
         }
     }
 
+    /**
+     * Retrieves billings associated with a specific patient.
+     * It returns one page of the billings associated with the specified patient, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page.
+     */
+    @GET
+    @Path("/patient/{patientId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getBillingsByPatientId(@PathParam("patientId") int patientId, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Getting billings by patient ID: {}", patientId);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingsByPatientVersion(patientId)), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(billingDAO.scanBillingsByPatientId(patientId));
+                    }
+                    return Pagination.ok(billingDAO.getBillingsByPatientId(patientId, afterId, pageSize), pageSize, uriInfo, billingDAO::getBillingsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting billings for patient with ID " + patientId, e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Retrieves the billing totals of a specific patient.
+     * It returns the number of invoices, the total invoiced and the total outstanding, all zero if the patient has no billings.
+     */
+    @GET
+    @Path("/patient/{patientId}/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getBillingSummary(@PathParam("patientId") int patientId, @Context UriInfo uriInfo, @Context Request request) {
+        LOGGER.info("Getting billing summary for patient ID: {}", patientId);
+        try {
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingsByPatientVersion(patientId)), () -> Response.ok(billingDAO.getBillingSummary(patientId)).build());
+        } catch (Exception e) {
+            LOGGER.error("Error occurred while getting billing summary for patient with ID " + patientId, e);
+            throw new InternalServerErrorException("Internal server error occurred");
+        }
+    }
+
+    /**
+     * Retrieves the billing totals of the patients with the largest outstanding balance.
+     * It returns up to n of them (10 by default), largest balance first.
+     */
+    @GET
+    @Path("/outstanding/top")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getTopOutstanding(@QueryParam("n") Integer n, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Getting top {} outstanding balances", n);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.REPORT, () -> {
+            try {
+                if (n != null && n < 1) {
+                    throw new BadRequestException("n must be a positive number");
+                }
+                int count = n == null ? 10 : Math.min(n, Pagination.MAX_LIMIT);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingsVersion()),
+                        () -> Response.ok(billingDAO.getTopOutstanding(count)).build());
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting top outstanding balances", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Retrieves the billings with an outstanding balance that were invoiced before ?before= (a date, today by default).
+     * It returns one page of them in ID order, with the cursor of the next page in the response headers.
+     */
+    @GET
+    @Path("/outstanding")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getOutstandingBillings(@QueryParam("before") String before, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Getting outstanding billings invoiced before {}", before);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int beforeDay = before == null ? (int) LocalDate.now().toEpochDay() : epochDay("before", before);
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                // The day is part of the tag, as the billings outstanding before today change with the date
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingsVersion(), beforeDay),
+                        () -> Pagination.ok(billingDAO.getOutstandingBillings(beforeDay, afterId, pageSize), pageSize, uriInfo, billingDAO::getBillingsJson));
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting outstanding billings", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Retrieves the revenue report for a range of dates.
+     * It returns, for each period with billings from ?from= to ?to= (dates, both included, open-ended if missing),
+     * the invoices issued and the amount invoiced, by invoice date, and the payments and the amount collected, by payment date.
+     * ?groupBy= sets the periods: day (the default), month, year or total.
+     */
+    @GET
+    @Path("/revenue")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getRevenue(@QueryParam("from") String from, @QueryParam("to") String to, @QueryParam("groupBy") String groupBy, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Getting revenue from {} to {} by {}", from, to, groupBy);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.REPORT, () -> {
+            try {
+                int fromDay = from == null ? Integer.MIN_VALUE : epochDay("from", from);
+                int toDay = to == null ? Integer.MAX_VALUE : epochDay("to", to);
+                RevenueRollups.Period period = period(groupBy);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(billingDAO.getBillingsVersion()),
+                        () -> Response.ok(billingDAO.getRevenue(fromDay, toDay, period)).build());
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting revenue", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Parses a date query parameter into epoch days.
+     * It throws BadRequestException if the value cannot be parsed.
+     */
+    private static int epochDay(String name, String value) {
+        try {
+            return DateTimes.toEpochDay(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException(name + " must be a date like 2024-04-23");
+        }
+    }
+
+    /**
+     * Parses the groupBy query parameter, which defaults to day.
+     * It throws BadRequestException if it is not day, month, year or total.
+     */
+    private static RevenueRollups.Period period(String groupBy) {
+        if (groupBy == null) {
+            return RevenueRollups.Period.DAY;
+        }
+        try {
+            return RevenueRollups.Period.valueOf(groupBy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("groupBy must be day, month, year or total");
+        }
+    }
+
     /**
      * Adds a new billing.
      * It returns the HTTP response indicating success or failure of the operation.
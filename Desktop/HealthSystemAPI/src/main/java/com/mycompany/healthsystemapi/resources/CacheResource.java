@@ -0,0 +1,37 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.CacheStats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import javax.ws.rs.*;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Resource class for monitoring the response cache of the read endpoints.
+ *
+ * @author rachelcooray
+ */
+@Path("/cache")
+public class CacheResource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheResource.class);
+
+    /**
+     * Retrieves the counters of the response cache.
+     * It returns the hits, misses, evictions, invalidations and rejections since startup, and the entries and bytes it holds.
+     */
+    @GET
+    @Path("/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CacheStats getCacheStats() {
+        LOGGER.info("Getting response cache stats");
+        try {
+            return ResponseCache.SHARED.stats();
+        } catch (Exception e) {
+            LOGGER.error("Error occurred while getting response cache stats", e);
+            throw new InternalServerErrorException("Internal server error occurred");
+        }
+    }
+}
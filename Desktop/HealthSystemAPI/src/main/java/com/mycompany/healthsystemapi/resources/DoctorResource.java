@@ -10,9 +10,13 @@ import org.slf4j.LoggerFactory;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotAllowedException;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 /**
  * Resource class for managing doctors in the health system.
@@ -27,18 +31,46 @@ public class DoctorResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(DoctorResource.class);
 
     /**
-     * Retrieves all doctors by returning a list.
+     * Retrieves all doctors, one page at a time.
+     * It returns up to limit doctors after the given cursor, with the cursor of the next page in the response headers.
+     * With ?specialization= it returns only the doctors with that specialization, ignoring case.
+     * With ?q= it returns only the doctors with, for every word of q, a word of their name or contact info starting with it,
+     * for typeahead lookups: the first ones by ID, not ranked. It takes precedence over ?specialization=.
+     * With ?stream=true it streams all the doctors selected instead of a page.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Doctor> getAllDoctors() {
+    public void getAllDoctors(@QueryParam("q") String query, @QueryParam("specialization") String specialization, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all doctors");
-        try {
-            return doctorDAO.getAllDoctors();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all doctors", e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(doctorDAO.getDoctorsVersion()), () -> {
+                    if (query != null) {
+                        if (stream) {
+                            return JsonStreaming.ok(doctorDAO.scanDoctorsMatching(query));
+                        }
+                        return Pagination.ok(doctorDAO.searchDoctors(query, afterId, pageSize), pageSize, uriInfo, doctorDAO::getDoctorsJson);
+                    }
+                    if (specialization != null) {
+                        if (stream) {
+                            return JsonStreaming.ok(doctorDAO.scanDoctorsBySpecialization(specialization));
+                        }
+                        return Pagination.ok(doctorDAO.getDoctorsBySpecialization(specialization, afterId, pageSize), pageSize, uriInfo, doctorDAO::getDoctorsJson);
+                    }
+                    if (stream) {
+                        return JsonStreaming.ok(doctorDAO.scanAllDoctors());
+                    }
+                    return Pagination.ok(doctorDAO.getAllDoctors(afterId, pageSize), pageSize, uriInfo, doctorDAO::getDoctorsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all doctors", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
@@ -48,15 +80,17 @@ public class DoctorResource {
     @GET
     @Path("/{doctorId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Doctor getDoctorById(@PathParam("doctorId") int doctorId) {
+    public Response getDoctorById(@PathParam("doctorId") int doctorId, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting doctor by ID: {}", doctorId);
         try {
-            Doctor doctor = doctorDAO.getDoctorById(doctorId);
-            if (doctor == null) {
-                LOGGER.warn("Doctor with ID {} not found", doctorId);
-                throw new ResourceNotFoundException("Doctor with ID " + doctorId + " not found");
-            }
-            return doctor;
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(doctorDAO.getDoctorVersion(doctorId)), () -> {
+                Doctor doctor = doctorDAO.getDoctorById(doctorId);
+                if (doctor == null) {
+                    LOGGER.warn("Doctor with ID {} not found", doctorId);
+                    throw new ResourceNotFoundException("Doctor with ID " + doctorId + " not found");
+                }
+                return Response.ok(doctorDAO.getDoctorJson(doctor)).build();
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
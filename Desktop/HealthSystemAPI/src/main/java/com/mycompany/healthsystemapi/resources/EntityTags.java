@@ -0,0 +1,54 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import java.util.function.Supplier;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Helper for the conditional GETs of the read endpoints.
+ * Each response carries an ETag built from the versions kept by the stores for what it was read from,
+ * and a request whose If-None-Match holds that tag is answered 304 Not Modified without reading or serializing anything.
+ * The versions must be read before the data, as a version is only bumped once its write is readable.
+ * Tags are weak, so they still hold when the body is sent compressed.
+ * Other requests are answered from the response cache while the tag the cached body was built under still holds.
+ *
+ * @author rachelcooray
+ */
+final class EntityTags {
+    // Versions restart from zero with the application, so tags carry the time it started to tell them from earlier ones
+    private static final String RUN = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private EntityTags() {
+    }
+
+    /**
+     * Builds the tag of a response read from data with the specified versions.
+     */
+    static EntityTag of(long... versions) {
+        StringBuilder tag = new StringBuilder(RUN);
+        for (long version : versions) {
+            tag.append('-').append(Long.toString(version, Character.MAX_RADIX));
+        }
+        return new EntityTag(tag.toString(), true);
+    }
+
+    /**
+     * Answers 304 Not Modified if the request already holds the specified tag (or 412 if it fails an If-Match),
+     * and otherwise gives the response from the cache, or builds it, and tags it.
+     * Streamed responses (?stream=true) are never cached, as their size has no bound.
+     * The response is only built when the preconditions fail, so the parameters of the request must be checked before,
+     * for an invalid request to be answered 400 rather than 304.
+     */
+    static Response conditional(Request request, UriInfo uriInfo, EntityTag tag, Supplier<Response> response) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        Response built = "true".equals(uriInfo.getQueryParameters().getFirst("stream"))
+                ? response.get() : ResponseCache.SHARED.get(uriInfo.getRequestUri().toString(), tag, response);
+        return Response.fromResponse(built).tag(tag).build();
+    }
+}
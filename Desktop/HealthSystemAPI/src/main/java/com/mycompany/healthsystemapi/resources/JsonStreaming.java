@@ -0,0 +1,48 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Helper for the streaming mode of the collection endpoints (?stream=true).
+ * Entities are written to the response one by one as a JSON array with a Jackson generator,
+ * so memory use does not grow with the number of entities and the first bytes leave before the last entity is read.
+ *
+ * @author rachelcooray
+ */
+final class JsonStreaming {
+    // Number of entities written between two flushes of the response
+    static final int FLUSH_EVERY = 256;
+
+    private static final ObjectWriter WRITER = ObjectMapperProvider.MAPPER.writer();
+
+    private JsonStreaming() {
+    }
+
+    /**
+     * Builds the HTTP response streaming the specified entities as a JSON array.
+     */
+    static Response ok(Iterable<?> entities) {
+        StreamingOutput body = output -> {
+            JsonGenerator generator = ObjectMapperProvider.MAPPER.getFactory().createGenerator(output);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            int written = 0;
+            for (Object entity : entities) {
+                WRITER.writeValue(generator, entity);
+                if (++written % FLUSH_EVERY == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+            generator.close();
+        };
+        return Response.ok(body, MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -4,13 +4,18 @@ package com.mycompany.healthsystemapi.resources;
 import com.mycompany.healthsystemapi.dao.MedicalRecordDAO;
 import com.mycompany.healthsystemapi.model.MedicalRecord;
 import com.mycompany.healthsystemapi.exception.ResourceNotFoundException;
+import com.mycompany.healthsystemapi.store.TextIndex;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotAllowedException;
 
@@ -27,18 +32,59 @@ public class MedicalRecordResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(MedicalRecordResource.class);
 
     /**
-     * Retrieves all medical records by returning a list.
+     * Retrieves all medical records, one page at a time.
+     * It returns up to limit medical records after the given cursor, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<MedicalRecord> getAllMedicalRecords() {
+    public void getAllMedicalRecords(@QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all medical records");
-        try {
-            return medicalRecordDAO.getAllMedicalRecords();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all medical records", e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(medicalRecordDAO.getMedicalRecordsVersion()), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(medicalRecordDAO.scanAllMedicalRecords());
+                    }
+                    return Pagination.ok(medicalRecordDAO.getAllMedicalRecords(afterId, pageSize), pageSize, uriInfo, medicalRecordDAO::getMedicalRecordsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all medical records", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
+    /**
+     * Searches the free text of the medical records (details, diagnosis, treatment and other data).
+     * It returns one page of the records containing every word of ?q=, best match first, optionally only those of ?patientId=,
+     * with the cursor of the next page in the response headers.
+     */
+    @GET
+    @Path("/search")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void searchMedicalRecords(@QueryParam("q") String query, @QueryParam("patientId") Integer patientId, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Searching medical records for: {}", query);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                if (query == null || query.trim().isEmpty()) {
+                    throw new BadRequestException("q must not be empty");
+                }
+                int pageSize = Pagination.limit(limit);
+                TextIndex.Cursor afterSearch = Pagination.afterSearch(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(medicalRecordDAO.getMedicalRecordsVersion()),
+                        () -> Pagination.ok(medicalRecordDAO.searchMedicalRecords(query, patientId, afterSearch, pageSize), pageSize, uriInfo, medicalRecordDAO::getMedicalRecordsJson));
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while searching medical records", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
@@ -48,15 +94,17 @@ public class MedicalRecordResource {
     @GET
     @Path("/{medicalRecordId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public MedicalRecord getMedicalRecordById(@PathParam("medicalRecordId") int medicalRecordId) {
+    public Response getMedicalRecordById(@PathParam("medicalRecordId") int medicalRecordId, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting medical record by ID: {}", medicalRecordId);
         try {
-            MedicalRecord medicalRecord = medicalRecordDAO.getMedicalRecordById(medicalRecordId);
-            if (medicalRecord == null) {
-                LOGGER.warn("Medical record with ID {} not found", medicalRecordId);
-                throw new ResourceNotFoundException("Medical record with ID " + medicalRecordId + " not found");
-            }
-            return medicalRecord;
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(medicalRecordDAO.getMedicalRecordVersion(medicalRecordId)), () -> {
+                MedicalRecord medicalRecord = medicalRecordDAO.getMedicalRecordById(medicalRecordId);
+                if (medicalRecord == null) {
+                    LOGGER.warn("Medical record with ID {} not found", medicalRecordId);
+                    throw new ResourceNotFoundException("Medical record with ID " + medicalRecordId + " not found");
+                }
+                return Response.ok(medicalRecordDAO.getMedicalRecordJson(medicalRecord)).build();
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -67,19 +115,31 @@ public class MedicalRecordResource {
     
     /**
      * Retrieves medical records associated with a specific patient.
-     * It returns a list of medical records associated with the specified patient.
+     * It returns one page of the medical records associated with the specified patient, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page.
      */
     @GET
     @Path("/patient/{patientId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<MedicalRecord> getMedicalRecordsByPatientId(@PathParam("patientId") int patientId) {
+    public void getMedicalRecordsByPatientId(@PathParam("patientId") int patientId, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting medical records by patient ID: {}", patientId);
-        try {
-            return medicalRecordDAO.getMedicalRecordsByPatientId(patientId);
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting medical records for patient with ID " + patientId, e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(medicalRecordDAO.getMedicalRecordsByPatientVersion(patientId)), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(medicalRecordDAO.scanMedicalRecordsByPatientId(patientId));
+                    }
+                    return Pagination.ok(medicalRecordDAO.getMedicalRecordsByPatientId(patientId, afterId, pageSize), pageSize, uriInfo, medicalRecordDAO::getMedicalRecordsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting medical records for patient with ID " + patientId, e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
@@ -0,0 +1,160 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.TextIndex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Helper for the cursor-based pagination shared by the collection endpoints.
+ * Clients pass ?limit= and ?after=, where after is the opaque cursor returned with the previous page.
+ * The cursor of the next page is returned in the X-Next-Cursor header and as a Link header with rel="next".
+ * Pages ordered by ID use cursors holding an ID; pages read from a range index use cursors holding a position,
+ * and pages of search results use cursors holding the position and the statistics the results were scored with.
+ *
+ * @author rachelcooray
+ */
+final class Pagination {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String CURSOR_PREFIX = "id:";
+    private static final String POSITION_CURSOR_PREFIX = "at:";
+    private static final String SEARCH_CURSOR_PREFIX = "q:";
+
+    private Pagination() {
+    }
+
+    /**
+     * Gives the page size to use for the requested limit, capped at MAX_LIMIT.
+     * It throws BadRequestException if the limit is not positive.
+     */
+    static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (requested < 1) {
+            throw new BadRequestException("limit must be a positive number");
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+
+    /**
+     * Decodes the ID encoded in a cursor, or returns null if no cursor was given.
+     * It throws BadRequestException if the cursor is malformed.
+     */
+    static Integer afterId(String cursor) {
+        Long decoded = decode(cursor, CURSOR_PREFIX);
+        if (decoded != null && (decoded < Integer.MIN_VALUE || decoded > Integer.MAX_VALUE)) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+        return decoded == null ? null : decoded.intValue();
+    }
+
+    /**
+     * Decodes the range index position encoded in a cursor, or returns null if no cursor was given.
+     * It throws BadRequestException if the cursor is malformed.
+     */
+    static Long afterPosition(String cursor) {
+        return decode(cursor, POSITION_CURSOR_PREFIX);
+    }
+
+    /**
+     * Decodes the search cursor encoded in a cursor, or returns null if no cursor was given.
+     * It throws BadRequestException if the cursor is malformed.
+     */
+    static TextIndex.Cursor afterSearch(String cursor) {
+        String decoded = decode(cursor, SEARCH_CURSOR_PREFIX, Function.identity());
+        try {
+            return decoded == null ? null : TextIndex.Cursor.parse(decoded);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static Long decode(String cursor, String prefix) {
+        return decode(cursor, prefix, Long::valueOf);
+    }
+
+    private static <R> R decode(String cursor, String prefix, Function<String, R> parse) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(prefix)) {
+                return parse.apply(decoded.substring(prefix.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below; NumberFormatException is an IllegalArgumentException
+        }
+        throw new BadRequestException("Invalid cursor: " + cursor);
+    }
+
+    /**
+     * Encodes an ID as an opaque cursor.
+     */
+    static String cursor(int afterId) {
+        return encode(CURSOR_PREFIX + afterId);
+    }
+
+    /**
+     * Encodes a range index position as an opaque cursor.
+     */
+    static String positionCursor(long afterPosition) {
+        return encode(POSITION_CURSOR_PREFIX + afterPosition);
+    }
+
+    /**
+     * Encodes a search cursor as an opaque cursor.
+     */
+    static String searchCursor(TextIndex.Cursor after) {
+        return encode(SEARCH_CURSOR_PREFIX + after);
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the HTTP response for a page, with the entities as the body and the next-page cursor in the headers.
+     */
+    static Response ok(Page<?> page, int limit, UriInfo uriInfo) {
+        return withNext(Response.ok(page.getItems()), page, limit, uriInfo);
+    }
+
+    /**
+     * Builds the HTTP response for a page, with the JSON array given by json for the entities as the body
+     * and the next-page cursor in the headers.
+     */
+    static <T> Response ok(Page<T> page, int limit, UriInfo uriInfo, Function<List<T>, byte[]> json) {
+        return withNext(Response.ok(json.apply(page.getItems())), page, limit, uriInfo);
+    }
+
+    private static Response withNext(Response.ResponseBuilder response, Page<?> page, int limit, UriInfo uriInfo) {
+        if (page.hasNext()) {
+            String next;
+            if (page.getNextSearchCursor() != null) {
+                next = searchCursor(page.getNextSearchCursor());
+            } else if (page.getNextAfterPosition() != null) {
+                next = positionCursor(page.getNextAfterPosition());
+            } else {
+                next = cursor(page.getNextAfterId());
+            }
+            response.header(NEXT_CURSOR_HEADER, next)
+                    .link(uriInfo.getRequestUriBuilder()
+                            .replaceQueryParam("after", next)
+                            .replaceQueryParam("limit", limit)
+                            .build(), "next");
+        }
+        return response.build();
+    }
+}
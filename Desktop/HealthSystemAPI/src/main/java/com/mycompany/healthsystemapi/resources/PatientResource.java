@@ -6,11 +6,15 @@ import com.mycompany.healthsystemapi.model.Patient;
 import com.mycompany.healthsystemapi.exception.ResourceNotFoundException;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotAllowedException;
 
@@ -27,18 +31,39 @@ public class PatientResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(PatientResource.class);
 
     /**
-     * Retrieves all patients by returning a list.
+     * Retrieves all patients, one page at a time.
+     * It returns up to limit patients after the given cursor, with the cursor of the next page in the response headers.
+     * With ?q= it returns only the patients with, for every word of q, a word of their name or contact info starting with it,
+     * for typeahead lookups: the first ones by ID, not ranked.
+     * With ?stream=true it streams all of them, or all the matches of q, instead of a page.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Patient> getAllPatients() {
+    public void getAllPatients(@QueryParam("q") String query, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all patients");
-        try {
-            return patientDAO.getAllPatients();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all patients", e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(patientDAO.getPatientsVersion()), () -> {
+                    if (query != null) {
+                        if (stream) {
+                            return JsonStreaming.ok(patientDAO.scanPatientsMatching(query));
+                        }
+                        return Pagination.ok(patientDAO.searchPatients(query, afterId, pageSize), pageSize, uriInfo, patientDAO::getPatientsJson);
+                    }
+                    if (stream) {
+                        return JsonStreaming.ok(patientDAO.scanAllPatients());
+                    }
+                    return Pagination.ok(patientDAO.getAllPatients(afterId, pageSize), pageSize, uriInfo, patientDAO::getPatientsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all patients", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
@@ -48,15 +73,17 @@ public class PatientResource {
     @GET
     @Path("/{patientId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Patient getPatientById(@PathParam("patientId") int patientId) {
+    public Response getPatientById(@PathParam("patientId") int patientId, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting patient by ID: {}", patientId);
         try {
-            Patient patient = patientDAO.getPatientById(patientId);
-            if (patient == null) {
-                LOGGER.warn("Patient with ID {} not found", patientId);
-                throw new ResourceNotFoundException("Patient with ID " + patientId + " not found");
-            }
-            return patient;
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(patientDAO.getPatientVersion(patientId)), () -> {
+                Patient patient = patientDAO.getPatientById(patientId);
+                if (patient == null) {
+                    LOGGER.warn("Patient with ID {} not found", patientId);
+                    throw new ResourceNotFoundException("Patient with ID " + patientId + " not found");
+                }
+                return Response.ok(patientDAO.getPatientJson(patient)).build();
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -6,9 +6,13 @@ import com.mycompany.healthsystemapi.dao.PersonDAO;
 import com.mycompany.healthsystemapi.exception.ResourceNotFoundException;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.ws.rs.BadRequestException;
@@ -28,18 +32,39 @@ public class PersonResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(PersonResource.class);
 
     /**
-     * Retrieves all persons by returning a list.
+     * Retrieves all persons, one page at a time.
+     * It returns up to limit persons after the given cursor, with the cursor of the next page in the response headers.
+     * With ?q= it returns only the persons with, for every word of q, a word of their name or contact info starting with it,
+     * for typeahead lookups: the first ones by ID, not ranked.
+     * With ?stream=true it streams all of them, or all the matches of q, instead of a page.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Person> getAllPersons() {
+    public void getAllPersons(@QueryParam("q") String query, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all persons");
-        try {
-            return personDAO.getAllPersons();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all persons", e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(personDAO.getPersonsVersion()), () -> {
+                    if (query != null) {
+                        if (stream) {
+                            return JsonStreaming.ok(personDAO.scanPersonsMatching(query));
+                        }
+                        return Pagination.ok(personDAO.searchPersons(query, afterId, pageSize), pageSize, uriInfo, personDAO::getPersonsJson);
+                    }
+                    if (stream) {
+                        return JsonStreaming.ok(personDAO.scanAllPersons());
+                    }
+                    return Pagination.ok(personDAO.getAllPersons(afterId, pageSize), pageSize, uriInfo, personDAO::getPersonsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all persons", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
     
     /**
@@ -49,15 +74,17 @@ public class PersonResource {
     @GET
     @Path("/{personId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Person getPersonById(@PathParam("personId") int personId) {
+    public Response getPersonById(@PathParam("personId") int personId, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting person by ID: {}", personId);
         try {
-            Person person = personDAO.getPersonById(personId);
-            if (person == null) {
-                LOGGER.warn("Person with ID {} not found", personId);
-                throw new ResourceNotFoundException("Person with ID " + personId + " not found");
-            }
-            return person;
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(personDAO.getPersonVersion(personId)), () -> {
+                Person person = personDAO.getPersonById(personId);
+                if (person == null) {
+                    LOGGER.warn("Person with ID {} not found", personId);
+                    throw new ResourceNotFoundException("Person with ID " + personId + " not found");
+                }
+                return Response.ok(personDAO.getPersonJson(person)).build();
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -8,9 +8,13 @@ import com.mycompany.healthsystemapi.exception.ResourceNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.ws.rs.*;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
-import java.util.List;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotAllowedException;
 
@@ -27,18 +31,31 @@ public class PrescriptionResource {
     private static final Logger LOGGER = LoggerFactory.getLogger(PrescriptionResource.class);
 
     /**
-     * Retrieves all prescriptions by returning a list.
+     * Retrieves all prescriptions, one page at a time.
+     * It returns up to limit prescriptions after the given cursor, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page.
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public List<Prescription> getAllPrescriptions() {
+    public void getAllPrescriptions(@QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
         LOGGER.info("Getting all prescriptions");
-        try {
-            return prescriptionDAO.getAllPrescriptions();
-        } catch (Exception e) {
-            LOGGER.error("Error occurred while getting all prescriptions", e);
-            throw new InternalServerErrorException("Internal server error occurred");
-        }
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(prescriptionDAO.getPrescriptionsVersion()), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(prescriptionDAO.scanAllPrescriptions());
+                    }
+                    return Pagination.ok(prescriptionDAO.getAllPrescriptions(afterId, pageSize), pageSize, uriInfo, prescriptionDAO::getPrescriptionsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting all prescriptions", e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
     }
 
     /**
@@ -48,15 +65,17 @@ public class PrescriptionResource {
     @GET
     @Path("/{prescriptionId}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Prescription getPrescriptionById(@PathParam("prescriptionId") int prescriptionId) {
+    public Response getPrescriptionById(@PathParam("prescriptionId") int prescriptionId, @Context UriInfo uriInfo, @Context Request request) {
         LOGGER.info("Getting prescription by ID: {}", prescriptionId);
         try {
-            Prescription prescription = prescriptionDAO.getPrescriptionById(prescriptionId);
-            if (prescription == null) {
-                LOGGER.warn("Prescription with ID {} not found", prescriptionId);
-                throw new ResourceNotFoundException("Prescription with ID " + prescriptionId + " not found");
-            }
-            return prescription;
+            return EntityTags.conditional(request, uriInfo, EntityTags.of(prescriptionDAO.getPrescriptionVersion(prescriptionId)), () -> {
+                Prescription prescription = prescriptionDAO.getPrescriptionById(prescriptionId);
+                if (prescription == null) {
+                    LOGGER.warn("Prescription with ID {} not found", prescriptionId);
+                    throw new ResourceNotFoundException("Prescription with ID " + prescriptionId + " not found");
+                }
+                return Response.ok(prescriptionDAO.getPrescriptionJson(prescription)).build();
+            });
         } catch (ResourceNotFoundException e) {
             throw e;
         } catch (Exception e) {
@@ -65,6 +84,35 @@ public class PrescriptionResource {
         }
     }
 
+    /**
+     * Retrieves prescriptions associated with a specific patient.
+     * It returns one page of the prescriptions associated with the specified patient, with the cursor of the next page in the response headers.
+     * With ?stream=true it streams all of them instead of a page.
+     */
+    @GET
+    @Path("/patient/{patientId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getPrescriptionsByPatientId(@PathParam("patientId") int patientId, @QueryParam("limit") Integer limit, @QueryParam("after") String after, @QueryParam("stream") boolean stream, @Context UriInfo uriInfo, @Context Request request, @Suspended AsyncResponse asyncResponse) {
+        LOGGER.info("Getting prescriptions by patient ID: {}", patientId);
+        AsyncRequests.SHARED.submit(asyncResponse, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                int pageSize = Pagination.limit(limit);
+                Integer afterId = Pagination.afterId(after);
+                return EntityTags.conditional(request, uriInfo, EntityTags.of(prescriptionDAO.getPrescriptionsByPatientVersion(patientId)), () -> {
+                    if (stream) {
+                        return JsonStreaming.ok(prescriptionDAO.scanPrescriptionsByPatientId(patientId));
+                    }
+                    return Pagination.ok(prescriptionDAO.getPrescriptionsByPatientId(patientId, afterId, pageSize), pageSize, uriInfo, prescriptionDAO::getPrescriptionsJson);
+                });
+            } catch (BadRequestException e) {
+                throw e;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while getting prescriptions for patient with ID " + patientId, e);
+                throw new InternalServerErrorException("Internal server error occurred");
+            }
+        });
+    }
+
     /**
      * Adds a new prescription.
      * It returns the HTTP response indicating success or failure of the operation.
@@ -0,0 +1,276 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.mycompany.healthsystemapi.model.CacheStats;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Read-through cache of the serialized bodies of the read endpoints, keyed by request URI.
+ * Each entry keeps the ETag it was built under and is only served while the request still gets that tag:
+ * the DAO write paths bump the versions of the entities and collections they touch, so exactly the entries read
+ * from them stop matching, and are dropped on their next lookup, while every other entry stays.
+ *
+ * The cache is bounded by the bytes it holds and split into segments, each evicting its least recently used entries.
+ * A new entry is only let in over the entries it would evict if it was asked for more often than each of them
+ * (TinyLFU admission), so that a burst of one-off reads does not flush the hot entries.
+ *
+ * healthsystem.cache.maxBytes - bytes of responses the cache may hold, 0 to disable it (default: 67108864)
+ *
+ * @author rachelcooray
+ */
+final class ResponseCache {
+    static final ResponseCache SHARED = new ResponseCache(Long.getLong("healthsystem.cache.maxBytes", 64L << 20));
+
+    private static final int SEGMENTS = 16;
+    // Bytes counted for an entry besides its body: its key, tag and headers and the objects holding them
+    private static final int ENTRY_OVERHEAD = 256;
+
+    // Attributes of this class
+    private final long maxBytes;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private volatile boolean enabled;
+
+    ResponseCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.enabled = maxBytes > 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(this.maxBytes / SEGMENTS);
+        }
+    }
+
+    /**
+     * Gives the response cached under the key if it was built under the specified tag,
+     * and otherwise builds it and caches it if it is a complete JSON body.
+     */
+    Response get(String key, EntityTag tag, Supplier<Response> response) {
+        if (!enabled) {
+            return response.get();
+        }
+        Segment segment = segments[Math.floorMod(key.hashCode(), SEGMENTS)];
+        Entry cached = segment.get(key, tag);
+        if (cached != null) {
+            hits.increment();
+            return cached.toResponse();
+        }
+        misses.increment();
+        Response built = response.get();
+        if (built.getStatus() != Response.Status.OK.getStatusCode() || !built.hasEntity() || built.getEntity() instanceof StreamingOutput) {
+            return built;
+        }
+        Entry entry = new Entry(key, tag, serialize(built.getEntity()), built);
+        segment.put(key, entry);
+        return entry.toResponse();
+    }
+
+    /**
+     * Gives the JSON body of an entity. Bodies built from the entity bytes kept by the stores are already JSON.
+     */
+    private static byte[] serialize(Object entity) {
+        if (entity instanceof byte[]) {
+            return (byte[]) entity;
+        }
+        try {
+            return ObjectMapperProvider.MAPPER.writeValueAsBytes(entity);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Turns the cache on or off; turning it off empties it.
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled && maxBytes > 0;
+        if (!this.enabled) {
+            clear();
+        }
+    }
+
+    /**
+     * Drops every entry, keeping the counters.
+     */
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    CacheStats stats() {
+        int entries = 0;
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                entries += segment.entries.size();
+                bytes += segment.bytes;
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), rejections.sum(), entries, bytes, maxBytes);
+    }
+
+    /**
+     * A cached response: the tag it was built under, its JSON body and its other headers, such as the next-page cursor.
+     */
+    private static final class Entry {
+        private final EntityTag tag;
+        private final byte[] body;
+        private final List<Map.Entry<String, String>> headers = new ArrayList<>();
+        private final long weight;
+
+        private Entry(String key, EntityTag tag, byte[] body, Response response) {
+            this.tag = tag;
+            this.body = body;
+            int headerBytes = 0;
+            for (Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+                if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.getKey()) || HttpHeaders.ETAG.equalsIgnoreCase(header.getKey())) {
+                    continue;
+                }
+                for (String value : header.getValue()) {
+                    headers.add(new AbstractMap.SimpleImmutableEntry<>(header.getKey(), value));
+                    headerBytes += 2 * (header.getKey().length() + value.length());
+                }
+            }
+            this.weight = ENTRY_OVERHEAD + 2L * key.length() + body.length + headerBytes;
+        }
+
+        private Response toResponse() {
+            Response.ResponseBuilder response = Response.ok(body, MediaType.APPLICATION_JSON_TYPE);
+            for (Map.Entry<String, String> header : headers) {
+                response.header(header.getKey(), header.getValue());
+            }
+            return response.build();
+        }
+    }
+
+    /**
+     * One share of the cache, with its entries in least recently used order and the sketch of how often its keys are asked for.
+     */
+    private final class Segment {
+        private final long capacity;
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch = new FrequencySketch();
+        private long bytes;
+
+        private Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Gives the entry cached under the key if it was built under the specified tag, and drops it if it was not.
+         */
+        synchronized Entry get(String key, EntityTag tag) {
+            sketch.increment(key.hashCode());
+            Entry entry = entries.get(key);
+            if (entry == null || entry.tag.equals(tag)) {
+                return entry;
+            }
+            entries.remove(key);
+            bytes -= entry.weight;
+            invalidations.increment();
+            return null;
+        }
+
+        /**
+         * Caches the entry if it fits, evicting the least recently used entries to make room,
+         * unless one of them was asked for at least as often as the new one.
+         */
+        synchronized void put(String key, Entry entry) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                bytes -= previous.weight;
+            }
+            if (entry.weight > capacity) {
+                rejections.increment();
+                return;
+            }
+            long needed = bytes + entry.weight - capacity;
+            if (needed > 0) {
+                int frequency = sketch.frequency(key.hashCode());
+                // Checks that the entry would be let in before evicting anything
+                long freed = 0;
+                for (Iterator<Map.Entry<String, Entry>> victims = entries.entrySet().iterator(); freed < needed; ) {
+                    Map.Entry<String, Entry> victim = victims.next();
+                    if (sketch.frequency(victim.getKey().hashCode()) >= frequency) {
+                        rejections.increment();
+                        return;
+                    }
+                    freed += victim.getValue().weight;
+                }
+                for (Iterator<Entry> victims = entries.values().iterator(); bytes + entry.weight > capacity; ) {
+                    bytes -= victims.next().weight;
+                    victims.remove();
+                    evictions.increment();
+                }
+            }
+            entries.put(key, entry);
+            bytes += entry.weight;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Approximate count of how often each key was asked for: a count-min sketch of four rows of counters capped at 15,
+     * all halved every ten increments per counter of a row, so that the keys that were hot a while ago fade away.
+     */
+    private static final class FrequencySketch {
+        private static final int ROW_BITS = 12;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+        private static final int MAX_COUNT = 15;
+
+        // Attributes of this class
+        private final byte[] counters = new byte[SEEDS.length << ROW_BITS];
+        private int increments;
+
+        void increment(int hash) {
+            for (int row = 0; row < SEEDS.length; row++) {
+                int index = index(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                }
+            }
+            if (++increments == 10 << ROW_BITS) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                increments /= 2;
+            }
+        }
+
+        int frequency(int hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) {
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private static int index(int hash, int row) {
+            int spread = (hash ^ (hash >>> 16)) * SEEDS[row];
+            return (row << ROW_BITS) | (spread >>> (32 - ROW_BITS));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Converts the entities of one store to and from the bytes kept on disk.
+ * Journal records hold entities as JSON and snapshots hold them as Smile, Jackson's compact binary JSON,
+ * both written with the settings of the shared mapper of the API.
+ * Unknown properties are ignored when reading
+ * so that files written by an older version of a model class can still be loaded.
+ *
+ * @author rachelcooray
+ */
+public class EntityCodec<T> {
+    private static final ObjectMapper BINARY_MAPPER = ObjectMapperProvider.configure(new ObjectMapper(SmileFactory.builder()
+            .disable(JsonFactory.Feature.INTERN_FIELD_NAMES)
+            .build()))
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    // Attributes of this class
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectReader binaryReader;
+    private final ObjectWriter binaryWriter;
+
+    /**
+     * Constructs a codec for entities of the specified class.
+     */
+    public EntityCodec(Class<T> type) {
+        this.reader = ObjectMapperProvider.MAPPER.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.writer = ObjectMapperProvider.writerFor(type);
+        this.binaryReader = BINARY_MAPPER.readerFor(type);
+        this.binaryWriter = BINARY_MAPPER.writerFor(type);
+    }
+
+    /**
+     * Serializes the entity.
+     */
+    public byte[] encode(T entity) {
+        try {
+            return writer.writeValueAsBytes(entity);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to serialize " + entity, ex);
+        }
+    }
+
+    /**
+     * Deserializes an entity written by encode.
+     */
+    public T decode(byte[] bytes) {
+        try {
+            return reader.readValue(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to deserialize entity", ex);
+        }
+    }
+
+    /**
+     * Serializes the entity in the binary format.
+     */
+    public byte[] encodeBinary(T entity) {
+        try {
+            return binaryWriter.writeValueAsBytes(entity);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to serialize " + entity, ex);
+        }
+    }
+
+    /**
+     * Deserializes an entity written by encodeBinary.
+     */
+    public T decodeBinary(byte[] bytes) {
+        try {
+            return binaryReader.readValue(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to deserialize entity", ex);
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Thread-safe, id-keyed store of entities shared by the DAOs.
+ * The entities are kept by a storage engine chosen at deploy time: in memory, journaled to disk
+ * and snapshotted so that data survives a restart or redeploy, or in a relational database.
+ * Whatever the engine, iteration is always in id order and secondary indexes registered on the store
+ * are updated in the same step as the entity itself.
+ * Writes are serialized per ID through a fixed set of striped locks, so that listeners keeping derived
+ * structures see the writes to one ID in order.
+ * The store, each entity and each key of its secondary indexes carry a version, bumped by every write touching them
+ * once the write and its listeners are done, so that a version read before the data is never newer than the data.
+ *
+ * @author rachelcooray
+ */
+public class EntityStore<T> {
+    private static final int LOCK_STRIPES = 256;
+
+    // Attributes of this class
+    private final String name;
+    private final ToIntFunction<T> idOf;
+    private final IdSequence sequence = new IdSequence();
+    private final StorageEngine<T> engine;
+    private final List<StoreListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+    private final AtomicLong version = new AtomicLong();
+    private final VersionStamps versions = new VersionStamps();
+    private final List<SecondaryIndex<T>> indexes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a store with the specified name, entity class and a function reading the id of an entity.
+     * Entities already persisted by the engine are loaded first.
+     */
+    public EntityStore(String name, Class<T> type, ToIntFunction<T> idOf) {
+        this(name, idOf, StorageEngines.create(name, type, idOf));
+    }
+
+    /**
+     * Constructs a store with the specified name and function reading the id of an entity, on top of the given engine.
+     */
+    public EntityStore(String name, ToIntFunction<T> idOf, StorageEngine<T> engine) {
+        this.name = name;
+        this.idOf = idOf;
+        this.engine = engine;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        sequence.observe(engine.highestId());
+    }
+
+    /**
+     * Writes a snapshot of the store, if its engine takes snapshots.
+     */
+    public void snapshot() throws IOException {
+        engine.snapshot();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the entity with the specified ID, or null if there is none.
+     */
+    public T get(int id) {
+        return engine.get(id);
+    }
+
+    /**
+     * Checks whether an entity with the specified ID exists.
+     */
+    public boolean contains(int id) {
+        return engine.get(id) != null;
+    }
+
+    /**
+     * Registers a secondary index over the key returned by the specified function
+     * and indexes the entities already stored.
+     */
+    public SecondaryIndex<T> addIndex(String indexName, Function<T, Integer> keyOf) {
+        SecondaryIndex<T> index = new SecondaryIndex<>(indexName, keyOf);
+        engine.addIndex(index);
+        indexes.add(index);
+        return index;
+    }
+
+    /**
+     * Registers the JSON of the entities, written with the specified writer,
+     * and serializes the entities already stored if the stores keep their JSON.
+     */
+    public SerializedEntities<T> addSerializedForm(ObjectWriter writer) {
+        SerializedEntities<T> serialized = new SerializedEntities<>(writer, idOf);
+        if (StorageConfig.serializedEntitiesEnabled()) {
+            addListener(serialized);
+        }
+        return serialized;
+    }
+
+    /**
+     * Registers a listener for every later write and passes it the entities already stored, as inserts.
+     * Writes are held back while the existing entities are passed, so none is missed or seen twice.
+     */
+    public void addListener(StoreListener<T> listener) {
+        lockAll();
+        try {
+            for (T entity : scan()) {
+                listener.onWrite(idOf.applyAsInt(entity), null, entity);
+            }
+            listeners.add(listener);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Retrieves the entities with the specified key in the given index, ordered by ID.
+     */
+    public List<T> findBy(SecondaryIndex<T> index, int key) {
+        return collect(engine.scanIndex(index, key, null), Integer.MAX_VALUE).getItems();
+    }
+
+    /**
+     * Retrieves up to limit entities with the specified key in the given index,
+     * ordered by ID and starting after the specified ID, or from the start if it is null.
+     */
+    public Page<T> findBy(SecondaryIndex<T> index, int key, Integer afterId, int limit) {
+        return collect(engine.scanIndex(index, key, afterId), limit);
+    }
+
+    /**
+     * Retrieves up to limit entities ordered by ID, starting after the specified ID,
+     * or from the start if it is null.
+     */
+    public Page<T> page(Integer afterId, int limit) {
+        return collect(engine.scan(afterId), limit);
+    }
+
+    /**
+     * Collects one page of entities from an iterator in ID order.
+     * One extra entity is read to tell whether another page follows.
+     */
+    private Page<T> collect(Iterator<T> candidates, int limit) {
+        List<T> items = new ArrayList<>(Math.min(limit, 64));
+        Integer lastId = null;
+        while (candidates.hasNext()) {
+            T entity = candidates.next();
+            if (items.size() == limit) {
+                return new Page<>(items, lastId);
+            }
+            items.add(entity);
+            lastId = idOf.applyAsInt(entity);
+        }
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Retrieves up to limit entities with the specified value in the given term index,
+     * ordered by ID and starting after the specified ID, or from the start if it is null.
+     */
+    public Page<T> findByTerm(TermIndex<T> index, String value, Integer afterId, int limit) {
+        NavigableSet<Integer> ids = index.ids(value);
+        return collect(resolve(afterId == null ? ids : ids.tailSet(afterId, false), entity -> index.matches(entity, value)), limit);
+    }
+
+    /**
+     * Iterates over the entities with the specified value in the given term index, in ID order, without copying them.
+     */
+    public Iterable<T> scanByTerm(TermIndex<T> index, String value) {
+        return () -> resolve(index.ids(value), entity -> index.matches(entity, value));
+    }
+
+    /**
+     * Retrieves up to limit entities matching the typeahead query in the given prefix index,
+     * ordered by ID and starting after the specified ID, or from the start if it is null.
+     */
+    public Page<T> findByPrefix(PrefixIndex<T> index, String query, Integer afterId, int limit) {
+        Iterator<Integer> ids = index.candidates(query, afterId);
+        return collect(resolve(() -> ids, index.matcher(query)), limit);
+    }
+
+    /**
+     * Iterates over the entities matching the typeahead query in the given prefix index, in ID order, without copying them.
+     */
+    public Iterable<T> scanByPrefix(PrefixIndex<T> index, String query) {
+        return () -> resolve(() -> index.candidates(query, null), index.matcher(query));
+    }
+
+    /**
+     * Resolves a set of IDs read from an index into the entities still stored under them that still match it.
+     */
+    private Iterator<T> resolve(Iterable<Integer> ids, Predicate<T> stillMatches) {
+        Iterator<Integer> idIterator = ids.iterator();
+        return new Iterator<T>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && idIterator.hasNext()) {
+                    T entity = engine.get(idIterator.next());
+                    if (entity != null && stillMatches.test(entity)) {
+                        next = entity;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T entity = next;
+                next = null;
+                return entity;
+            }
+        };
+    }
+
+    /**
+     * Retrieves up to limit entities with a value from 'from' to 'to' in the given range index, in the index's order,
+     * within the specified group or all of them if it is null, and starting after the specified position if it is not null.
+     */
+    public Page<T> findInRange(RangeIndex<T> index, int from, int to, Integer group, Long afterPosition, int limit) {
+        List<T> items = new ArrayList<>(Math.min(limit, 64));
+        Long lastPosition = null;
+        Iterator<Long> positions = index.positions(from, to, group, afterPosition);
+        while (positions.hasNext()) {
+            long position = positions.next();
+            T entity = resolve(index, position, group);
+            if (entity == null) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return Page.ofRange(items, lastPosition);
+            }
+            items.add(entity);
+            lastPosition = position;
+        }
+        return Page.ofRange(items, null);
+    }
+
+    /**
+     * Iterates over the entities with a value from 'from' to 'to' in the given range index, in the index's order,
+     * within the specified group or all of them if it is null, without copying them.
+     */
+    public Iterable<T> scanRange(RangeIndex<T> index, int from, int to, Integer group) {
+        return () -> new Iterator<T>() {
+            private final Iterator<Long> positions = index.positions(from, to, group, null);
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && positions.hasNext()) {
+                    next = resolve(index, positions.next(), group);
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T entity = next;
+                next = null;
+                return entity;
+            }
+        };
+    }
+
+    /**
+     * Looks up the entity at a position of a range index, or returns null if it has moved or been removed
+     * since the position was read.
+     */
+    private T resolve(RangeIndex<T> index, long position, Integer group) {
+        T entity = engine.get(RangeIndex.idOf(position));
+        return entity != null && index.matches(entity, position, group) ? entity : null;
+    }
+
+    /**
+     * Retrieves up to limit entities containing every word of the query in the given text index, best match first,
+     * among the specified entities or all of them if it is null, and resuming after the cursor of a previous page if it is not null.
+     */
+    public Page<T> search(TextIndex<T> index, String query, Iterable<T> within, TextIndex.Cursor after, int limit) {
+        int[] withinIds = null;
+        if (within != null) {
+            int[] ids = new int[64];
+            int count = 0;
+            for (T entity : within) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = idOf.applyAsInt(entity);
+            }
+            withinIds = Arrays.copyOf(ids, count);
+            Arrays.sort(withinIds);
+        }
+        TextIndex.Hits hits = index.search(query, withinIds, after, limit + 1);
+        List<T> items = new ArrayList<>(Math.min(limit, hits.getPositions().length));
+        long lastPosition = 0;
+        for (long hit : hits.getPositions()) {
+            T entity = engine.get(RangeIndex.idOf(hit));
+            if (entity == null || !index.matches(entity, query)) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return Page.ofSearch(items, hits.cursorAfter(lastPosition));
+            }
+            items.add(entity);
+            lastPosition = hit;
+        }
+        return Page.ofSearch(items, null);
+    }
+
+    /**
+     * Retrieves a snapshot of all entities, ordered by ID.
+     */
+    public List<T> values() {
+        return collect(engine.scan(null), Integer.MAX_VALUE).getItems();
+    }
+
+    /**
+     * Iterates over all entities in ID order without copying them.
+     * The iteration reflects writes made while it is in progress and never fails because of them.
+     */
+    public Iterable<T> scan() {
+        return () -> engine.scan(null);
+    }
+
+    /**
+     * Iterates over the entities with the specified key in the given index, in ID order, without copying them.
+     */
+    public Iterable<T> scanBy(SecondaryIndex<T> index, int key) {
+        return () -> engine.scanIndex(index, key, null);
+    }
+
+    /**
+     * Inserts the entity, replacing any entity already stored under its ID.
+     */
+    public void put(T entity) {
+        int id = idOf.applyAsInt(entity);
+        sequence.observe(id);
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            T previous = engine.put(id, entity);
+            notifyListeners(id, previous, entity);
+            stampVersions(id, previous, entity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts several entities at once, replacing any entity already stored under their IDs.
+     * The engine may write them in a single batch; other writes are held back until the batch is stored.
+     */
+    public void putAll(List<T> entities) {
+        for (T entity : entities) {
+            sequence.observe(idOf.applyAsInt(entity));
+        }
+        if (listeners.isEmpty() && indexes.isEmpty()) {
+            engine.putAll(entities);
+            for (T entity : entities) {
+                stampVersions(idOf.applyAsInt(entity), null, entity);
+            }
+            return;
+        }
+        lockAll();
+        try {
+            List<T> previous = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                previous.add(engine.get(idOf.applyAsInt(entity)));
+            }
+            engine.putAll(entities);
+            for (int i = 0; i < entities.size(); i++) {
+                T entity = entities.get(i);
+                notifyListeners(idOf.applyAsInt(entity), previous.get(i), entity);
+                stampVersions(idOf.applyAsInt(entity), previous.get(i), entity);
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Replaces the entity stored under the same ID.
+     * It returns false, and stores nothing, if no such entity exists.
+     */
+    public boolean replace(T entity) {
+        int id = idOf.applyAsInt(entity);
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            T previous = engine.replace(id, entity);
+            if (previous == null) {
+                return false;
+            }
+            notifyListeners(id, previous, entity);
+            stampVersions(id, previous, entity);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entity with the specified ID and returns it, or null if there was none.
+     */
+    public T remove(int id) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            T previous = engine.remove(id);
+            if (previous != null) {
+                notifyListeners(id, previous, null);
+                stampVersions(id, previous, null);
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void notifyListeners(int id, T previous, T current) {
+        for (StoreListener<T> listener : listeners) {
+            listener.onWrite(id, previous, current);
+        }
+    }
+
+    /**
+     * Bumps the version of the store and sets it as the version of the written entity and of its keys, old and new.
+     */
+    private void stampVersions(int id, T previous, T current) {
+        long stamp = version.incrementAndGet();
+        versions.stamp(id, stamp);
+        for (SecondaryIndex<T> index : indexes) {
+            index.stamp(previous, stamp);
+            index.stamp(current, stamp);
+        }
+    }
+
+    /**
+     * Gives the version of the store. It changes whenever any entity is written,
+     * so it stands for every collection read from the store or from a structure derived from it.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Gives the version of the entity with the specified ID. It changes whenever that entity is written.
+     */
+    public long versionOf(int id) {
+        return versions.get(id);
+    }
+
+    private ReentrantLock stripe(int id) {
+        return stripes[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    /**
+     * Takes every stripe lock, always in the same order so that two callers cannot deadlock.
+     */
+    private void lockAll() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Allocates a new, unused ID for an entity about to be inserted.
+     */
+    public int nextId() {
+        return sequence.next();
+    }
+
+    /**
+     * Allocates a block of new, unused IDs for a batch insert and returns the first one.
+     */
+    public int nextIds(int count) {
+        return sequence.nextBlock(count);
+    }
+
+    public int size() {
+        return engine.size();
+    }
+
+    public boolean isEmpty() {
+        return engine.size() == 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free allocator of entity IDs for a single entity type.
+ * IDs are handed out from an atomic high-water mark, either one at a time or as a
+ * contiguous block for batch inserts, so concurrent inserts never receive the same ID.
+ *
+ * @author rachelcooray
+ */
+public class IdSequence {
+    // Highest ID handed out or observed so far
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * Allocates the next ID.
+     */
+    public int next() {
+        return highWaterMark.incrementAndGet();
+    }
+
+    /**
+     * Allocates a contiguous block of IDs and returns the first one.
+     * The block covers the returned ID up to the returned ID plus count minus one.
+     */
+    public int nextBlock(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + count);
+        }
+        return highWaterMark.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Records an ID that already exists, such as one loaded at startup,
+     * so that it is never handed out again.
+     */
+    public void observe(int id) {
+        highWaterMark.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Gives the highest ID handed out or observed so far.
+     */
+    public int current() {
+        return highWaterMark.get();
+    }
+}
@@ -0,0 +1,54 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of database connections shared by the stores using the jdbc engine.
+ * The pool is created on first use from the settings in StorageConfig.
+ *
+ * @author rachelcooray
+ */
+final class JdbcConnections {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcConnections.class); // For logging messages
+    private static HikariDataSource dataSource;
+
+    private JdbcConnections() {
+    }
+
+    /**
+     * Gives the shared connection pool, creating it if needed.
+     */
+    static synchronized DataSource dataSource() {
+        if (dataSource == null) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("healthsystem");
+            if (StorageConfig.jdbcDriver() != null) {
+                config.setDriverClassName(StorageConfig.jdbcDriver());
+            }
+            config.setJdbcUrl(StorageConfig.jdbcUrl());
+            config.setUsername(StorageConfig.jdbcUser());
+            config.setPassword(StorageConfig.jdbcPassword());
+            config.setMaximumPoolSize(StorageConfig.jdbcPoolSize());
+            dataSource = new HikariDataSource(config);
+            logger.info("Connected to {} with a pool of {} connections", config.getJdbcUrl(), config.getMaximumPoolSize());
+        }
+        return dataSource;
+    }
+
+    /**
+     * Closes the pool, if it was created. It is called when the application shuts down.
+     */
+    static synchronized void close() {
+        if (dataSource != null) {
+            dataSource.close();
+            dataSource = null;
+        }
+    }
+}
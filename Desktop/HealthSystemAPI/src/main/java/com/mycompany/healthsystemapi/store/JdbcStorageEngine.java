@@ -0,0 +1,429 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToIntFunction;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Storage engine keeping the entities in a relational database through JDBC.
+ * Each store has a table named after it (medicalRecords becomes MEDICAL_RECORDS) with the entity ID as primary key,
+ * the entity serialized in the binary format, and one indexed integer column per secondary index
+ * (doctorId becomes DOCTOR_ID), so lookups by doctor or patient are answered by the database index.
+ * Scans read the table in ID order, a batch of rows per query, and batch inserts are sent as one JDBC batch.
+ * Writes use plain UPDATE and INSERT statements rather than a vendor upsert, so the engine is not tied to H2.
+ *
+ * @author rachelcooray
+ */
+class JdbcStorageEngine<T> implements StorageEngine<T> {
+    // Number of rows read per query by scans, and written per round trip by batch inserts
+    static final int BATCH_SIZE = 500;
+
+    // Attributes of this class
+    private final String name;
+    private final String table;
+    private final ToIntFunction<T> idOf;
+    private final EntityCodec<T> codec;
+    private final DataSource dataSource;
+    private final List<SecondaryIndex<T>> indexes = new CopyOnWriteArrayList<>();
+    private volatile String insertSql;
+    private volatile String updateSql;
+    private static final Logger logger = LoggerFactory.getLogger(JdbcStorageEngine.class); // For logging messages
+
+    /**
+     * Constructs an engine for the named store, creating its table if needed.
+     */
+    JdbcStorageEngine(String name, Class<T> type, ToIntFunction<T> idOf, DataSource dataSource) {
+        this.name = name;
+        this.table = columnName(name);
+        this.idOf = idOf;
+        this.codec = new EntityCodec<>(type);
+        this.dataSource = dataSource;
+        execute("CREATE TABLE IF NOT EXISTS " + table + " (ID INT PRIMARY KEY, PAYLOAD VARBINARY NOT NULL)");
+        prepareWrites();
+        logger.info("Opened table {} for {} with {} entities", table, name, size());
+    }
+
+    /**
+     * Converts a camelCase name into the upper-case, underscore-separated name of a table or column.
+     */
+    static String columnName(String name) {
+        return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    /**
+     * Builds the write statements for the current set of indexes.
+     */
+    private void prepareWrites() {
+        StringBuilder columns = new StringBuilder("ID, PAYLOAD");
+        StringBuilder values = new StringBuilder("?, ?");
+        StringBuilder assignments = new StringBuilder("PAYLOAD = ?");
+        for (SecondaryIndex<T> index : indexes) {
+            String column = columnName(index.getName());
+            columns.append(", ").append(column);
+            values.append(", ?");
+            assignments.append(", ").append(column).append(" = ?");
+        }
+        insertSql = "INSERT INTO " + table + " (" + columns + ") VALUES (" + values + ")";
+        updateSql = "UPDATE " + table + " SET " + assignments + " WHERE ID = ?";
+    }
+
+    @Override
+    public T get(int id) {
+        try (Connection connection = dataSource.getConnection()) {
+            return select(connection, id, false);
+        } catch (SQLException ex) {
+            throw failure("read " + id + " from", ex);
+        }
+    }
+
+    /**
+     * Reads the entity with the specified ID, locking its row until the transaction ends if asked to.
+     */
+    private T select(Connection connection, int id, boolean forUpdate) throws SQLException {
+        String sql = "SELECT PAYLOAD FROM " + table + " WHERE ID = ?" + (forUpdate ? " FOR UPDATE" : "");
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, id);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? codec.decodeBinary(rows.getBytes(1)) : null;
+            }
+        }
+    }
+
+    @Override
+    public T put(int id, T entity) {
+        try (Connection connection = dataSource.getConnection()) {
+            return inTransaction(connection, () -> {
+                T previous = select(connection, id, true);
+                try (PreparedStatement statement = connection.prepareStatement(previous == null ? insertSql : updateSql)) {
+                    if (previous == null) {
+                        bindInsert(statement, id, entity);
+                    } else {
+                        bindUpdate(statement, id, entity);
+                    }
+                    statement.executeUpdate();
+                }
+                return previous;
+            });
+        } catch (SQLException ex) {
+            throw failure("write " + id + " to", ex);
+        }
+    }
+
+    /**
+     * Writes the batch as an upsert any database understands: the entities are first updated,
+     * and those whose row did not exist yet, with an update count of 0, are then inserted.
+     */
+    @Override
+    public void putAll(List<T> batch) {
+        try (Connection connection = dataSource.getConnection()) {
+            inTransaction(connection, () -> {
+                List<T> missing = new ArrayList<>();
+                try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+                    for (int start = 0; start < batch.size(); start += BATCH_SIZE) {
+                        List<T> chunk = batch.subList(start, Math.min(batch.size(), start + BATCH_SIZE));
+                        for (T entity : chunk) {
+                            bindUpdate(statement, idOf.applyAsInt(entity), entity);
+                            statement.addBatch();
+                        }
+                        int[] counts = statement.executeBatch();
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] == 0) {
+                                missing.add(chunk.get(i));
+                            }
+                        }
+                    }
+                }
+                try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+                    int pending = 0;
+                    for (T entity : missing) {
+                        bindInsert(statement, idOf.applyAsInt(entity), entity);
+                        statement.addBatch();
+                        if (++pending == BATCH_SIZE) {
+                            statement.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                    if (pending > 0) {
+                        statement.executeBatch();
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException ex) {
+            throw failure("write " + batch.size() + " entities to", ex);
+        }
+    }
+
+    private void bindInsert(PreparedStatement statement, int id, T entity) throws SQLException {
+        statement.setInt(1, id);
+        statement.setBytes(2, codec.encodeBinary(entity));
+        bindKeys(statement, 3, entity);
+    }
+
+    private void bindUpdate(PreparedStatement statement, int id, T entity) throws SQLException {
+        statement.setBytes(1, codec.encodeBinary(entity));
+        statement.setInt(bindKeys(statement, 2, entity), id);
+    }
+
+    /**
+     * Binds the key of the entity in each index, starting at the specified parameter, and returns the next parameter.
+     */
+    private int bindKeys(PreparedStatement statement, int parameter, T entity) throws SQLException {
+        for (SecondaryIndex<T> index : indexes) {
+            Integer key = index.keyOf(entity);
+            if (key == null) {
+                statement.setNull(parameter++, Types.INTEGER);
+            } else {
+                statement.setInt(parameter++, key);
+            }
+        }
+        return parameter;
+    }
+
+    @Override
+    public T replace(int id, T entity) {
+        try (Connection connection = dataSource.getConnection()) {
+            return inTransaction(connection, () -> {
+                T previous = select(connection, id, true);
+                if (previous == null) {
+                    return null;
+                }
+                try (PreparedStatement statement = connection.prepareStatement(updateSql)) {
+                    bindUpdate(statement, id, entity);
+                    statement.executeUpdate();
+                }
+                return previous;
+            });
+        } catch (SQLException ex) {
+            throw failure("update " + id + " in", ex);
+        }
+    }
+
+    @Override
+    public T remove(int id) {
+        try (Connection connection = dataSource.getConnection()) {
+            return inTransaction(connection, () -> {
+                T previous = select(connection, id, true);
+                if (previous != null) {
+                    try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + table + " WHERE ID = ?")) {
+                        statement.setInt(1, id);
+                        statement.executeUpdate();
+                    }
+                }
+                return previous;
+            });
+        } catch (SQLException ex) {
+            throw failure("remove " + id + " from", ex);
+        }
+    }
+
+    /**
+     * Adds the column and database index backing the secondary index if they do not exist yet,
+     * filling the new column from the rows already stored.
+     */
+    @Override
+    public void addIndex(SecondaryIndex<T> index) {
+        String column = columnName(index.getName());
+        boolean created;
+        try (Connection connection = dataSource.getConnection()) {
+            try (ResultSet columns = connection.getMetaData().getColumns(null, null, table, column)) {
+                created = !columns.next();
+            }
+            if (created) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " INT");
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_" + column + "_IDX ON " + table + " (" + column + ", ID)");
+            }
+        } catch (SQLException ex) {
+            throw failure("index " + column + " of", ex);
+        }
+        indexes.add(index);
+        prepareWrites();
+        if (created) {
+            backfill(index, column);
+        }
+    }
+
+    /**
+     * Fills a newly added index column from the stored entities.
+     */
+    private void backfill(SecondaryIndex<T> index, String column) {
+        long filled = 0;
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement("UPDATE " + table + " SET " + column + " = ? WHERE ID = ?")) {
+            Iterator<T> entities = scan(null);
+            int pending = 0;
+            while (entities.hasNext()) {
+                T entity = entities.next();
+                Integer key = index.keyOf(entity);
+                if (key == null) {
+                    continue;
+                }
+                statement.setInt(1, key);
+                statement.setInt(2, idOf.applyAsInt(entity));
+                statement.addBatch();
+                filled++;
+                if (++pending == BATCH_SIZE) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+        } catch (SQLException ex) {
+            throw failure("fill column " + column + " of", ex);
+        }
+        logger.info("Filled column {} of {} for {} rows", column, table, filled);
+    }
+
+    @Override
+    public Iterator<T> scan(Integer afterId) {
+        return new BatchIterator("SELECT ID, PAYLOAD FROM " + table + " WHERE ID > ? ORDER BY ID LIMIT ?", null, afterId);
+    }
+
+    @Override
+    public Iterator<T> scanIndex(SecondaryIndex<T> index, int key, Integer afterId) {
+        String sql = "SELECT ID, PAYLOAD FROM " + table + " WHERE " + columnName(index.getName()) + " = ? AND ID > ? ORDER BY ID LIMIT ?";
+        return new BatchIterator(sql, key, afterId);
+    }
+
+    /**
+     * Iterates over the rows of a query in ID order, reading BATCH_SIZE rows per query.
+     * Each query continues after the last ID read, so no connection is held between batches.
+     */
+    private class BatchIterator implements Iterator<T> {
+        private final String sql;
+        private final Integer key;
+        private int afterId;
+        private Iterator<T> batch;
+        private boolean exhausted;
+
+        BatchIterator(String sql, Integer key, Integer afterId) {
+            this.sql = sql;
+            this.key = key;
+            this.afterId = afterId == null ? Integer.MIN_VALUE : afterId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ((batch == null || !batch.hasNext()) && !exhausted) {
+                batch = fetch();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        private Iterator<T> fetch() {
+            List<T> rowsRead = new ArrayList<>();
+            try (Connection connection = dataSource.getConnection();
+                    PreparedStatement statement = connection.prepareStatement(sql)) {
+                int parameter = 1;
+                if (key != null) {
+                    statement.setInt(parameter++, key);
+                }
+                statement.setInt(parameter++, afterId);
+                statement.setInt(parameter, BATCH_SIZE);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        afterId = rows.getInt(1);
+                        rowsRead.add(codec.decodeBinary(rows.getBytes(2)));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw failure("scan", ex);
+            }
+            exhausted = rowsRead.size() < BATCH_SIZE;
+            return rowsRead.iterator();
+        }
+    }
+
+    @Override
+    public int highestId() {
+        return queryInt("SELECT COALESCE(MAX(ID), 0) FROM " + table);
+    }
+
+    @Override
+    public int size() {
+        return queryInt("SELECT COUNT(*) FROM " + table);
+    }
+
+    /**
+     * The database keeps the data durable itself, so there is nothing to snapshot.
+     */
+    @Override
+    public void snapshot() {
+    }
+
+    private int queryInt(String sql) {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getInt(1);
+        } catch (SQLException ex) {
+            throw failure("query", ex);
+        }
+    }
+
+    private void execute(String sql) {
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException ex) {
+            throw failure("set up", ex);
+        }
+    }
+
+    /**
+     * Work done inside a database transaction.
+     */
+    private interface Transaction<R> {
+        R run() throws SQLException;
+    }
+
+    /**
+     * Runs the work in a transaction on the connection, committing it if the work succeeds and rolling it back otherwise.
+     */
+    private static <R> R inTransaction(Connection connection, Transaction<R> work) throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            R result = work.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private IllegalStateException failure(String action, SQLException ex) {
+        return new IllegalStateException("Failed to " + action + " table " + table + " of " + name, ex);
+    }
+}
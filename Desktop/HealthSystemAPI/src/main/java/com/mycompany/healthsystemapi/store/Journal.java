@@ -0,0 +1,378 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only write-ahead journal of the writes made to one entity store.
+ * The journal is split into numbered segment files, named store-0000000001.journal and so on;
+ * a new segment is started each time a snapshot of the store is taken, so older segments can be deleted.
+ *
+ * Each record is laid out as: payload length (int), CRC32 (int), operation (byte), entity ID (int), payload.
+ * The checksum covers the operation, the ID and the payload, so a record torn by a crash is detected on replay
+ * and the journal is truncated back to the last complete record.
+ * Appends only copy the record into a buffer; the buffer is written and forced to disk by a background flusher,
+ * so a write costs microseconds rather than an fsync.
+ *
+ * @author rachelcooray
+ */
+public class Journal implements Closeable {
+    static final byte PUT = 1;
+    static final byte REMOVE = 2;
+
+    private static final int HEADER_BYTES = 4 + 4 + 1 + 4;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int READ_CHUNK_BYTES = 8 << 20;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final Logger logger = LoggerFactory.getLogger(Journal.class); // For logging messages
+
+    // Journals still open, so that they can be flushed when the application shuts down
+    private static final Set<Journal> openJournals = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(Journal::closeAll, "journal-shutdown"));
+    }
+
+    /**
+     * When appended records are forced to disk.
+     * INTERVAL forces them from the background flusher, ALWAYS before each append returns,
+     * and NONE leaves it to the operating system.
+     */
+    public enum SyncMode {
+        INTERVAL, ALWAYS, NONE
+    }
+
+    /**
+     * Receives the records read back from a journal.
+     */
+    public interface RecordHandler {
+        void onRecord(byte operation, int id, byte[] payload);
+    }
+
+    // Attributes of this class
+    private final Path directory;
+    private final String name;
+    private final SyncMode syncMode;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final ScheduledFuture<?> flushTask;
+    private final Object lock = new Object();
+    private long segment;
+    private Path path;
+    private FileChannel channel;
+    private long recordsInSegment;
+    private boolean unsynced;
+    private boolean closed;
+
+    /**
+     * Opens the specified segment of the named journal for appending, creating it if needed.
+     * Records already in the segment should be read with replay first.
+     */
+    public Journal(Path directory, String name, long segment, SyncMode syncMode, long syncIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.name = name;
+        this.syncMode = syncMode;
+        Files.createDirectories(directory);
+        openSegment(segment);
+        this.flushTask = syncMode == SyncMode.ALWAYS ? null
+                : flusher.scheduleWithFixedDelay(this::flushQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        openJournals.add(this);
+    }
+
+    private void openSegment(long number) throws IOException {
+        this.segment = number;
+        this.path = segmentPath(directory, name, number);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        this.channel.position(channel.size());
+        this.recordsInSegment = 0;
+    }
+
+    public Path getPath() {
+        synchronized (lock) {
+            return path;
+        }
+    }
+
+    /**
+     * Gives the path of the specified segment of the named journal.
+     */
+    public static Path segmentPath(Path directory, String name, long segment) {
+        return directory.resolve(String.format("%s-%010d%s", name, segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Lists the segment numbers of the named journal found in the directory, in ascending order.
+     */
+    public static List<Long> segments(Path directory, String name) throws IOException {
+        return StoreFiles.numbered(directory, name, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Closes the current segment and starts appending to the next one.
+     * It returns the number of the new segment; every record appended before the call is in a lower segment.
+     */
+    public long rotate() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("Journal " + path + " is closed");
+            }
+            drain();
+            channel.force(false);
+            channel.close();
+            unsynced = false;
+            openSegment(segment + 1);
+            return segment;
+        }
+    }
+
+    /**
+     * Gives the number of records appended to the current segment since it was opened.
+     */
+    public long recordsInSegment() {
+        synchronized (lock) {
+            return recordsInSegment;
+        }
+    }
+
+    /**
+     * Reads every complete record of the journal at the specified path, in order, and returns how many were read.
+     * A trailing record that is incomplete or fails its checksum is cut off the file.
+     */
+    public static long replay(Path path, RecordHandler handler) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long records = 0;
+        long validBytes = 0;
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = in.size();
+            ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK_BYTES);
+            chunk.flip();
+            CRC32 crc = new CRC32();
+            while (true) {
+                if (chunk.remaining() < HEADER_BYTES && !fill(in, chunk, HEADER_BYTES)) {
+                    break;
+                }
+                int start = chunk.position();
+                int length = chunk.getInt(start);
+                int checksum = chunk.getInt(start + 4);
+                if (length < 0 || length > fileSize - validBytes - HEADER_BYTES) {
+                    break;
+                }
+                int size = HEADER_BYTES + length;
+                if (chunk.remaining() < size) {
+                    if (chunk.capacity() < size) {
+                        chunk = grow(chunk, size);
+                    }
+                    if (!fill(in, chunk, size)) {
+                        break;
+                    }
+                    start = chunk.position();
+                }
+                crc.reset();
+                crc.update(chunk.array(), chunk.arrayOffset() + start + 8, 5 + length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                byte operation = chunk.get(start + 8);
+                int id = chunk.getInt(start + 9);
+                byte[] payload = new byte[length];
+                chunk.position(start + HEADER_BYTES);
+                chunk.get(payload);
+                handler.onRecord(operation, id, payload);
+                records++;
+                validBytes += size;
+            }
+            if (validBytes < fileSize) {
+                logger.warn("Truncating {} bytes of incomplete or corrupt records at the end of {}", fileSize - validBytes, path);
+                in.truncate(validBytes);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads more of the file into the chunk until at least the specified number of bytes are available.
+     * It returns false if the end of the file is reached first.
+     */
+    private static boolean fill(FileChannel in, ByteBuffer chunk, int needed) throws IOException {
+        chunk.compact();
+        while (chunk.position() < needed) {
+            if (in.read(chunk) < 0) {
+                chunk.flip();
+                return false;
+            }
+        }
+        chunk.flip();
+        return true;
+    }
+
+    /**
+     * Copies the unread bytes of the chunk into a larger buffer that can hold the specified number of bytes.
+     */
+    private static ByteBuffer grow(ByteBuffer chunk, int capacity) {
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        larger.put(chunk);
+        larger.flip();
+        return larger;
+    }
+
+    /**
+     * Appends a record storing the specified serialized entity under the given ID.
+     */
+    public void appendPut(int id, byte[] payload) {
+        append(PUT, id, payload);
+    }
+
+    /**
+     * Appends a record removing the entity with the specified ID.
+     */
+    public void appendRemove(int id) {
+        append(REMOVE, id, new byte[0]);
+    }
+
+    private void append(byte operation, int id, byte[] payload) {
+        byte[] header = new byte[5];
+        header[0] = operation;
+        ByteBuffer.wrap(header, 1, 4).putInt(id);
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(payload);
+        int size = HEADER_BYTES + payload.length;
+        try {
+            synchronized (lock) {
+                if (closed) {
+                    throw new IllegalStateException("Journal " + path + " is closed");
+                }
+                if (buffer.remaining() < size) {
+                    drain();
+                }
+                if (buffer.remaining() < size) {
+                    // Larger than the whole buffer; written straight to the file
+                    ByteBuffer record = ByteBuffer.allocate(size);
+                    writeRecord(record, payload, (int) crc.getValue(), header);
+                    record.flip();
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                } else {
+                    writeRecord(buffer, payload, (int) crc.getValue(), header);
+                }
+                recordsInSegment++;
+                unsynced = true;
+                if (syncMode == SyncMode.ALWAYS) {
+                    drain();
+                    channel.force(false);
+                    unsynced = false;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to append to journal " + path, ex);
+        }
+    }
+
+    private static void writeRecord(ByteBuffer target, byte[] payload, int checksum, byte[] header) {
+        target.putInt(payload.length);
+        target.putInt(checksum);
+        target.put(header);
+        target.put(payload);
+    }
+
+    /**
+     * Writes the buffered records to the file. The caller must hold the lock.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records to the file and, unless the sync mode is NONE, forces them to disk.
+     */
+    public void flush() throws IOException {
+        FileChannel toForce;
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            drain();
+            toForce = unsynced && syncMode != SyncMode.NONE ? channel : null;
+            unsynced = false;
+        }
+        // Forced outside the lock so that appends are not held up by the fsync
+        if (toForce != null) {
+            try {
+                toForce.force(false);
+            } catch (ClosedChannelException ex) {
+                // The segment was rotated or closed meanwhile, which forces it as well
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Error occurred while flushing journal {}: {}", path, ex.getMessage());
+        }
+    }
+
+    /**
+     * Flushes the buffered records and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            drain();
+            channel.force(false);
+            closed = true;
+            channel.close();
+        }
+        openJournals.remove(this);
+    }
+
+    /**
+     * Flushes and closes every open journal. It is called when the application shuts down.
+     */
+    public static void closeAll() {
+        for (Journal journal : openJournals) {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                logger.error("Error occurred while closing journal {}: {}", journal.getPath(), ex.getMessage());
+            }
+        }
+    }
+}
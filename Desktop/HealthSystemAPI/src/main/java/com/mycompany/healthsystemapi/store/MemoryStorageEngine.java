@@ -0,0 +1,410 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Storage engine keeping the entities in memory.
+ * Entities are held in a hash map for constant time get, update and delete,
+ * and their ids are kept in a sorted set so that iteration is always in id order.
+ * Each secondary index keeps, per key, the sorted set of ids carrying it, updated in the same step as the entity.
+ * When journaling is enabled, every write is also appended to the store's journal, snapshots are taken
+ * in the background, and the latest snapshot plus the journal written after it are loaded when the engine
+ * is created, so that data survives a restart or redeploy.
+ * Journaled writes hold the read side of a barrier while they update the map and append their record,
+ * and a snapshot rotates the journal under the write side, so that every write in the segments before the snapshot
+ * is already visible to it.
+ *
+ * @author rachelcooray
+ */
+class MemoryStorageEngine<T> implements StorageEngine<T> {
+    // Attributes of this class
+    private final String name;
+    private final ToIntFunction<T> idOf;
+    private final ConcurrentHashMap<Integer, T> entities = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Integer> ids = new ConcurrentSkipListSet<>();
+    private final Map<SecondaryIndex<T>, ConcurrentHashMap<Integer, ConcurrentSkipListSet<Integer>>> postings = new ConcurrentHashMap<>();
+    // Highest ID ever stored, including IDs removed since, so that they are not handed out again
+    private final AtomicInteger highestId = new AtomicInteger();
+    private final EntityCodec<T> codec;
+    private final Journal journal;
+    // Held shared by journaled writes, and exclusively while the journal is rotated for a snapshot
+    private final ReadWriteLock rotation = new ReentrantReadWriteLock();
+    private static final Logger logger = LoggerFactory.getLogger(MemoryStorageEngine.class); // For logging messages
+
+    /**
+     * Constructs an engine for the named store. If journaling is enabled, the entities recorded
+     * in the store's snapshot and journal are loaded first.
+     */
+    MemoryStorageEngine(String name, Class<T> type, ToIntFunction<T> idOf, boolean journaled) {
+        this.name = name;
+        this.idOf = idOf;
+        this.codec = new EntityCodec<>(type);
+        this.journal = journaled ? openJournal() : null;
+    }
+
+    /**
+     * Loads the latest readable snapshot, replays the journal segments written after it,
+     * and opens the journal for appending.
+     */
+    private Journal openJournal() {
+        Path directory = StorageConfig.dataDirectory();
+        try {
+            Files.createDirectories(directory);
+            Path legacy = directory.resolve(name + ".journal");
+            if (Files.exists(legacy) && Journal.segments(directory, name).isEmpty()) {
+                // Journal written before segments were introduced
+                Files.move(legacy, Journal.segmentPath(directory, name, 1));
+            }
+
+            long start = System.nanoTime();
+            long fromSegment = loadSnapshot(directory);
+            long snapshotNanos = System.nanoTime() - start;
+            int fromSnapshot = size();
+
+            long records = 0;
+            long lastSegment = Math.max(1, fromSegment);
+            for (long segment : Journal.segments(directory, name)) {
+                if (segment < fromSegment) {
+                    continue;
+                }
+                records += Journal.replay(Journal.segmentPath(directory, name, segment), (operation, id, payload) -> {
+                    if (operation == Journal.PUT) {
+                        store(codec.decode(payload), null);
+                    } else {
+                        delete(id, false);
+                    }
+                });
+                lastSegment = Math.max(lastSegment, segment);
+            }
+            long totalNanos = System.nanoTime() - start;
+            logger.info("Recovered {} entities for {} in {} ms: {} from snapshot in {} ms, then {} journal records in {} ms",
+                    size(), name, totalNanos / 1000000, fromSnapshot, snapshotNanos / 1000000,
+                    records, (totalNanos - snapshotNanos) / 1000000);
+
+            Journal opened = new Journal(directory, name, lastSegment, StorageConfig.journalSyncMode(),
+                    StorageConfig.journalSyncIntervalMillis());
+            long interval = StorageConfig.snapshotIntervalSeconds();
+            if (interval > 0) {
+                Snapshot.schedule(this::snapshotIfDue, interval);
+            }
+            return opened;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open the journal of " + name, ex);
+        }
+    }
+
+    /**
+     * Loads the newest snapshot that can be read completely and returns its number,
+     * or zero if there is none, in which case the whole journal must be replayed.
+     */
+    private long loadSnapshot(Path directory) throws IOException {
+        List<Long> numbers = Snapshot.numbers(directory, name);
+        for (int i = numbers.size() - 1; i >= 0; i--) {
+            long number = numbers.get(i);
+            try {
+                Snapshot.load(Snapshot.path(directory, name, number), id -> highestId.accumulateAndGet(id, Math::max),
+                        (id, payload) -> store(codec.decodeBinary(payload), null));
+                return number;
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("Skipping unreadable snapshot {} of {}: {}", number, name, ex.getMessage());
+                entities.clear();
+                ids.clear();
+                highestId.set(0);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Takes a snapshot if enough has been journaled since the last one. It runs on the snapshot thread.
+     */
+    private void snapshotIfDue() {
+        try {
+            if (journal.recordsInSegment() >= StorageConfig.snapshotMinRecords()) {
+                snapshot();
+            }
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Error occurred while taking a snapshot of {}: {}", name, ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot of the store, then deletes the files it makes unnecessary.
+     * The journal is rotated first, once the writes in progress have finished, so every write in the older segments
+     * is in the map before the scan starts; writes the scan misses or sees only partly are in the new segment,
+     * and replaying it on top of the snapshot gives the same state. Writers are held up only for the rotation.
+     * The previous snapshot and the segments after it are kept in case the new snapshot cannot be read.
+     */
+    @Override
+    public synchronized void snapshot() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        Path directory = StorageConfig.dataDirectory();
+        long segment;
+        int highest;
+        rotation.writeLock().lock();
+        try {
+            segment = journal.rotate();
+            highest = highestId.get();
+        } finally {
+            rotation.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        long count = Snapshot.write(Snapshot.path(directory, name, segment), highest, () -> scan(null), idOf, codec::encodeBinary);
+        logger.info("Wrote snapshot {} of {} with {} entities in {} ms", segment, name, count, (System.nanoTime() - start) / 1000000);
+
+        List<Long> numbers = Snapshot.numbers(directory, name);
+        if (numbers.size() >= 2) {
+            long keepFrom = numbers.get(numbers.size() - 2);
+            for (long number : numbers) {
+                if (number < keepFrom) {
+                    Files.deleteIfExists(Snapshot.path(directory, name, number));
+                }
+            }
+            for (long number : Journal.segments(directory, name)) {
+                if (number < keepFrom) {
+                    Files.deleteIfExists(Journal.segmentPath(directory, name, number));
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes the journal, after which the engine must not be written to.
+     */
+    void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public T get(int id) {
+        return entities.get(id);
+    }
+
+    @Override
+    public T put(int id, T entity) {
+        return store(entity, journal == null ? null : codec.encode(entity));
+    }
+
+    @Override
+    public void putAll(List<T> batch) {
+        for (T entity : batch) {
+            put(idOf.applyAsInt(entity), entity);
+        }
+    }
+
+    /**
+     * Stores the entity and, if a serialized record is given, journals it while the entry is still locked,
+     * so the journal holds the writes to one ID in the same order as the map.
+     */
+    private T store(T entity, byte[] record) {
+        Object[] replaced = new Object[1];
+        int id = idOf.applyAsInt(entity);
+        enterWrite(record != null);
+        try {
+            highestId.accumulateAndGet(id, Math::max);
+            entities.compute(id, (key, existing) -> {
+                ids.add(key);
+                reindex(key, existing, entity);
+                if (record != null) {
+                    journal.appendPut(key, record);
+                }
+                replaced[0] = existing;
+                return entity;
+            });
+        } finally {
+            exitWrite(record != null);
+        }
+        @SuppressWarnings("unchecked")
+        T previous = (T) replaced[0];
+        return previous;
+    }
+
+    @Override
+    public T replace(int id, T entity) {
+        byte[] record = journal == null ? null : codec.encode(entity);
+        Object[] replaced = new Object[1];
+        enterWrite(record != null);
+        try {
+            entities.computeIfPresent(id, (key, existing) -> {
+                reindex(key, existing, entity);
+                if (record != null) {
+                    journal.appendPut(key, record);
+                }
+                replaced[0] = existing;
+                return entity;
+            });
+        } finally {
+            exitWrite(record != null);
+        }
+        @SuppressWarnings("unchecked")
+        T previous = (T) replaced[0];
+        return previous;
+    }
+
+    @Override
+    public T remove(int id) {
+        return delete(id, journal != null);
+    }
+
+    private T delete(int id, boolean journaled) {
+        Object[] removed = new Object[1];
+        enterWrite(journaled);
+        try {
+            entities.computeIfPresent(id, (key, existing) -> {
+                ids.remove(key);
+                reindex(key, existing, null);
+                if (journaled) {
+                    journal.appendRemove(key);
+                }
+                removed[0] = existing;
+                return null;
+            });
+        } finally {
+            exitWrite(journaled);
+        }
+        @SuppressWarnings("unchecked")
+        T entity = (T) removed[0];
+        return entity;
+    }
+
+    /**
+     * Keeps the journal from being rotated until exitWrite is called, if the write is journaled.
+     */
+    private void enterWrite(boolean journaled) {
+        if (journaled) {
+            rotation.readLock().lock();
+        }
+    }
+
+    private void exitWrite(boolean journaled) {
+        if (journaled) {
+            rotation.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addIndex(SecondaryIndex<T> index) {
+        postings.put(index, new ConcurrentHashMap<>());
+        for (Integer id : ids) {
+            entities.computeIfPresent(id, (key, existing) -> {
+                updatePostings(index, key, null, existing);
+                return existing;
+            });
+        }
+    }
+
+    /**
+     * Updates every secondary index for a change of the entity with the specified ID.
+     * It is called while the entity's map entry is locked, so index updates for one ID never interleave.
+     */
+    private void reindex(int id, T oldEntity, T newEntity) {
+        for (SecondaryIndex<T> index : postings.keySet()) {
+            updatePostings(index, id, oldEntity, newEntity);
+        }
+    }
+
+    /**
+     * Moves the ID from the posting set of the entity's old key to that of its new key.
+     * Either entity may be null, for an insert or a delete.
+     */
+    private void updatePostings(SecondaryIndex<T> index, int id, T oldEntity, T newEntity) {
+        ConcurrentHashMap<Integer, ConcurrentSkipListSet<Integer>> byKey = postings.get(index);
+        Integer oldKey = index.keyOf(oldEntity);
+        Integer newKey = index.keyOf(newEntity);
+        if (oldKey != null && !oldKey.equals(newKey)) {
+            byKey.computeIfPresent(oldKey, (key, postingIds) -> {
+                postingIds.remove(id);
+                return postingIds.isEmpty() ? null : postingIds;
+            });
+        }
+        if (newKey != null) {
+            // Added within compute, so that a concurrent removal cannot drop the set while it is being added to
+            byKey.compute(newKey, (key, postingIds) -> {
+                ConcurrentSkipListSet<Integer> updated = postingIds == null ? new ConcurrentSkipListSet<>() : postingIds;
+                updated.add(id);
+                return updated;
+            });
+        }
+    }
+
+    @Override
+    public Iterator<T> scan(Integer afterId) {
+        return lookup(afterId == null ? ids : ids.tailSet(afterId, false), entity -> true);
+    }
+
+    @Override
+    public Iterator<T> scanIndex(SecondaryIndex<T> index, int key, Integer afterId) {
+        NavigableSet<Integer> keyIds = postings.get(index).get(key);
+        if (keyIds == null) {
+            return Collections.emptyIterator();
+        }
+        // The entity may have been re-keyed since its ID was read from the index
+        return lookup(afterId == null ? keyIds : keyIds.tailSet(afterId, false), entity -> index.matches(entity, key));
+    }
+
+    /**
+     * Resolves a set of IDs into an iterator of the entities still stored under them that pass the filter.
+     * The iteration reflects writes made while it is in progress and never fails because of them.
+     */
+    private Iterator<T> lookup(NavigableSet<Integer> candidateIds, Predicate<T> filter) {
+        Iterator<Integer> idIterator = candidateIds.iterator();
+        return new Iterator<T>() {
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && idIterator.hasNext()) {
+                    T entity = entities.get(idIterator.next());
+                    if (entity != null && filter.test(entity)) {
+                        next = entity;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T entity = next;
+                next = null;
+                return entity;
+            }
+        };
+    }
+
+    @Override
+    public int highestId() {
+        return highestId.get();
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+}
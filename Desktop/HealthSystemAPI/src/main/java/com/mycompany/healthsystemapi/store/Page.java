@@ -0,0 +1,82 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Represents one page of entities read from a store in ID order, or in the order of a range or text index.
+ * 
+ * A page holds the entities and, when more follow, the ID after which the next page starts,
+ * for a range index the position after which it starts, or for a text index the cursor to resume the search.
+ *
+ * @author rachelcooray
+ */
+public class Page<T> {
+    // Attributes of this class
+    private final List<T> items;
+    private final Integer nextAfterId;
+    private final Long nextAfterPosition;
+    private final TextIndex.Cursor nextSearchCursor;
+
+    /**
+     * Constructs a page with the specified entities and the ID to continue after, or null if this is the last page.
+     */
+    public Page(List<T> items, Integer nextAfterId) {
+        this(items, nextAfterId, null, null);
+    }
+
+    private Page(List<T> items, Integer nextAfterId, Long nextAfterPosition, TextIndex.Cursor nextSearchCursor) {
+        this.items = items;
+        this.nextAfterId = nextAfterId;
+        this.nextAfterPosition = nextAfterPosition;
+        this.nextSearchCursor = nextSearchCursor;
+    }
+
+    /**
+     * Creates a page read from a range index, with the position to continue after, or null if this is the last page.
+     */
+    public static <T> Page<T> ofRange(List<T> items, Long nextAfterPosition) {
+        return new Page<>(items, null, nextAfterPosition, null);
+    }
+
+    /**
+     * Creates a page read from a text index, with the cursor to resume the search, or null if this is the last page.
+     */
+    public static <T> Page<T> ofSearch(List<T> items, TextIndex.Cursor nextSearchCursor) {
+        return new Page<>(items, null, null, nextSearchCursor);
+    }
+
+    // Getters of each attribute
+    public List<T> getItems() {
+        return items;
+    }
+
+    public Integer getNextAfterId() {
+        return nextAfterId;
+    }
+
+    public Long getNextAfterPosition() {
+        return nextAfterPosition;
+    }
+
+    public TextIndex.Cursor getNextSearchCursor() {
+        return nextSearchCursor;
+    }
+
+    /**
+     * Creates a page holding the result of the function for each entity, continuing at the same place.
+     */
+    public <R> Page<R> map(Function<? super T, ? extends R> function) {
+        List<R> mapped = new ArrayList<>(items.size());
+        for (T item : items) {
+            mapped.add(function.apply(item));
+        }
+        return new Page<>(mapped, nextAfterId, nextAfterPosition, nextSearchCursor);
+    }
+
+    public boolean hasNext() {
+        return nextAfterId != null || nextAfterPosition != null || nextSearchCursor != null;
+    }
+}
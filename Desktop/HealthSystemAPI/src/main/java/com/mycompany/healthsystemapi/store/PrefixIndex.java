@@ -0,0 +1,291 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Typeahead index over short text fields of the entities, such as a person's name and contact info.
+ * Each word of the fields is indexed under its leading characters (edge n-grams), up to MAX_PREFIX of them,
+ * each with a sorted list of the IDs of the entities having a word that starts with them.
+ *
+ * A query matches the entities having, for every word of the query, a word that starts with it,
+ * so "tay lau" finds "Taylor Lautner". Matches are found in ID order by walking the shortest list
+ * and probing the others, which stops as soon as a page is full; words longer than MAX_PREFIX
+ * are looked up by their first MAX_PREFIX characters and checked against the entity.
+ *
+ * Matches are not ranked: a page holds the first N matches by ID, and the next page continues after the last ID.
+ * Ranking them would mean reading every match before returning the first page, and a cursor holding more than an ID.
+ *
+ * @author rachelcooray
+ */
+public class PrefixIndex<T> implements StoreListener<T> {
+    // Longest prefix indexed; longer ones would mostly hold a single entity each
+    static final int MAX_PREFIX = 6;
+
+    private static final int MAX_WORD_LENGTH = 64;
+    private static final int BATCH = 256;
+
+    // Attributes of this class
+    private final List<Function<T, String>> fields;
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an index over the words of the specified fields. A field may return null.
+     */
+    public PrefixIndex(List<Function<T, String>> fields) {
+        this.fields = new ArrayList<>(fields);
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (word.length() < MAX_WORD_LENGTH) {
+                    word.append(Character.toLowerCase(c));
+                }
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gives the distinct prefixes the entity is indexed under.
+     */
+    private Set<String> prefixesOf(T entity) {
+        Set<String> prefixes = new HashSet<>();
+        for (Function<T, String> field : fields) {
+            for (String word : words(field.apply(entity))) {
+                for (int length = 1; length <= Math.min(MAX_PREFIX, word.length()); length++) {
+                    prefixes.add(word.substring(0, length));
+                }
+            }
+        }
+        return prefixes;
+    }
+
+    @Override
+    public void onWrite(int id, T previous, T current) {
+        Set<String> oldPrefixes = previous == null ? Collections.<String>emptySet() : prefixesOf(previous);
+        Set<String> newPrefixes = current == null ? Collections.<String>emptySet() : prefixesOf(current);
+        for (String prefix : oldPrefixes) {
+            if (!newPrefixes.contains(prefix)) {
+                postings.computeIfPresent(prefix, (key, list) -> list.remove(id) ? null : list);
+            }
+        }
+        for (String prefix : newPrefixes) {
+            if (!oldPrefixes.contains(prefix)) {
+                // Added within compute, so that a concurrent removal cannot drop the list while it is being added to
+                postings.compute(prefix, (key, list) -> {
+                    Postings target = list == null ? new Postings() : list;
+                    target.add(id);
+                    return target;
+                });
+            }
+        }
+    }
+
+    /**
+     * Checks whether the entity has, for every word of the query, a word starting with it.
+     */
+    public boolean matches(T entity, String query) {
+        return matcher(query).test(entity);
+    }
+
+    /**
+     * Gives a check of whether an entity has, for every word of the query, a word starting with it.
+     * The query is split once, and the fields are checked in place without splitting them, as it runs on every candidate.
+     */
+    public Predicate<T> matcher(String query) {
+        List<String> queryWords = words(query);
+        return entity -> {
+            for (String queryWord : queryWords) {
+                boolean found = false;
+                for (int i = 0; i < fields.size() && !found; i++) {
+                    found = hasWordStartingWith(fields.get(i).apply(entity), queryWord);
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static boolean hasWordStartingWith(String text, String prefix) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i + prefix.length() <= text.length(); i++) {
+            boolean wordStart = Character.isLetterOrDigit(text.charAt(i)) && (i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1)));
+            if (wordStart && text.regionMatches(true, i, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Iterates, in ascending order and after the specified ID if it is not null, over the IDs of the entities
+     * that may match the query. Entities whose words are longer than MAX_PREFIX may not match and should be checked.
+     * It gives no IDs for a query without words.
+     */
+    public Iterator<Integer> candidates(String query, Integer afterId) {
+        Set<String> prefixes = new HashSet<>();
+        for (String word : words(query)) {
+            prefixes.add(word.length() > MAX_PREFIX ? word.substring(0, MAX_PREFIX) : word);
+        }
+        List<Postings> lists = new ArrayList<>(prefixes.size());
+        for (String prefix : prefixes) {
+            Postings list = postings.get(prefix);
+            if (list == null) {
+                return Collections.emptyIterator();
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        Postings shortest = lists.get(0);
+        for (Postings list : lists) {
+            if (list.size() < shortest.size()) {
+                shortest = list;
+            }
+        }
+        lists.remove(shortest);
+        return new CandidateIterator(shortest, lists, afterId == null ? Integer.MIN_VALUE : afterId);
+    }
+
+    /**
+     * Walks the shortest list in batches, keeping the IDs present in every other list.
+     */
+    private static final class CandidateIterator implements Iterator<Integer> {
+        private final Postings driver;
+        private final List<Postings> others;
+        private final int[] batch = new int[BATCH];
+        private int batchSize;
+        private int batchIndex;
+        private int lastId;
+        private boolean exhausted;
+        private Integer next;
+
+        private CandidateIterator(Postings driver, List<Postings> others, int afterId) {
+            this.driver = driver;
+            this.others = others;
+            this.lastId = afterId;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (batchIndex == batchSize) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    batchSize = driver.copyAfter(lastId, batch);
+                    batchIndex = 0;
+                    exhausted = batchSize < batch.length;
+                    if (batchSize == 0) {
+                        return false;
+                    }
+                    lastId = batch[batchSize - 1];
+                }
+                int id = batch[batchIndex++];
+                boolean inAll = true;
+                for (Postings other : others) {
+                    if (!other.contains(id)) {
+                        inAll = false;
+                        break;
+                    }
+                }
+                if (inAll) {
+                    next = id;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Integer id = next;
+            next = null;
+            return id;
+        }
+    }
+
+    /**
+     * Sorted IDs of the entities indexed under one prefix, synchronized on the list.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void add(int id) {
+            int index = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        /**
+         * Removes the ID and returns true if the list is left empty.
+         */
+        synchronized boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        synchronized boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        /**
+         * Copies the IDs following the specified one into the batch, as many as fit, and returns how many were copied.
+         */
+        synchronized int copyAfter(int afterId, int[] batch) {
+            int from = Arrays.binarySearch(ids, 0, size, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            int count = Math.min(batch.length, size - from);
+            System.arraycopy(ids, from, batch, 0, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Ordered index of the entities of a store by an integer value, such as the minute an appointment starts,
+ * kept both over the whole store and per group, such as per doctor.
+ * Each entry packs the value and the entity ID into one long, value first, so the entries sort by value
+ * and then by ID, and a range of values is read as a sub-set without looking at the entries outside it.
+ * The packed entry, called a position, also serves as the cursor to resume a range scan from.
+ *
+ * @author rachelcooray
+ */
+public class RangeIndex<T> implements StoreListener<T> {
+    // Attributes of this class
+    private final Function<T, Integer> valueOf;
+    private final Function<T, Integer> groupOf;
+    private final ConcurrentSkipListSet<Long> all = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListSet<Long>> byGroup = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an index over the value returned by valueOf, grouped by the key returned by groupOf.
+     * Either function may return null for entities that should be left out of the index or of any group.
+     */
+    public RangeIndex(Function<T, Integer> valueOf, Function<T, Integer> groupOf) {
+        this.valueOf = valueOf;
+        this.groupOf = groupOf;
+    }
+
+    /**
+     * Packs a value and an ID into a position.
+     */
+    public static long position(int value, int id) {
+        return ((long) value << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gives the ID packed into a position.
+     */
+    public static int idOf(long position) {
+        return (int) position;
+    }
+
+    @Override
+    public void onWrite(int id, T previous, T current) {
+        Integer oldValue = previous == null ? null : valueOf.apply(previous);
+        Integer newValue = current == null ? null : valueOf.apply(current);
+        Integer oldGroup = previous == null ? null : groupOf.apply(previous);
+        Integer newGroup = current == null ? null : groupOf.apply(current);
+        if (oldValue != null) {
+            long oldPosition = position(oldValue, id);
+            if (!oldValue.equals(newValue)) {
+                all.remove(oldPosition);
+            }
+            if (oldGroup != null && (!oldValue.equals(newValue) || !oldGroup.equals(newGroup))) {
+                byGroup.computeIfPresent(oldGroup, (key, positions) -> {
+                    positions.remove(oldPosition);
+                    return positions.isEmpty() ? null : positions;
+                });
+            }
+        }
+        if (newValue != null) {
+            long newPosition = position(newValue, id);
+            all.add(newPosition);
+            if (newGroup != null) {
+                byGroup.computeIfAbsent(newGroup, key -> new ConcurrentSkipListSet<>()).add(newPosition);
+            }
+        }
+    }
+
+    /**
+     * Iterates over the positions with a value from 'from' to 'to', both included, in order,
+     * within the specified group or over the whole store if it is null,
+     * and starting after the specified position if it is not null.
+     */
+    public Iterator<Long> positions(int from, int to, Integer group, Long afterPosition) {
+        NavigableSet<Long> positions = group == null ? all : byGroup.get(group);
+        if (positions == null || from > to) {
+            return Collections.emptyIterator();
+        }
+        long low = position(from, 0);
+        boolean lowInclusive = true;
+        if (afterPosition != null && afterPosition >= low) {
+            low = afterPosition;
+            lowInclusive = false;
+        }
+        long high = position(to, -1);
+        if (low > high) {
+            return Collections.emptyIterator();
+        }
+        return positions.subSet(low, lowInclusive, high, true).iterator();
+    }
+
+    /**
+     * Checks whether the entity is still indexed at the specified position, and in the group if one is given.
+     */
+    public boolean matches(T entity, long position, Integer group) {
+        Integer value = valueOf.apply(entity);
+        if (value == null || position(value, idOf(position)) != position) {
+            return false;
+        }
+        return group == null || group.equals(groupOf.apply(entity));
+    }
+}
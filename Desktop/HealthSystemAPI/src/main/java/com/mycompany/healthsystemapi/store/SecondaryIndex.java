@@ -0,0 +1,66 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.function.Function;
+
+/**
+ * Secondary index of an entity store, mapping an integer key (such as a doctor or patient ID)
+ * to the entities carrying that key.
+ * It only describes the index; the storage engine of the store keeps it up to date on every write.
+ * Each key also has a version, bumped by every write to an entity carrying it, so that the entities
+ * under a key can be told unchanged without reading them.
+ *
+ * @author rachelcooray
+ */
+public class SecondaryIndex<T> {
+    // Attributes of this class
+    private final String name;
+    private final Function<T, Integer> keyOf;
+    private final VersionStamps versions = new VersionStamps();
+
+    /**
+     * Constructs an index with the specified name and a function reading the key of an entity.
+     * The function may return null for entities that should not be indexed.
+     */
+    SecondaryIndex(String name, Function<T, Integer> keyOf) {
+        this.name = name;
+        this.keyOf = keyOf;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gives the key of the entity, or null if the entity is not indexed.
+     */
+    public Integer keyOf(T entity) {
+        return entity == null ? null : keyOf.apply(entity);
+    }
+
+    /**
+     * Checks whether the entity is indexed under the specified key.
+     */
+    public boolean matches(T entity, int key) {
+        Integer entityKey = keyOf(entity);
+        return entityKey != null && entityKey == key;
+    }
+
+    /**
+     * Gives the version of the entities with the specified key. It changes whenever one of them is written,
+     * including when an entity gains or loses the key.
+     */
+    public long versionOf(int key) {
+        return versions.get(key);
+    }
+
+    /**
+     * Sets the version of the key of the entity, if it is indexed.
+     */
+    void stamp(T entity, long version) {
+        Integer key = keyOf(entity);
+        if (key != null) {
+            versions.stamp(key, version);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * The JSON of the entities of a store, as sent by the API.
+ * When enabled (healthsystem.json.cacheEntities), every entity is serialized once, when it is written,
+ * and reads copy its bytes rather than serializing it again; otherwise entities are serialized as they are read.
+ *
+ * The bytes kept for an ID may be a write ahead of or behind an entity read from the store at the same time,
+ * as they are replaced by a listener just after the write. Either is a state the entity really had since the version
+ * a response was tagged with was read, so the bytes are used for the entity with the same ID whichever it is.
+ *
+ * @author rachelcooray
+ */
+public class SerializedEntities<T> implements StoreListener<T> {
+    // Attributes of this class
+    private final ObjectWriter writer;
+    private final ToIntFunction<T> idOf;
+    private final ConcurrentHashMap<Integer, byte[]> json = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs the JSON of entities written with the specified writer, whose IDs are read by the given function.
+     */
+    public SerializedEntities(ObjectWriter writer, ToIntFunction<T> idOf) {
+        this.writer = writer;
+        this.idOf = idOf;
+    }
+
+    @Override
+    public void onWrite(int id, T previous, T current) {
+        if (current == null) {
+            json.remove(id);
+        } else {
+            json.put(id, serialize(current));
+        }
+    }
+
+    /**
+     * Gives the JSON of the entity.
+     */
+    public byte[] toJson(T entity) {
+        byte[] bytes = json.get(idOf.applyAsInt(entity));
+        return bytes != null ? bytes : serialize(entity);
+    }
+
+    /**
+     * Gives the JSON array of the entities, copied together from the JSON of each.
+     */
+    public byte[] toJsonArray(List<T> entities) {
+        byte[][] parts = new byte[entities.size()][];
+        int length = 2 + Math.max(0, parts.length - 1);
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = toJson(entities.get(i));
+            length += parts[i].length;
+        }
+        byte[] array = new byte[length];
+        int position = 0;
+        array[position++] = '[';
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                array[position++] = ',';
+            }
+            System.arraycopy(parts[i], 0, array, position, parts[i].length);
+            position += parts[i].length;
+        }
+        array[position] = ']';
+        return array;
+    }
+
+    private byte[] serialize(T entity) {
+        try {
+            return writer.writeValueAsBytes(entity);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException("Failed to serialize " + entity, ex);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary snapshot of all entities of a store at one point of its journal.
+ *
+ * A snapshot numbered N holds every write made before journal segment N was started,
+ * so a store is rebuilt by loading the snapshot and replaying segments N and above.
+ * The file starts with a magic number, a format version and the highest ID the store had handed out,
+ * including IDs removed since, then holds one record per entity laid out as
+ * payload length (int), CRC32 of ID and payload (int), entity ID (int), payload, and ends with
+ * a -1 length marker followed by the number of records (long).
+ * Snapshots are written to a temporary file and renamed into place, so a crash never leaves a partial one,
+ * and they are read through memory-mapped windows rather than copied through stream buffers.
+ *
+ * @author rachelcooray
+ */
+public final class Snapshot {
+    private static final int MAGIC = 0x48535331; // "HSS1"
+    private static final int VERSION = 2;
+    // Snapshots of version 1 do not record the highest ID
+    private static final int VERSION_WITHOUT_HIGHEST_ID = 1;
+    private static final int RECORD_HEADER_BYTES = 4 + 4 + 4;
+    private static final long MAP_WINDOW_BYTES = 256L << 20;
+    private static final String SUFFIX = ".snapshot";
+    private static final long STOP_TIMEOUT_SECONDS = 30;
+    private static final Logger logger = LoggerFactory.getLogger(Snapshot.class); // For logging messages
+
+    // Single background thread taking the periodic snapshots of every store, started with the first of them
+    private static ScheduledExecutorService writer;
+
+    /**
+     * Receives the entities read back from a snapshot.
+     */
+    public interface EntryHandler {
+        void onEntry(int id, byte[] payload);
+    }
+
+    private Snapshot() {
+    }
+
+    /**
+     * Gives the path of the specified snapshot of the named store.
+     */
+    public static Path path(Path directory, String name, long number) {
+        return directory.resolve(String.format("%s-%010d%s", name, number, SUFFIX));
+    }
+
+    /**
+     * Lists the snapshot numbers of the named store found in the directory, in ascending order.
+     */
+    public static List<Long> numbers(Path directory, String name) throws IOException {
+        return StoreFiles.numbered(directory, name, SUFFIX);
+    }
+
+    /**
+     * Runs the task periodically on the background snapshot thread, until stopAll is called.
+     */
+    static synchronized void schedule(Runnable task, long intervalSeconds) {
+        if (writer == null) {
+            writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+        }
+        writer.scheduleWithFixedDelay(task, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Cancels the periodic snapshots and stops the snapshot thread, waiting for a snapshot in progress to finish.
+     * It is called when the application shuts down, before the journals are closed.
+     */
+    static void stopAll() {
+        ScheduledExecutorService stopped;
+        synchronized (Snapshot.class) {
+            stopped = writer;
+            writer = null;
+        }
+        if (stopped == null) {
+            return;
+        }
+        stopped.shutdownNow();
+        try {
+            if (!stopped.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Snapshot still in progress after {} seconds, closing the journals anyway", STOP_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the entities to a snapshot file, along with the highest ID the store has handed out, and returns how many were written.
+     */
+    public static <T> long write(Path file, int highestId, Iterable<T> entities, ToIntFunction<T> idOf, Function<T, byte[]> encoder) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(highestId);
+            CRC32 crc = new CRC32();
+            byte[] idBytes = new byte[4];
+            for (T entity : entities) {
+                int id = idOf.applyAsInt(entity);
+                byte[] payload = encoder.apply(entity);
+                ByteBuffer.wrap(idBytes).putInt(id);
+                crc.reset();
+                crc.update(idBytes);
+                crc.update(payload);
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(idBytes);
+                out.write(payload);
+                count++;
+            }
+            out.writeInt(-1);
+            out.writeLong(count);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads every entity of a snapshot file, in order, and returns how many were read.
+     * The highest ID recorded in the file is passed to highestIdHandler first, unless the file predates it.
+     * It throws IOException if the file is truncated or corrupt, after which the handler may have seen part of it.
+     */
+    public static long load(Path file, IntConsumer highestIdHandler, EntryHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel);
+            ByteBuffer header = in.require(8);
+            int magic = header.getInt();
+            int version = header.getInt();
+            if (magic != MAGIC || version != VERSION && version != VERSION_WITHOUT_HIGHEST_ID) {
+                throw new IOException("Not a snapshot, or an unsupported version: " + file);
+            }
+            if (version != VERSION_WITHOUT_HIGHEST_ID) {
+                highestIdHandler.accept(in.require(4).getInt());
+            }
+            CRC32 crc = new CRC32();
+            long count = 0;
+            while (true) {
+                int length = in.require(4).getInt();
+                if (length == -1) {
+                    long expected = in.require(8).getLong();
+                    if (expected != count) {
+                        throw new IOException("Snapshot " + file + " holds " + count + " records instead of " + expected);
+                    }
+                    return count;
+                }
+                if (length < 0) {
+                    throw new IOException("Corrupt record length in snapshot " + file);
+                }
+                ByteBuffer record = in.require(RECORD_HEADER_BYTES - 4 + length);
+                int checksum = record.getInt();
+                ByteBuffer checked = record.slice();
+                checked.limit(4 + length);
+                crc.reset();
+                crc.update(checked);
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("Checksum mismatch in snapshot " + file);
+                }
+                int id = record.getInt();
+                byte[] payload = new byte[length];
+                record.get(payload);
+                handler.onEntry(id, payload);
+                count++;
+            }
+        }
+    }
+
+    /**
+     * Sequential reader over a file mapped into memory one window at a time,
+     * so files larger than a single mapping can still be read.
+     */
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedInput(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW_BYTES, size - start));
+        }
+
+        /**
+         * Consumes the next bytes and returns a buffer positioned on them, remapping the window if they cross its end.
+         */
+        ByteBuffer require(int bytes) throws IOException {
+            long position = windowStart + window.position();
+            if (position + bytes > size) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+            if (window.remaining() < bytes) {
+                if (bytes > MAP_WINDOW_BYTES) {
+                    throw new IOException("Snapshot record larger than the mapping window");
+                }
+                map(position);
+            }
+            ByteBuffer view = window.slice();
+            view.limit(bytes);
+            window.position(window.position() + bytes);
+            return view;
+        }
+    }
+}
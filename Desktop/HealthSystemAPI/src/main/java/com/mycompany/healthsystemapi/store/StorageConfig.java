@@ -0,0 +1,177 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Deploy-time settings of the storage layer, read from system properties.
+ *
+ * healthsystem.storage - memory, jdbc or the name of a plugged-in engine; where the stores keep their entities (default: memory)
+ * healthsystem.data.dir - directory holding the journals and snapshots (default: ~/.healthsystemapi/data)
+ * healthsystem.journal.enabled - whether writes are journaled to disk (default: true)
+ * healthsystem.journal.sync - interval, always or none; when the journal is forced to disk (default: interval)
+ * healthsystem.journal.syncIntervalMillis - delay between two background flushes in interval mode (default: 50)
+ * healthsystem.snapshot.intervalSeconds - how often stores are checked for a snapshot, 0 to disable (default: 300)
+ * healthsystem.snapshot.minRecords - journal records needed since the last snapshot to take a new one (default: 10000)
+ * healthsystem.json.cacheEntities - whether the JSON of every entity is kept from its write for the reads (default: false)
+ *
+ * The jdbc engine connects with the javax.persistence.jdbc properties of my_persistence_unit in META-INF/persistence.xml,
+ * each of which can be overridden by healthsystem.jdbc.driver, healthsystem.jdbc.url, healthsystem.jdbc.user,
+ * healthsystem.jdbc.password and healthsystem.jdbc.poolSize.
+ *
+ * @author rachelcooray
+ */
+public final class StorageConfig {
+    private static final String PERSISTENCE_UNIT = "my_persistence_unit";
+    private static volatile Properties persistenceProperties;
+
+    private StorageConfig() {
+    }
+
+    /**
+     * Gives the directory in which the stores keep their files.
+     */
+    public static Path dataDirectory() {
+        String configured = System.getProperty("healthsystem.data.dir");
+        if (configured != null && !configured.trim().isEmpty()) {
+            return Paths.get(configured.trim());
+        }
+        return Paths.get(System.getProperty("user.home"), ".healthsystemapi", "data");
+    }
+
+    /**
+     * Checks whether writes should be journaled to disk.
+     */
+    public static boolean journalEnabled() {
+        return Boolean.parseBoolean(System.getProperty("healthsystem.journal.enabled", "true"));
+    }
+
+    /**
+     * Checks whether the stores keep the JSON of their entities, serialized when they are written.
+     */
+    public static boolean serializedEntitiesEnabled() {
+        return Boolean.parseBoolean(System.getProperty("healthsystem.json.cacheEntities", "false"));
+    }
+
+    /**
+     * Gives when the journal is forced to disk.
+     */
+    public static Journal.SyncMode journalSyncMode() {
+        String mode = System.getProperty("healthsystem.journal.sync", "interval");
+        try {
+            return Journal.SyncMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException("Unknown healthsystem.journal.sync mode: " + mode, ex);
+        }
+    }
+
+    /**
+     * Gives the delay, in milliseconds, between two background flushes of the journal.
+     */
+    public static long journalSyncIntervalMillis() {
+        return Long.getLong("healthsystem.journal.syncIntervalMillis", 50L);
+    }
+
+    /**
+     * Gives how often, in seconds, the stores are checked for a new snapshot, or zero if snapshots are disabled.
+     */
+    public static long snapshotIntervalSeconds() {
+        return Long.getLong("healthsystem.snapshot.intervalSeconds", 300L);
+    }
+
+    /**
+     * Gives the number of journal records that must be written since the last snapshot before a new one is taken.
+     */
+    public static long snapshotMinRecords() {
+        return Long.getLong("healthsystem.snapshot.minRecords", 10000L);
+    }
+
+    /**
+     * Gives the name of the storage engine the stores use, such as memory or jdbc.
+     */
+    public static String storageEngine() {
+        return System.getProperty("healthsystem.storage", "memory").trim().toLowerCase();
+    }
+
+    /**
+     * Gives the JDBC URL of the database used by the jdbc engine.
+     */
+    public static String jdbcUrl() {
+        return jdbcSetting("healthsystem.jdbc.url", "javax.persistence.jdbc.url",
+                "jdbc:h2:file:" + dataDirectory().resolve("healthsystem") + ";QUERY_CACHE_SIZE=64");
+    }
+
+    /**
+     * Gives the class name of the JDBC driver, or null to pick it from the URL.
+     */
+    public static String jdbcDriver() {
+        return jdbcSetting("healthsystem.jdbc.driver", "javax.persistence.jdbc.driver", null);
+    }
+
+    public static String jdbcUser() {
+        return jdbcSetting("healthsystem.jdbc.user", "javax.persistence.jdbc.user", "sa");
+    }
+
+    public static String jdbcPassword() {
+        return jdbcSetting("healthsystem.jdbc.password", "javax.persistence.jdbc.password", "");
+    }
+
+    /**
+     * Gives the maximum number of pooled database connections.
+     */
+    public static int jdbcPoolSize() {
+        return Integer.parseInt(jdbcSetting("healthsystem.jdbc.poolSize", "healthsystem.jdbc.poolSize", "10").trim());
+    }
+
+    /**
+     * Reads a database setting from the system property, then from the persistence unit, then falls back to the default.
+     */
+    private static String jdbcSetting(String systemProperty, String unitProperty, String defaultValue) {
+        String configured = System.getProperty(systemProperty);
+        if (configured != null) {
+            return configured;
+        }
+        return persistenceProperties().getProperty(unitProperty, defaultValue);
+    }
+
+    /**
+     * Reads the properties of the persistence unit from META-INF/persistence.xml, once.
+     * A missing file gives no properties.
+     */
+    private static Properties persistenceProperties() {
+        Properties properties = persistenceProperties;
+        if (properties != null) {
+            return properties;
+        }
+        properties = new Properties();
+        try (InputStream in = StorageConfig.class.getClassLoader().getResourceAsStream("META-INF/persistence.xml")) {
+            if (in != null) {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                NodeList units = factory.newDocumentBuilder().parse(in).getElementsByTagNameNS("*", "persistence-unit");
+                for (int i = 0; i < units.getLength(); i++) {
+                    Element unit = (Element) units.item(i);
+                    if (!PERSISTENCE_UNIT.equals(unit.getAttribute("name"))) {
+                        continue;
+                    }
+                    NodeList entries = unit.getElementsByTagNameNS("*", "property");
+                    for (int j = 0; j < entries.getLength(); j++) {
+                        Element entry = (Element) entries.item(j);
+                        properties.setProperty(entry.getAttribute("name"), entry.getAttribute("value"));
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Failed to read META-INF/persistence.xml", ex);
+        }
+        persistenceProperties = properties;
+        return properties;
+    }
+}
@@ -0,0 +1,70 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Storage engine holding the entities of one EntityStore.
+ * Engines are thread-safe; each write, including the update of the secondary indexes, is atomic per ID.
+ * New engines are plugged in through a StorageEngineProvider.
+ *
+ * @author rachelcooray
+ */
+public interface StorageEngine<T> {
+
+    /**
+     * Retrieves the entity with the specified ID, or null if there is none.
+     */
+    T get(int id);
+
+    /**
+     * Inserts or replaces the entity under the specified ID and returns the entity it replaced, if any.
+     */
+    T put(int id, T entity);
+
+    /**
+     * Inserts or replaces several entities at once.
+     */
+    void putAll(List<T> entities);
+
+    /**
+     * Replaces the entity under the specified ID and returns the entity it replaced.
+     * It returns null, and stores nothing, if no such entity exists.
+     */
+    T replace(int id, T entity);
+
+    /**
+     * Removes the entity with the specified ID and returns it, or null if there was none.
+     */
+    T remove(int id);
+
+    /**
+     * Starts maintaining the index and indexes the entities already stored.
+     */
+    void addIndex(SecondaryIndex<T> index);
+
+    /**
+     * Iterates over the entities in ID order, starting after the specified ID, or from the start if it is null.
+     */
+    Iterator<T> scan(Integer afterId);
+
+    /**
+     * Iterates over the entities with the specified key in the index, in ID order,
+     * starting after the specified ID, or from the start if it is null.
+     */
+    Iterator<T> scanIndex(SecondaryIndex<T> index, int key, Integer afterId);
+
+    /**
+     * Gives the highest ID the engine has stored, or zero if it has stored none.
+     */
+    int highestId();
+
+    int size();
+
+    /**
+     * Writes a point-in-time copy of the data, if the engine supports it, so that startup can skip old history.
+     */
+    void snapshot() throws IOException;
+}
@@ -0,0 +1,25 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.function.ToIntFunction;
+
+/**
+ * Service provider interface creating the storage engines of one kind.
+ * Besides the built-in memory and jdbc engines, providers listed in
+ * META-INF/services/com.mycompany.healthsystemapi.store.StorageEngineProvider are picked up at startup
+ * and can be selected with healthsystem.storage=&lt;name&gt;.
+ *
+ * @author rachelcooray
+ */
+public interface StorageEngineProvider {
+
+    /**
+     * Gives the name the engine is selected by.
+     */
+    String getName();
+
+    /**
+     * Creates the engine of the named store, loading any entities it already persisted.
+     */
+    <T> StorageEngine<T> create(String storeName, Class<T> type, ToIntFunction<T> idOf);
+}
@@ -0,0 +1,102 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Registry of the storage engine providers. It creates the engine of each store, as selected by the
+ * healthsystem.storage setting, and releases the resources of all engines on shutdown.
+ *
+ * @author rachelcooray
+ */
+public final class StorageEngines {
+    private static final Map<String, StorageEngineProvider> providers = new ConcurrentHashMap<>();
+
+    static {
+        register(new MemoryProvider());
+        register(new JdbcProvider());
+        for (StorageEngineProvider provider : ServiceLoader.load(StorageEngineProvider.class)) {
+            register(provider);
+        }
+    }
+
+    private StorageEngines() {
+    }
+
+    /**
+     * Registers a provider, replacing any provider registered under the same name.
+     */
+    public static void register(StorageEngineProvider provider) {
+        providers.put(provider.getName().trim().toLowerCase(), provider);
+    }
+
+    /**
+     * Gives the names of the registered engines, in alphabetical order.
+     */
+    public static Set<String> names() {
+        return new TreeSet<>(providers.keySet());
+    }
+
+    /**
+     * Creates the engine selected by configuration for the named store.
+     */
+    static <T> StorageEngine<T> create(String storeName, Class<T> type, ToIntFunction<T> idOf) {
+        return create(StorageConfig.storageEngine(), storeName, type, idOf);
+    }
+
+    /**
+     * Creates an engine of the specified kind for the named store.
+     */
+    public static <T> StorageEngine<T> create(String engine, String storeName, Class<T> type, ToIntFunction<T> idOf) {
+        StorageEngineProvider provider = providers.get(engine.trim().toLowerCase());
+        if (provider == null) {
+            throw new IllegalStateException("Unknown healthsystem.storage engine: " + engine + ", expected one of " + names());
+        }
+        return provider.create(storeName, type, idOf);
+    }
+
+    /**
+     * Stops the periodic snapshots, then flushes and closes the journals and the database connections.
+     * It is called when the application shuts down.
+     */
+    public static void closeAll() {
+        Snapshot.stopAll();
+        Journal.closeAll();
+        JdbcConnections.close();
+    }
+
+    /**
+     * Keeps entities in memory, journaled to disk unless healthsystem.journal.enabled is false.
+     */
+    private static class MemoryProvider implements StorageEngineProvider {
+        @Override
+        public String getName() {
+            return "memory";
+        }
+
+        @Override
+        public <T> StorageEngine<T> create(String storeName, Class<T> type, ToIntFunction<T> idOf) {
+            return new MemoryStorageEngine<>(storeName, type, idOf, StorageConfig.journalEnabled());
+        }
+    }
+
+    /**
+     * Keeps entities in the database configured in persistence.xml.
+     */
+    private static class JdbcProvider implements StorageEngineProvider {
+        @Override
+        public String getName() {
+            return "jdbc";
+        }
+
+        @Override
+        public <T> StorageEngine<T> create(String storeName, Class<T> type, ToIntFunction<T> idOf) {
+            return new JdbcStorageEngine<>(storeName, type, idOf, JdbcConnections.dataSource());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helper for the numbered files a store keeps in the data directory,
+ * such as journal segments (name-0000000001.journal) and snapshots (name-0000000001.snapshot).
+ *
+ * @author rachelcooray
+ */
+final class StoreFiles {
+
+    private StoreFiles() {
+    }
+
+    /**
+     * Lists the numbers of the files named name-number followed by the suffix, in ascending order.
+     */
+    static List<Long> numbered(Path directory, String name, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return numbers;
+        }
+        String prefix = name + "-";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(prefix.length(), fileName.length() - suffix.length());
+                try {
+                    numbers.add(Long.parseLong(number));
+                } catch (NumberFormatException ex) {
+                    // Not one of ours, such as the file of a store whose name starts with this one
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+}
@@ -0,0 +1,16 @@
+package com.mycompany.healthsystemapi.store;
+
+/**
+ * Receives every write made to an entity store, to keep a structure derived from its entities up to date.
+ *
+ * @author rachelcooray
+ */
+public interface StoreListener<T> {
+
+    /**
+     * Called after the entity with the specified ID changed from previous to current.
+     * Previous is null for an insert and current is null for a delete.
+     * Calls for the same ID are never concurrent and arrive in the order the writes were made.
+     */
+    void onWrite(int id, T previous, T current);
+}
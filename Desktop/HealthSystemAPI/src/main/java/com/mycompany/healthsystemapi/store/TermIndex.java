@@ -0,0 +1,85 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.Collections;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Inverted index from a text value of the entities, such as a doctor's specialization, to the IDs carrying it.
+ * Values are normalized before they are indexed or looked up, ignoring case and surrounding or repeated spaces,
+ * so "Cardiologist" and " cardiologist " find the same entities. A lookup is one hash map access,
+ * whatever the number of entities.
+ *
+ * @author rachelcooray
+ */
+public class TermIndex<T> implements StoreListener<T> {
+    // Attributes of this class
+    private final Function<T, String> termOf;
+    private final ConcurrentHashMap<String, ConcurrentSkipListSet<Integer>> postings = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an index over the text returned by the function, which may return null for entities to leave out.
+     */
+    public TermIndex(Function<T, String> termOf) {
+        this.termOf = termOf;
+    }
+
+    /**
+     * Normalizes a value: trimmed, lower case, with runs of spaces collapsed. It returns null for a blank value.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Gives the normalized term of the entity, or null if it is not indexed.
+     */
+    public String termOf(T entity) {
+        return entity == null ? null : normalize(termOf.apply(entity));
+    }
+
+    @Override
+    public void onWrite(int id, T previous, T current) {
+        String oldTerm = termOf(previous);
+        String newTerm = termOf(current);
+        if (oldTerm != null && !oldTerm.equals(newTerm)) {
+            postings.computeIfPresent(oldTerm, (term, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (newTerm != null) {
+            // Added within compute, so that a concurrent removal cannot drop the set while it is being added to
+            postings.compute(newTerm, (term, ids) -> {
+                ConcurrentSkipListSet<Integer> updated = ids == null ? new ConcurrentSkipListSet<>() : ids;
+                updated.add(id);
+                return updated;
+            });
+        }
+    }
+
+    /**
+     * Gives the IDs of the entities with the specified value, in ascending order.
+     */
+    public NavigableSet<Integer> ids(String value) {
+        String term = normalize(value);
+        NavigableSet<Integer> ids = term == null ? null : postings.get(term);
+        return ids == null ? Collections.emptyNavigableSet() : ids;
+    }
+
+    /**
+     * Checks whether the entity has the specified value.
+     */
+    public boolean matches(T entity, String value) {
+        String term = termOf(entity);
+        return term != null && term.equals(normalize(value));
+    }
+}
@@ -0,0 +1,565 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Full-text index over free-text fields of the entities, such as the details and diagnosis of a medical record.
+ * Text is split into lower-case words of letters and digits, leaving out a few very common English words.
+ * Each word has a posting list: the sorted IDs of the entities containing it, each with the number of times it occurs
+ * and the length of the entity's text, which is all BM25 needs to rank the matches.
+ *
+ * A search returns the entities containing every word of the query, best match first.
+ * Each hit is identified by a position packing its score and ID into one long.
+ * Scores depend on the number of entities, their average length and how many contain each word, all of which change with every write,
+ * so the cursor to resume a search holds the statistics the scores were computed with along with the position of the last hit.
+ * A search resumed from a cursor scores with those statistics, so the entities that have not been written since keep their scores
+ * and the next page starts right after the previous one. An entity written in between is ranked with its new text,
+ * so it may be seen twice or not at all, as with the cursors of a range index.
+ *
+ * @author rachelcooray
+ */
+public class TextIndex<T> implements StoreListener<T> {
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MAX_WORD_LENGTH = 64;
+    private static final int MAX_FREQUENCY = 0xFF;
+    private static final int MAX_LENGTH = 0xFFFFFF;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "to", "was", "were", "with"));
+
+    // Attributes of this class
+    private final List<Function<T, String>> fields;
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong totalLength = new AtomicLong();
+
+    /**
+     * Constructs an index over the text of the specified fields. A field may return null.
+     */
+    public TextIndex(List<Function<T, String>> fields) {
+        this.fields = new ArrayList<>(fields);
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, without the stop words.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (word.length() < MAX_WORD_LENGTH) {
+                    word.append(Character.toLowerCase(c));
+                }
+            } else if (word.length() > 0) {
+                String token = word.toString();
+                if (!STOP_WORDS.contains(token)) {
+                    words.add(token);
+                }
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gives the score packed into a position.
+     */
+    public static float scoreOf(long position) {
+        return Float.intBitsToFloat((int) (position >>> 32));
+    }
+
+    private static long position(float score, int id) {
+        return ((long) Float.floatToIntBits(score) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gives the inverse document frequency of a word found in the specified number of the entities.
+     */
+    private static float idf(long documents, int size) {
+        return (float) Math.log(1 + (documents - size + 0.5) / (size + 0.5));
+    }
+
+    private List<String> wordsOf(T entity) {
+        List<String> words = new ArrayList<>();
+        for (Function<T, String> field : fields) {
+            words.addAll(tokenize(field.apply(entity)));
+        }
+        return words;
+    }
+
+    /**
+     * Counts how many times each word occurs.
+     */
+    private static Map<String, Integer> frequencies(List<String> words) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : words) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Override
+    public void onWrite(int id, T previous, T current) {
+        if (previous != null) {
+            List<String> words = wordsOf(previous);
+            for (String word : frequencies(words).keySet()) {
+                postings.computeIfPresent(word, (key, list) -> list.remove(id) ? null : list);
+            }
+            documents.decrementAndGet();
+            totalLength.addAndGet(-words.size());
+        }
+        if (current != null) {
+            List<String> words = wordsOf(current);
+            int length = Math.min(words.size(), MAX_LENGTH);
+            frequencies(words).forEach((word, count) -> postings.compute(word, (key, list) -> {
+                // Added within compute, so that a concurrent removal cannot drop the list while it is being added to
+                Postings target = list == null ? new Postings() : list;
+                target.add(id, (Math.min(count, MAX_FREQUENCY) << 24) | length);
+                return target;
+            }));
+            documents.incrementAndGet();
+            totalLength.addAndGet(words.size());
+        }
+    }
+
+    /**
+     * Checks whether the entity contains every word of the query.
+     */
+    public boolean matches(T entity, String query) {
+        return new HashSet<>(wordsOf(entity)).containsAll(tokenize(query));
+    }
+
+    /**
+     * Gives the number of distinct words indexed.
+     */
+    public int words() {
+        return postings.size();
+    }
+
+    /**
+     * Finds up to limit entities containing every word of the query and returns their positions, best match first.
+     * The search is restricted to the sorted IDs in 'within' if it is not null,
+     * and resumes after the cursor of a previous page, with the statistics it holds, if it is not null.
+     */
+    public Hits search(String query, int[] within, Cursor after, int limit) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (words.isEmpty() || limit < 1) {
+            return Hits.NONE;
+        }
+        Postings[] lists = new Postings[words.size()];
+        int[] sizes = new int[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = postings.get(words.get(i));
+            if (lists[i] == null) {
+                return Hits.NONE;
+            }
+            sizes[i] = lists[i].size();
+        }
+        float averageLength;
+        float[] idfs;
+        if (after != null && after.idfs.length == lists.length) {
+            averageLength = after.averageLength;
+            idfs = after.idfs;
+        } else {
+            long count = Math.max(1, documents.get());
+            averageLength = Math.max(1f, (float) totalLength.get() / count);
+            idfs = new float[lists.length];
+            for (int i = 0; i < lists.length; i++) {
+                idfs[i] = idf(count, sizes[i]);
+            }
+        }
+        // The rarest words narrow down the candidates the most, so they are applied first
+        Integer[] order = new Integer[lists.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> sizes[i]));
+        Candidates candidates = within == null ? null : new Candidates(within.clone(), new float[within.length], within.length);
+        for (int i = 0; i < order.length - 1; i++) {
+            candidates = lists[order[i]].score(candidates, idfs[order[i]], averageLength);
+            if (candidates.size == 0) {
+                return Hits.NONE;
+            }
+        }
+        // The most common word is scored straight into the hits, without copying its list
+        int last = order[order.length - 1];
+        TopHits best = new TopHits(limit, after == null ? null : after.position);
+        lists[last].collect(candidates, idfs[last], averageLength, best);
+        return new Hits(best.toArray(), averageLength, idfs);
+    }
+
+    /**
+     * Checks whether the first position ranks ahead of the second: a higher score, or the same score and a lower ID.
+     */
+    private static boolean ahead(long position, long other) {
+        float score = scoreOf(position);
+        float otherScore = scoreOf(other);
+        return score > otherScore || (score == otherScore && RangeIndex.idOf(position) < RangeIndex.idOf(other));
+    }
+
+    /**
+     * The positions found by a search, best match first, and the statistics they were scored with.
+     */
+    public static final class Hits {
+        private static final Hits NONE = new Hits(new long[0], 1f, new float[0]);
+
+        private final long[] positions;
+        private final float averageLength;
+        private final float[] idfs;
+
+        private Hits(long[] positions, float averageLength, float[] idfs) {
+            this.positions = positions;
+            this.averageLength = averageLength;
+            this.idfs = idfs;
+        }
+
+        public long[] getPositions() {
+            return positions;
+        }
+
+        /**
+         * Gives the cursor to resume the search after the specified position, scoring with the same statistics.
+         */
+        public Cursor cursorAfter(long position) {
+            return new Cursor(position, averageLength, idfs);
+        }
+    }
+
+    /**
+     * Where a search stopped: the position of the last hit returned, the average length of the text
+     * and the inverse document frequency of each distinct word of the query, in the order of the query.
+     * It is written as text, as position/averageLength/idf,idf,...
+     */
+    public static final class Cursor {
+        private final long position;
+        private final float averageLength;
+        private final float[] idfs;
+
+        private Cursor(long position, float averageLength, float[] idfs) {
+            this.position = position;
+            this.averageLength = averageLength;
+            this.idfs = idfs;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Reads a cursor written by toString. It throws IllegalArgumentException if the text is not a valid cursor.
+         */
+        public static Cursor parse(String text) {
+            String[] parts = text.split("/", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid search cursor: " + text);
+            }
+            long position = Long.parseLong(parts[0]);
+            float averageLength = Float.parseFloat(parts[1]);
+            String[] values = parts[2].split(",", -1);
+            float[] idfs = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                idfs[i] = Float.parseFloat(values[i]);
+                if (Float.isNaN(idfs[i]) || Float.isInfinite(idfs[i])) {
+                    throw new IllegalArgumentException("Invalid search cursor: " + text);
+                }
+            }
+            if (!(averageLength >= 1f) || Float.isInfinite(averageLength)) {
+                throw new IllegalArgumentException("Invalid search cursor: " + text);
+            }
+            return new Cursor(position, averageLength, idfs);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder().append(position).append('/').append(averageLength).append('/');
+            for (int i = 0; i < idfs.length; i++) {
+                text.append(i == 0 ? "" : ",").append(idfs[i]);
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * The best limit hits seen so far that rank after the cursor, kept in a binary heap of primitive longs
+     * with the worst of them at the root, so a hit that does not make it costs a single comparison.
+     */
+    private static final class TopHits {
+        private final long[] heap;
+        private final Long afterPosition;
+        private int size;
+
+        private TopHits(int limit, Long afterPosition) {
+            this.heap = new long[limit];
+            this.afterPosition = afterPosition;
+        }
+
+        boolean isFull() {
+            return size == heap.length;
+        }
+
+        float worstScore() {
+            return scoreOf(heap[0]);
+        }
+
+        void offer(float score, int id) {
+            long hit = position(score, id);
+            if (afterPosition != null && !ahead(afterPosition, hit)) {
+                return;
+            }
+            if (size < heap.length) {
+                heap[size] = hit;
+                siftUp(size++);
+            } else if (ahead(hit, heap[0])) {
+                heap[0] = hit;
+                siftDown(0);
+            }
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!ahead(heap[parent], heap[index])) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (ahead(heap[worst], heap[child])) {
+                        worst = child;
+                    }
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long hit = heap[i];
+            heap[i] = heap[j];
+            heap[j] = hit;
+        }
+
+        /**
+         * Gives the hits, best first. It empties the heap.
+         */
+        long[] toArray() {
+            long[] hits = new long[size];
+            for (int i = hits.length - 1; i >= 0; i--) {
+                hits[i] = heap[0];
+                heap[0] = heap[--size];
+                siftDown(0);
+            }
+            return hits;
+        }
+    }
+
+    /**
+     * The candidate IDs of a search, in ascending order, with the score accumulated so far for each.
+     */
+    private static final class Candidates {
+        private final int[] ids;
+        private final float[] scores;
+        private final int size;
+
+        private Candidates(int[] ids, float[] scores, int size) {
+            this.ids = ids;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Posting list of one word: the sorted IDs of the entities containing it, each with its occurrences
+     * (top 8 bits) and the length of the entity's text (low 24 bits) packed into one int.
+     * For every block of BLOCK postings it also keeps the most occurrences and the shortest length found in the block,
+     * which bound the score any of them can reach, so a search skips the blocks that cannot beat the hits it already has.
+     * Writers and readers synchronize on the list; a search holds the lock of one list at a time.
+     */
+    private static final class Postings {
+        private static final int BLOCK = 128;
+
+        private int[] ids = new int[2];
+        private int[] stats = new int[2];
+        private int[] blockBounds = new int[1];
+        private int size;
+        // Index of the first posting whose block bound may be out of date, or size if they are all up to date
+        private int staleFrom;
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized void add(int id, int stat) {
+            int index = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0 && index < size) {
+                stats[index] = stat;
+                staleFrom = Math.min(staleFrom, index);
+                return;
+            }
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+                stats = Arrays.copyOf(stats, ids.length);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            System.arraycopy(stats, index, stats, index + 1, size - index);
+            ids[index] = id;
+            stats[index] = stat;
+            size++;
+            if (index == size - 1 && staleFrom == index) {
+                // Appending, the common case as IDs grow: only the bound of the last block changes
+                bound(index);
+                staleFrom = size;
+            } else {
+                staleFrom = Math.min(staleFrom, index);
+            }
+        }
+
+        /**
+         * Removes the ID and returns true if the list is left empty.
+         */
+        synchronized boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                System.arraycopy(stats, index + 1, stats, index, size - index - 1);
+                size--;
+                staleFrom = Math.min(staleFrom, index);
+            }
+            return size == 0;
+        }
+
+        /**
+         * Widens the bound of the block holding the posting at the specified index to cover it,
+         * or starts the bound if the posting is the first of its block.
+         */
+        private void bound(int index) {
+            int block = index / BLOCK;
+            if (block == blockBounds.length) {
+                blockBounds = Arrays.copyOf(blockBounds, block + (block >> 1) + 1);
+            }
+            int stat = stats[index];
+            if (index % BLOCK != 0) {
+                int bound = blockBounds[block];
+                stat = (Math.max(bound >>> 24, stat >>> 24) << 24) | Math.min(bound & MAX_LENGTH, stat & MAX_LENGTH);
+            }
+            blockBounds[block] = stat;
+        }
+
+        private void refreshBounds() {
+            for (int i = staleFrom - staleFrom % BLOCK; i < size; i++) {
+                bound(i);
+            }
+            staleFrom = size;
+        }
+
+        /**
+         * Keeps the candidates found in this list and adds the BM25 score of the word, with the given statistics, to each of them.
+         * With no candidates yet, every entity of the list becomes one.
+         */
+        synchronized Candidates score(Candidates candidates, float idf, float averageLength) {
+            if (candidates == null) {
+                float[] scores = new float[size];
+                for (int i = 0; i < size; i++) {
+                    scores[i] = weight(stats[i], idf, averageLength);
+                }
+                return new Candidates(Arrays.copyOf(ids, size), scores, size);
+            }
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < candidates.size && from < size; i++) {
+                int index = seek(from, candidates.ids[i]);
+                if (index >= 0) {
+                    candidates.ids[kept] = candidates.ids[i];
+                    candidates.scores[kept] = candidates.scores[i] + weight(stats[index], idf, averageLength);
+                    kept++;
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return new Candidates(candidates.ids, candidates.scores, kept);
+        }
+
+        /**
+         * Offers the candidates found in this list, or every entity of the list if there are no candidates yet,
+         * to the hits with the BM25 score of the word, with the given statistics, added.
+         */
+        synchronized void collect(Candidates candidates, float idf, float averageLength, TopHits hits) {
+            if (candidates == null) {
+                refreshBounds();
+                for (int from = 0; from < size; from += BLOCK) {
+                    // Later blocks hold higher IDs, which lose ties, so a block whose bound only ties the worst hit is skipped too
+                    if (hits.isFull() && weight(blockBounds[from / BLOCK], idf, averageLength) <= hits.worstScore()) {
+                        continue;
+                    }
+                    for (int i = from; i < Math.min(size, from + BLOCK); i++) {
+                        hits.offer(weight(stats[i], idf, averageLength), ids[i]);
+                    }
+                }
+                return;
+            }
+            int from = 0;
+            for (int i = 0; i < candidates.size && from < size; i++) {
+                int index = seek(from, candidates.ids[i]);
+                if (index >= 0) {
+                    hits.offer(candidates.scores[i] + weight(stats[index], idf, averageLength), candidates.ids[i]);
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+        }
+
+        /**
+         * Looks for the ID from the specified index on, as Arrays.binarySearch does.
+         * Candidates are sought in ascending order, usually close to the previous one,
+         * so the range is first narrowed by doubling steps from the start.
+         */
+        private int seek(int from, int id) {
+            int step = 1;
+            int to = from;
+            while (to < size && ids[to] < id) {
+                from = to + 1;
+                to += step;
+                step <<= 1;
+            }
+            return Arrays.binarySearch(ids, from, Math.min(size, to + 1), id);
+        }
+
+        private static float weight(int stat, float idf, float averageLength) {
+            int frequency = stat >>> 24;
+            int length = stat & MAX_LENGTH;
+            return idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Versions of the entities of a store, or of the keys of a secondary index: the store's version at the last write
+ * touching each of them. They share a fixed number of slots by hash, so memory does not grow with the store;
+ * two of them sharing a slot only makes one look changed when the other was written, never unchanged when it was.
+ *
+ * @author rachelcooray
+ */
+final class VersionStamps {
+    private static final int SLOT_BITS = 14;
+
+    // Attributes of this class
+    private final AtomicLongArray stamps = new AtomicLongArray(1 << SLOT_BITS);
+
+    /**
+     * Gives the version of the specified ID or key, or 0 if it was not written since the store was opened.
+     */
+    long get(int key) {
+        return stamps.get(slot(key));
+    }
+
+    /**
+     * Sets the version of the specified ID or key, unless its slot already holds a later one.
+     */
+    void stamp(int key, long version) {
+        stamps.accumulateAndGet(slot(key), version, Math::max);
+    }
+
+    private static int slot(int key) {
+        return (key * 0x9E3779B9) >>> (32 - SLOT_BITS);
+    }
+}
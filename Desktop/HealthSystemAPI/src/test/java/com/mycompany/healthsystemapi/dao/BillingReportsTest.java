@@ -0,0 +1,84 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.DateTimes;
+import com.mycompany.healthsystemapi.model.RevenueReport;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the structures behind the billing reports as they follow the writes: the outstanding filter over the billing columns
+ * and the revenue rollups, whose totals must come back to where they were when a write is updated or deleted.
+ *
+ * @author rachelcooray
+ */
+class BillingReportsTest {
+
+    private static int day(String date) {
+        return DateTimes.toEpochDay(date);
+    }
+
+    @Test
+    void outstandingFilterFollowsTheWrites() {
+        BillingColumns columns = new BillingColumns();
+        Billing early = new Billing(1, 10, 50.0, "Pending", "2024-01-10", null, 50.0);
+        Billing paid = new Billing(2, 10, 70.0, "Paid", "2024-01-11", "2024-01-12", 0.0);
+        Billing late = new Billing(3, 11, 20.0, "Pending", "2024-03-05", null, 20.0);
+        Billing undated = new Billing(4, 12, 30.0, "Pending", "not a date", null, 30.0);
+        Billing partial = new Billing(70, 13, 90.0, "Partial", "2024-02-01", "2024-02-02", 40.0);
+        for (Billing billing : new Billing[] {early, paid, late, undated, partial}) {
+            columns.onWrite(billing.getId(), null, billing);
+        }
+
+        int before = day("2024-03-01");
+        assertArrayEquals(new int[] {1, 70}, columns.findOutstanding(before, -1, 10));
+        // Paged by ID
+        assertArrayEquals(new int[] {1}, columns.findOutstanding(before, -1, 1));
+        assertArrayEquals(new int[] {70}, columns.findOutstanding(before, 1, 10));
+        assertArrayEquals(new int[0], columns.findOutstanding(before, 70, 10));
+
+        Billing settled = new Billing(1, 10, 50.0, "Paid", "2024-01-10", "2024-03-02", 0.0);
+        columns.onWrite(1, early, settled);
+        columns.onWrite(70, partial, null);
+        assertArrayEquals(new int[0], columns.findOutstanding(before, -1, 10));
+        assertArrayEquals(new int[] {3}, columns.findOutstanding(day("2024-04-01"), -1, 10));
+    }
+
+    @Test
+    void revenueRollupsReverseUpdatesAndDeletes() {
+        RevenueRollups rollups = new RevenueRollups();
+        Billing first = new Billing(1, 10, 100.10, "Paid", "2024-01-10", "2024-02-01", 0.0);
+        Billing second = new Billing(2, 11, 0.20, "Partial", "2024-01-20", "2024-01-25", 0.05);
+        rollups.onWrite(1, null, first);
+        rollups.onWrite(2, null, second);
+
+        List<RevenueReport> months = rollups.report(day("2024-01-01"), day("2024-12-31"), RevenueRollups.Period.MONTH);
+        assertEquals(2, months.size());
+        assertEquals("2024-01", months.get(0).getPeriod());
+        assertEquals(2, months.get(0).getInvoiceCount());
+        assertEquals(100.30, months.get(0).getInvoiced(), 1e-9);
+        assertEquals(1, months.get(0).getPaymentCount());
+        assertEquals(0.15, months.get(0).getCollected(), 1e-9);
+        assertEquals("2024-02", months.get(1).getPeriod());
+        assertEquals(100.10, months.get(1).getCollected(), 1e-9);
+
+        // Moving the payment to another month, then deleting both, leaves nothing behind
+        Billing moved = new Billing(1, 10, 100.10, "Paid", "2024-01-10", "2024-03-01", 0.0);
+        rollups.onWrite(1, first, moved);
+        List<RevenueReport> total = rollups.report(Integer.MIN_VALUE, Integer.MAX_VALUE, RevenueRollups.Period.TOTAL);
+        assertEquals(1, total.size());
+        assertEquals("2024-01-10/2024-03-01", total.get(0).getPeriod());
+        assertEquals(100.25, total.get(0).getCollected(), 1e-9);
+
+        rollups.onWrite(1, moved, null);
+        rollups.onWrite(2, second, null);
+        assertTrue(rollups.report(Integer.MIN_VALUE, Integer.MAX_VALUE, RevenueRollups.Period.DAY).isEmpty());
+    }
+}
@@ -0,0 +1,101 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.DateTimes;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.StorageEngines;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Scan benchmark of the billing columns against a scan of the billing objects. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.dao.BillingScanBenchmark
+ *
+ * Over the same billings it runs a filter (billings still outstanding that were invoiced before a date), both over the list
+ * of billing objects, comparing their ISO date strings, and over the columns, and checks that both agree. Each is warmed up first
+ * and its results are kept, so the JIT can neither skip the loop nor measure it cold; the median of the measured rounds is printed.
+ *
+ * benchmark.billings - billings generated (default: 1000000)
+ * benchmark.rounds - measured rounds of each scan, after as many warm-up rounds (default: 20)
+ *
+ * @author rachelcooray
+ */
+public final class BillingScanBenchmark {
+    private static final String BEFORE = "2024-03-01";
+
+    // Keeps the results of the scans alive
+    private static long sink;
+
+    private BillingScanBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("healthsystem.journal.enabled", "false");
+        int count = Integer.getInteger("benchmark.billings", 1000000);
+        int rounds = Integer.getInteger("benchmark.rounds", 20);
+
+        EntityStore<Billing> store = new EntityStore<>("scanBenchmark", Billing::getId,
+                StorageEngines.create("memory", "scanBenchmark", Billing.class, Billing::getId));
+        BillingColumns columns = new BillingColumns();
+        store.addListener(columns);
+        Random random = new Random(42);
+        int firstDay = (int) LocalDate.of(2023, 1, 1).toEpochDay();
+        for (int id = 1; id <= count; id++) {
+            double amount = 10 + random.nextInt(50000) / 100.0;
+            double outstanding = random.nextInt(3) == 0 ? amount : 0.0;
+            String invoiceDate = LocalDate.ofEpochDay(firstDay + random.nextInt(730)).toString();
+            store.put(new Billing(id, 1 + random.nextInt(100000), amount, outstanding > 0 ? "Pending" : "Paid", invoiceDate, invoiceDate, outstanding));
+        }
+        List<Billing> billings = store.values();
+        int before = DateTimes.toEpochDay(BEFORE);
+        System.out.printf("%d billings%n%n%-34s %14s %14s %10s%n", count, "scan", "objects (us)", "columns (us)", "speed-up");
+
+        compare("filter outstanding before date", rounds,
+                () -> countOutstanding(billings),
+                () -> columns.findOutstanding(before, -1, Integer.MAX_VALUE).length);
+    }
+
+    /**
+     * A scan returning a number, so that its result can be kept.
+     */
+    private interface Scan {
+        long run();
+    }
+
+    private static void compare(String label, int rounds, Scan objects, Scan columns) {
+        if (objects.run() != columns.run()) {
+            throw new IllegalStateException("The objects and the columns disagree on scan: " + label);
+        }
+        double objectMicros = measure(objects, rounds) / 1e3;
+        double columnMicros = measure(columns, rounds) / 1e3;
+        System.out.printf("%-34s %14.0f %14.0f %9.1fx%n", label, objectMicros, columnMicros, objectMicros / columnMicros);
+    }
+
+    private static long measure(Scan scan, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            sink += scan.run();
+        }
+        long[] nanos = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long begin = System.nanoTime();
+            sink += scan.run();
+            nanos[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(nanos);
+        return nanos[rounds / 2];
+    }
+
+    private static long countOutstanding(List<Billing> billings) {
+        long found = 0;
+        for (Billing billing : billings) {
+            if (billing.getOutstandingBalance() > 0 && billing.getInvoiceDate().compareTo(BEFORE) < 0) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
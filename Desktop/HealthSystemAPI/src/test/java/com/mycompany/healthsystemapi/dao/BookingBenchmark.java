@@ -0,0 +1,158 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.exception.AppointmentConflictException;
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.StorageEngines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contention benchmark of the booking engine. Run it with:
+ * mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.dao.BookingBenchmark
+ *
+ * Hundreds of threads book half-hour slots at random, first spread across many doctors, then all within a few doctors,
+ * each with the default lock striping and with a single lock for comparison.
+ * It prints the throughput and, after each run, checks that no doctor ended up double-booked.
+ * It then books the same week of schedules one appointment at a time and in bulk batches, to compare the two.
+ *
+ * benchmark.threads - booking threads (default: 200)
+ * benchmark.bookings - booking attempts per thread (default: 500)
+ * benchmark.schedule - appointments in the week of schedules (default: 20000)
+ * benchmark.batch - appointments per bulk batch (default: 1000)
+ *
+ * @author rachelcooray
+ */
+public final class BookingBenchmark {
+    private static final int DAYS = 5;
+    private static final int SLOTS_PER_DAY = 16;
+
+    private BookingBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("healthsystem.journal.enabled", "false");
+        int threads = Integer.getInteger("benchmark.threads", 200);
+        int bookings = Integer.getInteger("benchmark.bookings", 500);
+        System.out.printf("%d threads, %d booking attempts each%n", threads, bookings);
+        System.out.printf("%-16s %8s %8s %12s %10s %10s%n", "scenario", "doctors", "stripes", "attempts/s", "booked", "conflicts");
+        for (int doctors : new int[] {1000, 4}) {
+            for (int stripes : new int[] {BookingEngine.DEFAULT_LOCK_STRIPES, 1}) {
+                run(doctors == 4 ? "within doctors" : "across doctors", doctors, stripes, threads, bookings);
+            }
+        }
+        compareBulk(Integer.getInteger("benchmark.schedule", 20000), Integer.getInteger("benchmark.batch", 1000));
+    }
+
+    /**
+     * Books a week of schedules without conflicts, one appointment at a time and in bulk batches.
+     * Both are repeated a few times so that the last round is measured on warmed-up code.
+     */
+    private static void compareBulk(int size, int batchSize) {
+        System.out.printf("%n%-6s %-10s %12s %12s%n", "round", "week of", "single/s", "bulk/s");
+        for (int round = 1; round <= 3; round++) {
+            long singleNanos = bookSchedule(size, batchSize, false);
+            long bulkNanos = bookSchedule(size, batchSize, true);
+            System.out.printf("%-6d %-10d %12.0f %12.0f%n", round, size, size / (singleNanos / 1e9), size / (bulkNanos / 1e9));
+        }
+    }
+
+    private static long bookSchedule(int size, int batchSize, boolean bulk) {
+        EntityStore<Appointment> store = new EntityStore<>("bookingBenchmark", Appointment::getId,
+                StorageEngines.create("memory", "bookingBenchmark", Appointment.class, Appointment::getId));
+        BookingEngine engine = new BookingEngine(store, BookingEngine.DEFAULT_LOCK_STRIPES);
+        int slots = DAYS * SLOTS_PER_DAY;
+        List<Appointment> schedule = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = i % slots;
+            String dateTime = String.format("2024-05-%02dT%02d:%02d", 6 + slot / SLOTS_PER_DAY,
+                    9 + (slot % SLOTS_PER_DAY) / 2, (slot % 2) * 30);
+            schedule.add(new Appointment(0, dateTime, 1 + i % 10000, 1 + i / slots));
+        }
+        long begin = System.nanoTime();
+        if (bulk) {
+            for (int from = 0; from < size; from += batchSize) {
+                engine.bookAll(schedule.subList(from, Math.min(size, from + batchSize)));
+            }
+        } else {
+            for (Appointment appointment : schedule) {
+                engine.book(appointment);
+            }
+        }
+        long nanos = System.nanoTime() - begin;
+        if (store.size() != size) {
+            throw new IllegalStateException("Booked " + store.size() + " of " + size + " appointments");
+        }
+        return nanos;
+    }
+
+    private static void run(String scenario, int doctors, int stripes, int threads, int bookings) throws Exception {
+        EntityStore<Appointment> store = new EntityStore<>("bookingBenchmark", Appointment::getId,
+                StorageEngines.create("memory", "bookingBenchmark", Appointment.class, Appointment::getId));
+        BookingEngine engine = new BookingEngine(store, stripes);
+        AtomicLong conflicts = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 0; i < bookings; i++) {
+                    int slot = random.nextInt(DAYS * SLOTS_PER_DAY);
+                    String dateTime = String.format("2024-05-%02dT%02d:%02d", 6 + slot / SLOTS_PER_DAY,
+                            9 + (slot % SLOTS_PER_DAY) / 2, (slot % 2) * 30);
+                    try {
+                        engine.book(new Appointment(0, dateTime, 1 + random.nextInt(10000), 1 + random.nextInt(doctors)));
+                    } catch (AppointmentConflictException ex) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - begin;
+        long attempts = (long) threads * bookings;
+        System.out.printf("%-16s %8d %8d %12.0f %10d %10d%n",
+                scenario, doctors, stripes, attempts / (nanos / 1e9), store.size(), conflicts.get());
+        checkNoOverlaps(store);
+    }
+
+    /**
+     * Fails if two appointments of the same doctor overlap.
+     */
+    private static void checkNoOverlaps(EntityStore<Appointment> store) {
+        Map<Integer, TreeMap<Integer, Integer>> byDoctor = new TreeMap<>();
+        for (Appointment appointment : store.scan()) {
+            TreeMap<Integer, Integer> schedule = byDoctor.computeIfAbsent(appointment.getDoctorId(), key -> new TreeMap<>());
+            if (schedule.put(appointment.getStartMinute(), appointment.getEndMinute()) != null) {
+                throw new IllegalStateException("Doctor " + appointment.getDoctorId() + " is double-booked at " + appointment.getDateTime());
+            }
+        }
+        for (Map.Entry<Integer, TreeMap<Integer, Integer>> schedule : byDoctor.entrySet()) {
+            int previousEnd = Integer.MIN_VALUE;
+            for (Map.Entry<Integer, Integer> booking : schedule.getValue().entrySet()) {
+                if (booking.getKey() < previousEnd) {
+                    throw new IllegalStateException("Doctor " + schedule.getKey() + " has overlapping appointments");
+                }
+                previousEnd = booking.getValue();
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.exception.AppointmentConflictException;
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.BookingResult;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.StorageEngines;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the booking engine: conflicts between single bookings, within and against a bulk batch,
+ * and after rescheduling and cancelling.
+ *
+ * @author rachelcooray
+ */
+class BookingEngineTest {
+    private EntityStore<Appointment> appointments;
+    private BookingEngine bookings;
+
+    @BeforeEach
+    void setUp() {
+        // A memory store without a journal, so that every test starts empty
+        String journaled = System.setProperty("healthsystem.journal.enabled", "false");
+        try {
+            appointments = new EntityStore<>("appointments", Appointment::getId,
+                    StorageEngines.create("memory", "appointments", Appointment.class, Appointment::getId));
+        } finally {
+            if (journaled == null) {
+                System.clearProperty("healthsystem.journal.enabled");
+            } else {
+                System.setProperty("healthsystem.journal.enabled", journaled);
+            }
+        }
+        bookings = new BookingEngine(appointments, BookingEngine.DEFAULT_LOCK_STRIPES);
+    }
+
+    private static Appointment appointment(String dateTime, int doctorId) {
+        return new Appointment(0, dateTime, 1, doctorId);
+    }
+
+    @Test
+    void rejectsAnOverlappingBookingOfTheSameDoctor() {
+        bookings.book(appointment("2030-01-07T09:00", 1));
+        assertThrows(AppointmentConflictException.class, () -> bookings.book(appointment("2030-01-07T09:15", 1)));
+        // Back to back, and the same time with another doctor, are both fine
+        bookings.book(appointment("2030-01-07T09:30", 1));
+        bookings.book(appointment("2030-01-07T09:00", 2));
+        assertEquals(3, appointments.size());
+    }
+
+    @Test
+    void cancellingOrReschedulingFreesTheSlot() {
+        Appointment first = appointment("2030-01-07T09:00", 1);
+        bookings.book(first);
+        Appointment second = appointment("2030-01-07T10:00", 1);
+        bookings.book(second);
+
+        Appointment moved = appointment("2030-01-07T11:00", 1);
+        moved.setId(first.getId());
+        assertTrue(bookings.reschedule(moved));
+        bookings.book(appointment("2030-01-07T09:00", 1));
+
+        Appointment clash = appointment("2030-01-07T10:00", 1);
+        clash.setId(moved.getId());
+        assertThrows(AppointmentConflictException.class, () -> bookings.reschedule(clash));
+
+        assertNotNull(bookings.cancel(second.getId()));
+        assertTrue(bookings.reschedule(clash));
+    }
+
+    @Test
+    void bookAllReportsEachItem() {
+        bookings.book(appointment("2030-01-07T09:00", 1));
+        List<BookingResult> results = bookings.bookAll(Arrays.asList(
+                appointment("2030-01-07T09:10", 1),
+                appointment("2030-01-07T10:00", 1),
+                appointment("2030-01-07T10:15", 1),
+                appointment("not a date", 1),
+                appointment("2030-01-07T10:00", 2)));
+
+        assertEquals(BookingResult.CONFLICT, results.get(0).getStatus());
+        assertEquals(BookingResult.CREATED, results.get(1).getStatus());
+        assertEquals(BookingResult.CONFLICT, results.get(2).getStatus());
+        assertEquals(BookingResult.INVALID, results.get(3).getStatus());
+        assertEquals(BookingResult.CREATED, results.get(4).getStatus());
+        assertEquals(results.get(1).getId() + 1, (int) results.get(4).getId());
+        assertEquals(3, appointments.size());
+    }
+
+    @Test
+    void bookAllReportsNullItemsAsInvalid() {
+        List<BookingResult> results = bookings.bookAll(Arrays.asList(null, appointment("2030-01-07T09:00", 1), null));
+
+        assertEquals(BookingResult.INVALID, results.get(0).getStatus());
+        assertEquals(BookingResult.CREATED, results.get(1).getStatus());
+        assertEquals(BookingResult.INVALID, results.get(2).getStatus());
+        assertEquals(1, appointments.size());
+        assertEquals(BookingResult.INVALID, bookings.bookAll(Arrays.asList((Appointment) null)).get(0).getStatus());
+    }
+
+    @Test
+    void rejectsInvalidDurations() {
+        Appointment negative = appointment("2030-01-07T09:00", 1);
+        negative.setDurationMinutes(-5);
+        assertThrows(IllegalArgumentException.class, () -> bookings.book(negative));
+        Appointment huge = appointment("2030-01-07T09:00", 1);
+        huge.setDurationMinutes(Integer.MAX_VALUE);
+        assertThrows(IllegalArgumentException.class, () -> bookings.book(huge));
+
+        List<BookingResult> results = bookings.bookAll(Arrays.asList(negative, huge));
+        assertEquals(BookingResult.INVALID, results.get(0).getStatus());
+        assertEquals(BookingResult.INVALID, results.get(1).getStatus());
+        assertEquals(0, appointments.size());
+
+        // Stored data with an oversized duration still gives an end after its start
+        assertTrue(huge.getEndMinute() > huge.getStartMinute());
+    }
+
+    @Test
+    void rejectsAppointmentsWithoutAStart() {
+        assertThrows(IllegalArgumentException.class, () -> bookings.book(appointment("not a date", 1)));
+        assertThrows(IllegalArgumentException.class, () -> bookings.book(appointment(null, 1)));
+        assertEquals(0, appointments.size());
+
+        Appointment booked = appointment("2030-01-07T09:00", 1);
+        bookings.book(booked);
+        Appointment undated = appointment(null, 1);
+        undated.setId(booked.getId());
+        assertThrows(IllegalArgumentException.class, () -> bookings.reschedule(undated));
+        assertEquals("2030-01-07T09:00", appointments.get(booked.getId()).getDateTime());
+        assertEquals(BookingResult.INVALID, bookings.bookAll(Arrays.asList(appointment(null, 1))).get(0).getStatus());
+    }
+
+    @Test
+    void longestBookingDropsWhenTheLongBookingGoes() {
+        Appointment day = appointment("2030-01-07T00:00", 1);
+        day.setDurationMinutes(Appointment.MAX_DURATION_MINUTES);
+        bookings.book(day);
+        bookings.book(appointment("2030-01-08T09:00", 1));
+        assertEquals(Appointment.MAX_DURATION_MINUTES, bookings.scheduleOf(1).longest());
+
+        Appointment shorter = appointment("2030-01-09T00:00", 1);
+        shorter.setId(day.getId());
+        shorter.setDurationMinutes(60);
+        assertTrue(bookings.reschedule(shorter));
+        assertEquals(60, bookings.scheduleOf(1).longest());
+
+        bookings.cancel(day.getId());
+        assertEquals(Appointment.DEFAULT_DURATION_MINUTES, bookings.scheduleOf(1).longest());
+    }
+
+    @Test
+    void scheduleCountsBookingsOfTheSameDuration() {
+        BookingEngine.DoctorSchedule schedule = new BookingEngine.DoctorSchedule();
+        schedule.add(1, 0, 90);
+        schedule.add(2, 100, 190);
+        schedule.add(3, 200, 230);
+        schedule.remove(1, 0);
+        assertEquals(90, schedule.longest());
+        schedule.remove(2, 100);
+        assertEquals(30, schedule.longest());
+        schedule.remove(3, 200);
+        assertEquals(0, schedule.longest());
+    }
+}
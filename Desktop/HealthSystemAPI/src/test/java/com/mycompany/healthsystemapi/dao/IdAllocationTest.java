@@ -0,0 +1,78 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests that concurrent addPatient and addAppointment calls never give two entities the same ID.
+ *
+ * @author rachelcooray
+ */
+class IdAllocationTest {
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 500;
+
+    private final PatientDAO patientDAO = new PatientDAO();
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+
+    @Test
+    void parallelAddsGetDistinctIds() throws Exception {
+        // Doctors far above the demo data, one per thread, so that no booking conflicts with another
+        int firstDoctor = 1_000_000 + (int) (System.nanoTime() & 0xFFFF) * THREADS;
+        LocalDateTime firstSlot = LocalDateTime.of(2030, 1, 1, 8, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<int[]>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int doctorId = firstDoctor + t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<int[]> ids = new ArrayList<>();
+                for (int i = 0; i < PER_THREAD; i++) {
+                    Patient patient = new Patient("History", "Stable", 0, "Parallel " + i, "0770000000", "Galle");
+                    patientDAO.addPatient(patient);
+                    Appointment appointment = new Appointment(0, firstSlot.plusMinutes(30L * i).toString(), patient.getId(), doctorId);
+                    appointmentDAO.addAppointment(appointment);
+                    ids.add(new int[] {patient.getId(), appointment.getId()});
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        Set<Integer> patientIds = new HashSet<>();
+        Set<Integer> appointmentIds = new HashSet<>();
+        try {
+            for (Future<List<int[]>> future : futures) {
+                for (int[] ids : future.get(120, TimeUnit.SECONDS)) {
+                    patientIds.add(ids[0]);
+                    appointmentIds.add(ids[1]);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * PER_THREAD, patientIds.size());
+        assertEquals(THREADS * PER_THREAD, appointmentIds.size());
+        for (int id : appointmentIds) {
+            assertNotNull(appointmentDAO.getAppointmentById(id));
+        }
+    }
+}
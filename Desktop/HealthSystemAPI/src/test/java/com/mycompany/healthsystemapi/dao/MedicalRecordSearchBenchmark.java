@@ -0,0 +1,107 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.MedicalRecord;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.Page;
+import com.mycompany.healthsystemapi.store.SecondaryIndex;
+import com.mycompany.healthsystemapi.store.StorageEngines;
+import com.mycompany.healthsystemapi.store.TextIndex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Latency benchmark of the full-text search over medical records. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.dao.MedicalRecordSearchBenchmark
+ *
+ * It fills a store with generated records, whose words follow a skewed distribution like real notes do,
+ * then runs a few kinds of queries many times and prints the median and 99th percentile latency of each.
+ *
+ * benchmark.records - medical records generated (default: 1000000)
+ * benchmark.patients - patients the records are spread across (default: 100000)
+ * benchmark.queries - queries run per kind (default: 2000)
+ * benchmark.limit - page size of each query (default: 20)
+ *
+ * @author rachelcooray
+ */
+public final class MedicalRecordSearchBenchmark {
+    private static final String[] DIAGNOSES = {"diabetes", "hypertension", "asthma", "migraine", "arthritis", "bronchitis",
+        "anemia", "influenza", "pneumonia", "eczema", "gastritis", "sinusitis", "tonsillitis", "insomnia", "obesity"};
+    private static final String[] TREATMENTS = {"insulin therapy", "lifestyle modifications", "inhaler", "rest and fluids",
+        "physiotherapy", "antibiotics", "iron supplements", "antihistamines", "diet plan", "pain relief"};
+    private static final int VOCABULARY = 20000;
+
+    private MedicalRecordSearchBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("healthsystem.journal.enabled", "false");
+        int records = Integer.getInteger("benchmark.records", 1000000);
+        int patients = Integer.getInteger("benchmark.patients", 100000);
+        int queries = Integer.getInteger("benchmark.queries", 2000);
+        int limit = Integer.getInteger("benchmark.limit", 20);
+
+        EntityStore<MedicalRecord> store = new EntityStore<>("searchBenchmark", MedicalRecord::getId,
+                StorageEngines.create("memory", "searchBenchmark", MedicalRecord.class, MedicalRecord::getId));
+        SecondaryIndex<MedicalRecord> byPatient = store.addIndex("patientId", MedicalRecord::getPatientId);
+        TextIndex<MedicalRecord> index = MedicalRecordDAO.textIndex();
+        store.addListener(index);
+
+        Random random = new Random(42);
+        long begin = System.nanoTime();
+        for (int id = 1; id <= records; id++) {
+            store.put(generate(random, id, 1 + random.nextInt(patients)));
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("Indexed %d records (%d distinct words) in %.1f s, %.0f records/s%n",
+                records, index.words(), seconds, records / seconds);
+
+        System.out.printf("%n%-28s %10s %10s %10s%n", "query", "hits", "p50 (us)", "p99 (us)");
+        run(store, index, null, byPatient, "diabetes", queries, limit, random, patients);
+        run(store, index, null, byPatient, "record", queries, limit, random, patients);
+        run(store, index, null, byPatient, "word17", queries, limit, random, patients);
+        run(store, index, null, byPatient, "diabetes insulin therapy", queries, limit, random, patients);
+        run(store, index, null, byPatient, "asthma word3", queries, limit, random, patients);
+        run(store, index, -1, byPatient, "diabetes", queries, limit, random, patients);
+        run(store, index, -1, byPatient, "record", queries, limit, random, patients);
+    }
+
+    /**
+     * Runs the query the specified number of times and prints its latency.
+     * A patient of -1 scopes each run to a random patient.
+     */
+    private static void run(EntityStore<MedicalRecord> store, TextIndex<MedicalRecord> index, Integer patient,
+            SecondaryIndex<MedicalRecord> byPatient, String query, int queries, int limit, Random random, int patients) {
+        long[] nanos = new long[queries];
+        long hits = 0;
+        for (int round = 0; round < 2; round++) {
+            // The first round warms the code up and is not measured
+            for (int i = 0; i < queries; i++) {
+                Integer scope = patient == null ? null : 1 + random.nextInt(patients);
+                long begin = System.nanoTime();
+                Page<MedicalRecord> page = store.search(index, query, scope == null ? null : store.scanBy(byPatient, scope), null, limit);
+                nanos[i] = System.nanoTime() - begin;
+                hits += page.getItems().size();
+            }
+        }
+        Arrays.sort(nanos);
+        String label = patient == null ? query : query + " (one patient)";
+        System.out.printf("%-28s %10.1f %10.0f %10.0f%n", label, hits / (2.0 * queries),
+                nanos[queries / 2] / 1e3, nanos[(int) (queries * 0.99)] / 1e3);
+    }
+
+    /**
+     * Generates a record with one diagnosis and treatment, and a few notes drawn from a Zipf-like vocabulary.
+     */
+    private static MedicalRecord generate(Random random, int id, int patientId) {
+        StringBuilder notes = new StringBuilder("Record details for patient ").append(patientId);
+        for (int i = 0; i < 8; i++) {
+            // Cubing a uniform draw favours the low-numbered, common words
+            double draw = random.nextDouble();
+            notes.append(" word").append((int) (draw * draw * draw * VOCABULARY));
+        }
+        return new MedicalRecord(id, patientId, notes.toString(), DIAGNOSES[random.nextInt(DIAGNOSES.length)],
+                TREATMENTS[random.nextInt(TREATMENTS.length)], random.nextInt(10) == 0 ? "Allergic to penicillin" : "None");
+    }
+}
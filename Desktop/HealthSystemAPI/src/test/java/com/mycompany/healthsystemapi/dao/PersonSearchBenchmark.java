@@ -0,0 +1,111 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Patient;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.PrefixIndex;
+import com.mycompany.healthsystemapi.store.StorageEngines;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Latency benchmark of the typeahead search over person names. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.dao.PersonSearchBenchmark
+ *
+ * It fills a store with generated patients, then replays what front-desk staff type:
+ * each keystroke of a first name, then of a last name after it, and of a phone number,
+ * and prints the median and 99th percentile latency of a page of matches per kind of query.
+ *
+ * benchmark.people - patients generated (default: 1000000)
+ * benchmark.lookups - names typed per kind of query (default: 2000)
+ * benchmark.limit - page size of each query (default: 10)
+ *
+ * @author rachelcooray
+ */
+public final class PersonSearchBenchmark {
+    private static final String[] SYLLABLES = {"an", "bel", "car", "da", "el", "fa", "gar", "han", "is", "jo", "ka", "li",
+        "mar", "na", "ol", "per", "qui", "ro", "sa", "ta", "ul", "vin", "wil", "xa", "yan", "zo"};
+
+    private PersonSearchBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("healthsystem.journal.enabled", "false");
+        int people = Integer.getInteger("benchmark.people", 1000000);
+        int lookups = Integer.getInteger("benchmark.lookups", 2000);
+        int limit = Integer.getInteger("benchmark.limit", 10);
+
+        EntityStore<Patient> store = new EntityStore<>("personSearchBenchmark", Patient::getId,
+                StorageEngines.create("memory", "personSearchBenchmark", Patient.class, Patient::getId));
+        PrefixIndex<Patient> index = PersonIndexes.nameIndex();
+        store.addListener(index);
+
+        Random random = new Random(42);
+        long begin = System.nanoTime();
+        for (int id = 1; id <= people; id++) {
+            store.put(generate(random, id));
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("Indexed %d people in %.1f s, %.0f people/s%n", people, seconds, people / seconds);
+
+        System.out.printf("%n%-22s %10s %10s %10s %10s%n", "typing", "queries", "hits", "p50 (us)", "p99 (us)");
+        for (int round = 0; round < 2; round++) {
+            // The first round warms the code up and is not printed
+            boolean print = round == 1;
+            run(store, index, "first name", lookups, limit, random, people, print, 0);
+            run(store, index, "first + last name", lookups, limit, random, people, print, 1);
+            run(store, index, "last name", lookups, limit, random, people, print, 2);
+            run(store, index, "phone number", lookups, limit, random, people, print, 3);
+        }
+    }
+
+    /**
+     * Types the name of random patients one keystroke at a time, searching after each, and prints the latency.
+     */
+    private static void run(EntityStore<Patient> store, PrefixIndex<Patient> index, String label, int lookups, int limit,
+            Random random, int people, boolean print, int kind) {
+        long[] nanos = new long[lookups * 32];
+        int queries = 0;
+        long hits = 0;
+        for (int i = 0; i < lookups; i++) {
+            Patient patient = store.get(1 + random.nextInt(people));
+            String[] name = patient.getName().split(" ");
+            String typed = kind == 0 ? name[0] : kind == 1 ? patient.getName() : kind == 2 ? name[1] : patient.getContactInfo();
+            int from = kind == 1 ? name[0].length() + 2 : 1;
+            for (int length = from; length <= typed.length() && queries < nanos.length; length++) {
+                String query = typed.substring(0, length);
+                long start = System.nanoTime();
+                hits += store.findByPrefix(index, query, null, limit).getItems().size();
+                nanos[queries++] = System.nanoTime() - start;
+            }
+        }
+        if (print) {
+            long[] measured = Arrays.copyOf(nanos, queries);
+            Arrays.sort(measured);
+            System.out.printf("%-22s %10d %10.1f %10.0f %10.0f%n", label, queries, (double) hits / queries,
+                    measured[queries / 2] / 1e3, measured[(int) (queries * 0.99)] / 1e3);
+        }
+    }
+
+    /**
+     * Generates a patient with a made-up first and last name, so that names share prefixes like real ones do.
+     */
+    private static Patient generate(Random random, int id) {
+        String name = word(random, 2) + " " + word(random, 3);
+        String phone = String.format("07%08d", random.nextInt(100000000));
+        return new Patient("None", "Stable", id, name, phone, id + ", Main Street, Galle");
+    }
+
+    private static String word(Random random, int maxSyllables) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 1 + random.nextInt(maxSyllables);
+        for (int i = 0; i < syllables; i++) {
+            // Squaring the draw makes the first syllables more common
+            double draw = random.nextDouble();
+            word.append(SYLLABLES[(int) (draw * draw * SYLLABLES.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package com.mycompany.healthsystemapi.dao;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.DateTimes;
+import com.mycompany.healthsystemapi.model.RevenueReport;
+import com.mycompany.healthsystemapi.store.EntityStore;
+import com.mycompany.healthsystemapi.store.StorageEngines;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Latency benchmark of the revenue reports. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.dao.RevenueReportBenchmark
+ *
+ * It fills a store with billings spread over a few years, then runs the same reports from the daily rollups
+ * and from a full scan of the billings, checks that both agree, and prints the median latency of each.
+ *
+ * benchmark.billings - billings generated (default: 1000000)
+ * benchmark.years - years the invoice dates are spread over, ending in 2024 (default: 3)
+ * benchmark.reports - runs of each report from the rollups (default: 200); the scan runs a tenth as many
+ *
+ * @author rachelcooray
+ */
+public final class RevenueReportBenchmark {
+
+    private RevenueReportBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("healthsystem.journal.enabled", "false");
+        int billings = Integer.getInteger("benchmark.billings", 1000000);
+        int years = Integer.getInteger("benchmark.years", 3);
+        int reports = Integer.getInteger("benchmark.reports", 200);
+
+        EntityStore<Billing> store = new EntityStore<>("revenueBenchmark", Billing::getId,
+                StorageEngines.create("memory", "revenueBenchmark", Billing.class, Billing::getId));
+        RevenueRollups rollups = new RevenueRollups();
+        store.addListener(rollups);
+
+        Random random = new Random(42);
+        int firstDay = (int) LocalDate.of(2025 - years, 1, 1).toEpochDay();
+        int span = (int) LocalDate.of(2025, 1, 1).toEpochDay() - firstDay;
+        long begin = System.nanoTime();
+        for (int id = 1; id <= billings; id++) {
+            store.put(generate(random, id, firstDay + random.nextInt(span)));
+        }
+        // Rewrites a tenth of them, so the rollups also go through updates and deletes
+        for (int i = 0; i < billings / 10; i++) {
+            int id = 1 + random.nextInt(billings);
+            if (random.nextBoolean()) {
+                store.remove(id);
+            } else {
+                store.put(generate(random, id, firstDay + random.nextInt(span)));
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("Wrote %d billings in %.1f s, %.0f writes/s%n", store.size(), seconds, (billings * 1.1) / seconds);
+
+        System.out.printf("%n%-24s %8s %14s %14s %10s%n", "report", "rows", "rollups (us)", "scan (us)", "speed-up");
+        run(store, rollups, "one month by day", day("2024-03-01"), day("2024-03-31"), RevenueRollups.Period.DAY, reports);
+        run(store, rollups, "one year by month", day("2024-01-01"), day("2024-12-31"), RevenueRollups.Period.MONTH, reports);
+        run(store, rollups, "all years by year", Integer.MIN_VALUE, Integer.MAX_VALUE, RevenueRollups.Period.YEAR, reports);
+        run(store, rollups, "all time total", Integer.MIN_VALUE, Integer.MAX_VALUE, RevenueRollups.Period.TOTAL, reports);
+    }
+
+    private static int day(String date) {
+        return DateTimes.toEpochDay(date);
+    }
+
+    private static void run(EntityStore<Billing> store, RevenueRollups rollups, String label, int from, int to,
+            RevenueRollups.Period period, int reports) {
+        List<RevenueReport> fromRollups = null;
+        long[] rollupNanos = new long[reports];
+        for (int i = 0; i < reports; i++) {
+            long begin = System.nanoTime();
+            fromRollups = rollups.report(from, to, period);
+            rollupNanos[i] = System.nanoTime() - begin;
+        }
+        List<RevenueReport> fromScan = null;
+        long[] scanNanos = new long[Math.max(1, reports / 10)];
+        for (int i = 0; i < scanNanos.length; i++) {
+            long begin = System.nanoTime();
+            fromScan = scan(store, from, to, period);
+            scanNanos[i] = System.nanoTime() - begin;
+        }
+        check(label, fromRollups, fromScan);
+        double rollupMicros = median(rollupNanos) / 1e3;
+        double scanMicros = median(scanNanos) / 1e3;
+        System.out.printf("%-24s %8d %14.1f %14.0f %9.0fx%n", label, fromRollups.size(), rollupMicros, scanMicros, scanMicros / rollupMicros);
+    }
+
+    /**
+     * Builds the report the way it was done before the rollups: by reading every billing and parsing its dates.
+     */
+    private static List<RevenueReport> scan(EntityStore<Billing> store, int from, int to, RevenueRollups.Period period) {
+        RevenueRollups scanned = new RevenueRollups();
+        for (Billing billing : store.scan()) {
+            scanned.onWrite(billing.getId(), null, billing);
+        }
+        return scanned.report(from, to, period);
+    }
+
+    private static void check(String label, List<RevenueReport> expected, List<RevenueReport> actual) {
+        boolean same = expected.size() == actual.size();
+        for (int i = 0; same && i < expected.size(); i++) {
+            RevenueReport left = expected.get(i);
+            RevenueReport right = actual.get(i);
+            same = left.getPeriod().equals(right.getPeriod()) && left.getInvoiceCount() == right.getInvoiceCount()
+                    && left.getInvoiced() == right.getInvoiced() && left.getPaymentCount() == right.getPaymentCount()
+                    && left.getCollected() == right.getCollected();
+        }
+        if (!same) {
+            throw new IllegalStateException("The rollups and the scan disagree on report: " + label);
+        }
+    }
+
+    private static long median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Generates a billing invoiced on the specified day, paid in full, in part or not at all up to a month later.
+     */
+    private static Billing generate(Random random, int id, int invoiceDay) {
+        double amount = 10 + random.nextInt(50000) / 100.0;
+        int paid = random.nextInt(3);
+        double outstanding = paid == 0 ? amount : paid == 1 ? Math.round(amount * 50) / 100.0 : 0.0;
+        String invoiceDate = LocalDate.ofEpochDay(invoiceDay).toString();
+        String paymentDate = paid == 0 ? null : LocalDate.ofEpochDay(invoiceDay + random.nextInt(30)).toString();
+        return new Billing(id, 1 + random.nextInt(100000), amount, paid == 2 ? "Paid" : "Pending", invoiceDate, paymentDate, outstanding);
+    }
+}
@@ -0,0 +1,110 @@
+package com.mycompany.healthsystemapi.provider;
+
+// Import required classes and libraries
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the response compression: the encoding picked for an Accept-Encoding header,
+ * small bodies sent as they are, and larger ones read back by the standard gzip and zlib decoders.
+ *
+ * @author rachelcooray
+ */
+class CompressionTest {
+    private static final int THRESHOLD = 64;
+
+    @Test
+    void negotiatesTheEncodingTheClientPrefers() {
+        assertNull(CompressionInterceptor.negotiate(null));
+        assertNull(CompressionInterceptor.negotiate(""));
+        assertNull(CompressionInterceptor.negotiate("identity, br"));
+        assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionInterceptor.negotiate("gzip"));
+        assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionInterceptor.negotiate("x-gzip"));
+        assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionInterceptor.negotiate("deflate"));
+        // gzip on a tie, otherwise the higher quality
+        assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionInterceptor.negotiate("deflate, gzip"));
+        assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0.5, deflate;q=0.8"));
+        assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionInterceptor.negotiate(" GZIP ; q=0.9 , deflate ;q=0.2"));
+        // q=0 and invalid qualities refuse the encoding
+        assertNull(CompressionInterceptor.negotiate("gzip;q=0"));
+        assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0, deflate"));
+        assertNull(CompressionInterceptor.negotiate("gzip;q=abc"));
+        // The wildcard covers the encodings not named
+        assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionInterceptor.negotiate("*"));
+        assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionInterceptor.negotiate("gzip;q=0, *"));
+        assertNull(CompressionInterceptor.negotiate("*;q=0"));
+    }
+
+    @Test
+    void sendsSmallBodiesAsTheyAre() throws IOException {
+        CompressingOutputStream.Pool pool = new CompressingOutputStream.Pool(2, 6, THRESHOLD);
+        AtomicInteger compressed = new AtomicInteger();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        CompressingOutputStream stream = new CompressingOutputStream(out, CompressingOutputStream.Encoding.GZIP, pool, compressed::incrementAndGet);
+        stream.write(body);
+        // A flush before the size is known writes nothing, so the headers can still change
+        stream.flush();
+        assertEquals(0, out.size());
+        stream.close();
+
+        assertEquals(0, compressed.get());
+        assertArrayEquals(body, out.toByteArray());
+    }
+
+    @Test
+    void compressedBodiesReadBackWithBothEncodings() throws IOException {
+        CompressingOutputStream.Pool pool = new CompressingOutputStream.Pool(2, 6, THRESHOLD);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 500; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"Patient ").append(i).append("\"}");
+        }
+        byte[] body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+
+        for (CompressingOutputStream.Encoding encoding : CompressingOutputStream.Encoding.values()) {
+            // Twice each, so the second response reuses the pooled compressor
+            for (int round = 0; round < 2; round++) {
+                AtomicInteger compressed = new AtomicInteger();
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                CompressingOutputStream stream = new CompressingOutputStream(out, encoding, pool, compressed::incrementAndGet);
+                // Written in small pieces with a flush in the middle, as a streamed response would be
+                for (int off = 0; off < body.length; off += 100) {
+                    stream.write(body, off, Math.min(100, body.length - off));
+                    if (off == body.length / 2) {
+                        stream.flush();
+                    }
+                }
+                stream.close();
+
+                assertEquals(1, compressed.get());
+                assertTrue(out.size() < body.length / 2, encoding + " did not compress the body");
+                InputStream in = encoding == CompressingOutputStream.Encoding.GZIP
+                        ? new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))
+                        : new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()));
+                assertArrayEquals(body, readAll(in), encoding + " body did not read back");
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int length; (length = in.read(buffer)) > 0; ) {
+            bytes.write(buffer, 0, length);
+        }
+        return bytes.toByteArray();
+    }
+}
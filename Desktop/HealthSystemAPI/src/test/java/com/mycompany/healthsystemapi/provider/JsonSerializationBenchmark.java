@@ -0,0 +1,142 @@
+package com.mycompany.healthsystemapi.provider;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import com.mycompany.healthsystemapi.model.Appointment;
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.MedicalRecord;
+import com.mycompany.healthsystemapi.model.Patient;
+import com.mycompany.healthsystemapi.store.SerializedEntities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Serialization benchmark of the response bodies of the collection endpoints. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.provider.JsonSerializationBenchmark
+ *
+ * For pages of patients, appointments, billings and medical records it compares three ways of building the body:
+ * the mapper Jersey set up before (Jackson and JAXB annotations, with the writer for the page looked up per response),
+ * the shared mapper of ObjectMapperProvider with its writer built once, and the JSON kept per entity by SerializedEntities
+ * copied into an array. It checks that all three give the same bytes, warms each up, and prints the median of the measured rounds.
+ *
+ * benchmark.entities - entities generated of each kind, serialized page by page in each round (default: 20000)
+ * benchmark.page - entities per page (default: 50)
+ * benchmark.rounds - measured rounds of each way, after as many warm-up rounds (default: 20)
+ *
+ * @author rachelcooray
+ */
+public final class JsonSerializationBenchmark {
+    // Keeps the results of the rounds alive
+    private static long sink;
+
+    private JsonSerializationBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int count = Integer.getInteger("benchmark.entities", 20000);
+        int page = Integer.getInteger("benchmark.page", 50);
+        int rounds = Integer.getInteger("benchmark.rounds", 20);
+        ObjectMapper before = new ObjectMapper().setAnnotationIntrospector(AnnotationIntrospector.pair(
+                new JacksonAnnotationIntrospector(), new JaxbAnnotationIntrospector(new ObjectMapper().getTypeFactory())));
+        Random random = new Random(42);
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+
+        System.out.printf("%d entities of each kind, pages of %d%n%n%-14s %12s %12s %12s %10s %10s%n", count, page,
+                "page of", "before (us)", "shared (us)", "kept (us)", "shared", "kept");
+        compare("patients", before, Patient.class, Patient::getId, generate(count, id -> new Patient("History of patient " + id + ": asthma, "
+                + random.nextInt(40) + " years", "Stable", id, "Patient Number" + id, "07" + (70000000 + id), id + ", Main Street, Galle")), page, rounds);
+        compare("appointments", before, Appointment.class, Appointment::getId, generate(count, id -> new Appointment(id,
+                LocalDateTime.of(firstDay, LocalTime.of(8, 0)).plusMinutes(30L * id).toString(), 1 + random.nextInt(1000), 1 + random.nextInt(100))), page, rounds);
+        compare("billings", before, Billing.class, Billing::getId, generate(count, id -> new Billing(id, 1 + random.nextInt(1000),
+                10 + random.nextInt(50000) / 100.0, "Pending", firstDay.plusDays(random.nextInt(365)).toString(), null, random.nextInt(5000) / 100.0)), page, rounds);
+        compare("records", before, MedicalRecord.class, MedicalRecord::getId, generate(count, id -> new MedicalRecord(id, 1 + random.nextInt(1000),
+                "Seen for a persistent cough and mild fever over " + random.nextInt(14) + " days", "Upper respiratory tract infection",
+                "Rest, fluids and paracetamol; review in one week", "No known allergies")), page, rounds);
+    }
+
+    private static <T> List<T> generate(int count, IntFunction<T> entity) {
+        List<T> entities = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            entities.add(entity.apply(id));
+        }
+        return entities;
+    }
+
+    /**
+     * A way of building the body of one page.
+     */
+    private interface Body<T> {
+        byte[] build(List<T> page) throws IOException;
+    }
+
+    private static <T> void compare(String label, ObjectMapper before, Class<T> type, ToIntFunction<T> idOf, List<T> entities, int page, int rounds) {
+        JavaType listType = before.getTypeFactory().constructCollectionType(List.class, type);
+        ObjectWriter shared = ObjectMapperProvider.MAPPER.writerFor(listType);
+        SerializedEntities<T> kept = new SerializedEntities<>(ObjectMapperProvider.writerFor(type), idOf);
+        for (T entity : entities) {
+            kept.onWrite(idOf.applyAsInt(entity), null, entity);
+        }
+        List<List<T>> pages = new ArrayList<>();
+        for (int from = 0; from < entities.size(); from += page) {
+            pages.add(entities.subList(from, Math.min(entities.size(), from + page)));
+        }
+        Body<T> beforeBody = items -> before.writerFor(listType).writeValueAsBytes(items);
+        Body<T> sharedBody = shared::writeValueAsBytes;
+        Body<T> keptBody = kept::toJsonArray;
+        try {
+            for (List<T> items : pages) {
+                byte[] expected = beforeBody.build(items);
+                if (!Arrays.equals(expected, sharedBody.build(items)) || !Arrays.equals(expected, keptBody.build(items))) {
+                    throw new IllegalStateException("The bodies of the " + label + " differ");
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        double beforeMicros = measure(beforeBody, pages, rounds) / 1e3 / pages.size();
+        double sharedMicros = measure(sharedBody, pages, rounds) / 1e3 / pages.size();
+        double keptMicros = measure(keptBody, pages, rounds) / 1e3 / pages.size();
+        System.out.printf("%-14s %12.2f %12.2f %12.2f %9.1fx %9.1fx%n", label, beforeMicros, sharedMicros, keptMicros,
+                beforeMicros / sharedMicros, beforeMicros / keptMicros);
+    }
+
+    /**
+     * Gives the median time of a round building the body of every page.
+     */
+    private static <T> long measure(Body<T> body, List<List<T>> pages, int rounds) {
+        try {
+            for (int i = 0; i < rounds; i++) {
+                for (List<T> items : pages) {
+                    sink += body.build(items).length;
+                }
+            }
+            long[] nanos = new long[rounds];
+            for (int i = 0; i < rounds; i++) {
+                long begin = System.nanoTime();
+                for (List<T> items : pages) {
+                    sink += body.build(items).length;
+                }
+                nanos[i] = System.nanoTime() - begin;
+            }
+            Arrays.sort(nanos);
+            return nanos[rounds / 2];
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
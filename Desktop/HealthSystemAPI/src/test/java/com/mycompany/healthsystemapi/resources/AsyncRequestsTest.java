@@ -0,0 +1,74 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the executor of the slow endpoints: admission, the answers it resumes requests with, and dropped work.
+ *
+ * @author rachelcooray
+ */
+class AsyncRequestsTest {
+    @Test
+    void rejectsRequestsBeyondTheAdmittedOnes() throws Exception {
+        AsyncRequests requests = new AsyncRequests(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingAsyncResponse first = new RecordingAsyncResponse();
+        requests.submit(first, AsyncRequests.Deadline.LIST, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Response.ok("first").build();
+        });
+
+        RecordingAsyncResponse second = new RecordingAsyncResponse();
+        requests.submit(second, AsyncRequests.Deadline.LIST, () -> Response.ok("second").build());
+        assertEquals(503, second.status());
+
+        release.countDown();
+        assertEquals(200, first.status());
+        // The first request is no longer pending once answered
+        RecordingAsyncResponse third = new RecordingAsyncResponse();
+        requests.submit(third, AsyncRequests.Deadline.LIST, () -> Response.ok("third").build());
+        assertEquals(200, third.status());
+    }
+
+    @Test
+    void passesExceptionsToTheRequest() throws Exception {
+        AsyncRequests requests = new AsyncRequests(4, 1);
+        RecordingAsyncResponse response = new RecordingAsyncResponse();
+        requests.submit(response, AsyncRequests.Deadline.REPORT, () -> {
+            throw new BadRequestException("n must be a positive number");
+        });
+        assertTrue(response.await() instanceof BadRequestException);
+    }
+
+    @Test
+    void dropsWorkOfRequestsAlreadyAnswered() throws Exception {
+        AsyncRequests requests = new AsyncRequests(4, 1);
+        RecordingAsyncResponse timedOut = new RecordingAsyncResponse();
+        timedOut.resume(Response.status(503).build());
+        AtomicBoolean ran = new AtomicBoolean();
+        requests.submit(timedOut, AsyncRequests.Deadline.LIST, () -> {
+            ran.set(true);
+            return Response.ok().build();
+        });
+
+        // Work runs in order on the one worker, so once the next request is answered the dropped work has been skipped
+        RecordingAsyncResponse next = new RecordingAsyncResponse();
+        requests.submit(next, AsyncRequests.Deadline.LIST, () -> Response.ok().build());
+        assertEquals(200, next.status());
+        assertFalse(ran.get());
+    }
+}
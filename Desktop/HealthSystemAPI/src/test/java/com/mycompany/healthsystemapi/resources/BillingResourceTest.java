@@ -0,0 +1,71 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.dao.BillingDAO;
+import com.mycompany.healthsystemapi.model.Billing;
+import com.mycompany.healthsystemapi.model.BillingSummary;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the billing totals: the per-patient summaries kept up to date by the writes,
+ * and the outstanding balance endpoints answering invalid parameters before their preconditions.
+ *
+ * @author rachelcooray
+ */
+class BillingResourceTest {
+    private final BillingDAO billingDAO = new BillingDAO();
+    private final BillingResource resource = new BillingResource();
+
+    @Test
+    void summariesFollowTheWrites() {
+        // A patient far above the demo data, so that no other billing counts towards it
+        int patientId = 2_000_000 + (int) (System.nanoTime() & 0xFFFF);
+        Billing pending = new Billing(0, patientId, 120.0, "Pending", "2024-05-01", null, 120.0);
+        Billing partial = new Billing(0, patientId, 80.5, "Partial", "2024-05-02", "2024-05-03", 30.25);
+        billingDAO.addBilling(pending);
+        billingDAO.addBilling(partial);
+
+        BillingSummary summary = billingDAO.getBillingSummary(patientId);
+        assertEquals(2, summary.getInvoiceCount());
+        assertEquals(200.5, summary.getTotalInvoiced(), 0.001);
+        assertEquals(150.25, summary.getTotalOutstanding(), 0.001);
+
+        billingDAO.updateBilling(new Billing(pending.getId(), patientId, 120.0, "Paid", "2024-05-01", "2024-05-04", 0.0));
+        billingDAO.deleteBilling(partial.getId());
+        summary = billingDAO.getBillingSummary(patientId);
+        assertEquals(1, summary.getInvoiceCount());
+        assertEquals(120.0, summary.getTotalInvoiced(), 0.001);
+        assertEquals(0.0, summary.getTotalOutstanding(), 0.001);
+
+        billingDAO.deleteBilling(pending.getId());
+        assertEquals(0, billingDAO.getBillingSummary(patientId).getInvoiceCount());
+    }
+
+    @Test
+    void invalidTopOutstandingIsRejectedEvenWhenTheTagMatches() throws Exception {
+        RecordingAsyncResponse first = new RecordingAsyncResponse();
+        resource.getTopOutstanding(5, TestRequests.uri("/billings/outstanding/top?n=5"), TestRequests.get(null), first);
+        Response ok = first.response();
+        assertEquals(200, ok.getStatus());
+        EntityTag tag = ok.getEntityTag();
+        assertNotNull(tag);
+
+        RecordingAsyncResponse unchanged = new RecordingAsyncResponse();
+        resource.getTopOutstanding(5, TestRequests.uri("/billings/outstanding/top?n=5"), TestRequests.get(tag), unchanged);
+        assertEquals(304, unchanged.status());
+
+        // The tag does not depend on n, so it matches, but the request is invalid
+        RecordingAsyncResponse invalid = new RecordingAsyncResponse();
+        resource.getTopOutstanding(0, TestRequests.uri("/billings/outstanding/top?n=0"), TestRequests.get(tag), invalid);
+        assertTrue(invalid.await() instanceof BadRequestException);
+    }
+}
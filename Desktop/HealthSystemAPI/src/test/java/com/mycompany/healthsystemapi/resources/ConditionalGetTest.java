@@ -0,0 +1,94 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Patient;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the conditional GETs: 304 while the versions behind a tag are unchanged, a new tag once they change,
+ * and invalid parameters answered 400 even when the tag still matches.
+ *
+ * @author rachelcooray
+ */
+class ConditionalGetTest {
+    private final PatientResource patients = new PatientResource();
+    private final MedicalRecordResource medicalRecords = new MedicalRecordResource();
+
+    private static Patient patient(String name) {
+        return new Patient("History", "Stable", 0, name, "0770000000", "Main Street, Galle");
+    }
+
+    @Test
+    void entityTagsFollowTheWritesOfTheEntity() {
+        // Adding a patient sets the ID of the object given
+        Patient created = patient("Conditional Get");
+        patients.addPatient(created);
+        int id = created.getId();
+        Patient other = patient("Someone Else");
+        patients.addPatient(other);
+
+        Response first = patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(null));
+        assertEquals(200, first.getStatus());
+        EntityTag tag = first.getEntityTag();
+        assertNotNull(tag);
+        assertTrue(tag.isWeak());
+
+        assertEquals(304, patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(tag)).getStatus());
+        // A write to another patient leaves the tag of this one valid
+        patients.updatePatient(other.getId(), patient("Someone Else Renamed"));
+        assertEquals(304, patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(tag)).getStatus());
+
+        patients.updatePatient(id, patient("Conditional Get Renamed"));
+        Response changed = patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(tag));
+        assertEquals(200, changed.getStatus());
+        assertNotEquals(tag, changed.getEntityTag());
+    }
+
+    @Test
+    void collectionTagsFollowEveryWrite() throws Exception {
+        RecordingAsyncResponse first = new RecordingAsyncResponse();
+        patients.getAllPatients(null, 5, null, false, TestRequests.uri("/patients?limit=5"), TestRequests.get(null), first);
+        EntityTag tag = first.response().getEntityTag();
+
+        RecordingAsyncResponse unchanged = new RecordingAsyncResponse();
+        patients.getAllPatients(null, 5, null, false, TestRequests.uri("/patients?limit=5"), TestRequests.get(tag), unchanged);
+        assertEquals(304, unchanged.status());
+
+        patients.addPatient(patient("New Arrival"));
+        RecordingAsyncResponse changed = new RecordingAsyncResponse();
+        patients.getAllPatients(null, 5, null, false, TestRequests.uri("/patients?limit=5"), TestRequests.get(tag), changed);
+        assertEquals(200, changed.status());
+    }
+
+    @Test
+    void invalidParametersAreRejectedEvenWhenTheTagMatches() throws Exception {
+        RecordingAsyncResponse first = new RecordingAsyncResponse();
+        patients.getAllPatients(null, 5, null, false, TestRequests.uri("/patients?limit=5"), TestRequests.get(null), first);
+        EntityTag tag = first.response().getEntityTag();
+
+        RecordingAsyncResponse badLimit = new RecordingAsyncResponse();
+        patients.getAllPatients(null, 0, null, false, TestRequests.uri("/patients?limit=0"), TestRequests.get(tag), badLimit);
+        assertTrue(badLimit.await() instanceof BadRequestException);
+
+        RecordingAsyncResponse badCursor = new RecordingAsyncResponse();
+        patients.getAllPatients(null, 5, "not-a-cursor", false, TestRequests.uri("/patients?limit=5&after=not-a-cursor"), TestRequests.get(tag), badCursor);
+        assertTrue(badCursor.await() instanceof BadRequestException);
+
+        RecordingAsyncResponse search = new RecordingAsyncResponse();
+        medicalRecords.searchMedicalRecords("diabetes", null, 5, null, TestRequests.uri("/medicalrecords/search?q=diabetes"), TestRequests.get(null), search);
+        EntityTag searchTag = search.response().getEntityTag();
+        RecordingAsyncResponse emptyQuery = new RecordingAsyncResponse();
+        medicalRecords.searchMedicalRecords(" ", null, 5, null, TestRequests.uri("/medicalrecords/search?q=%20"), TestRequests.get(searchTag), emptyQuery);
+        assertTrue(emptyQuery.await() instanceof BadRequestException);
+    }
+}
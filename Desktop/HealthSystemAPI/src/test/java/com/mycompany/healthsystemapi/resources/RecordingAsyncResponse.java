@@ -0,0 +1,112 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+/**
+ * A suspended request for the tests, which records what it was resumed with.
+ *
+ * @author rachelcooray
+ */
+final class RecordingAsyncResponse implements AsyncResponse {
+    private final CompletableFuture<Object> resumed = new CompletableFuture<>();
+
+    /**
+     * Waits for the request to be resumed and gives the response or exception it was resumed with.
+     */
+    Object await() throws Exception {
+        return resumed.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Waits for the request to be resumed with a response and gives it.
+     */
+    Response response() throws Exception {
+        Object result = await();
+        if (result instanceof Throwable) {
+            throw new AssertionError("Resumed with an exception", (Throwable) result);
+        }
+        return (Response) result;
+    }
+
+    int status() throws Exception {
+        return response().getStatus();
+    }
+
+    @Override
+    public boolean resume(Object response) {
+        return resumed.complete(response);
+    }
+
+    @Override
+    public boolean resume(Throwable response) {
+        return resumed.complete(response);
+    }
+
+    @Override
+    public boolean cancel() {
+        return resumed.cancel(false);
+    }
+
+    @Override
+    public boolean cancel(int retryAfter) {
+        return cancel();
+    }
+
+    @Override
+    public boolean cancel(Date retryAfter) {
+        return cancel();
+    }
+
+    @Override
+    public boolean isSuspended() {
+        return !resumed.isDone();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return resumed.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return resumed.isDone();
+    }
+
+    @Override
+    public boolean setTimeout(long time, TimeUnit unit) {
+        return true;
+    }
+
+    @Override
+    public void setTimeoutHandler(TimeoutHandler handler) {
+    }
+
+    @Override
+    public Collection<Class<?>> register(Class<?> callback) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Collection<Class<?>> register(Object callback) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+        return Collections.emptyMap();
+    }
+}
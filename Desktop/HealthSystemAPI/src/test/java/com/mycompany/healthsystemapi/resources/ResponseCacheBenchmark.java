@@ -0,0 +1,227 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import ch.qos.logback.classic.Level;
+import com.mycompany.healthsystemapi.model.CacheStats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.SecurityContext;
+
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.spi.ContainerResponseWriter;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-heavy load benchmark of the response cache. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.resources.ResponseCacheBenchmark
+ *
+ * It runs the resources in process, without a server, adds doctors and appointments through the API,
+ * then replays the same mix of requests with the cache off and on: mostly GET /doctors/{id} and
+ * a page of GET /appointments/doctor/{id}?expand=patient, skewed towards a few busy doctors, with a share of doctor updates and
+ * appointment bookings and cancellations in between. It prints the throughput, the read latency and the cache counters.
+ *
+ * benchmark.doctors - doctors added (default: 2000)
+ * benchmark.appointments - appointments added per doctor (default: 50)
+ * benchmark.requests - requests replayed per run (default: 200000)
+ * benchmark.writes - percentage of the requests that are writes (default: 2)
+ * benchmark.page - appointments per page, each with its patient (default: 50)
+ *
+ * @author rachelcooray
+ */
+public final class ResponseCacheBenchmark {
+    private static final SecurityContext ANONYMOUS = new SecurityContext() {
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return false;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public String getAuthenticationScheme() {
+            return null;
+        }
+    };
+
+    private static ApplicationHandler application;
+    private static int nextSlot;
+
+    private ResponseCacheBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("healthsystem.journal.enabled", "false");
+        System.setProperty("healthsystem.data.dir", Files.createTempDirectory("cacheBenchmark").toString());
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        int doctors = Integer.getInteger("benchmark.doctors", 2000);
+        int appointments = Integer.getInteger("benchmark.appointments", 50);
+        int requests = Integer.getInteger("benchmark.requests", 200000);
+        int writes = Integer.getInteger("benchmark.writes", 2);
+        int page = Integer.getInteger("benchmark.page", 50);
+
+        application = new ApplicationHandler(new ResourceConfig()
+                .packages(false, "com.mycompany.healthsystemapi.resources", "com.mycompany.healthsystemapi.exception"));
+        for (int doctor = 0; doctor < doctors; doctor++) {
+            call("POST", "/doctors", doctorJson(doctor, 0));
+        }
+        for (int doctor = 1; doctor <= doctors; doctor++) {
+            for (int i = 0; i < appointments; i++) {
+                call("POST", "/appointments", appointmentJson(doctor, i));
+                nextSlot = Math.max(nextSlot, i + 1);
+            }
+        }
+        System.out.printf("Added %d doctors and %d appointments, %d%% writes%n", doctors, doctors * appointments, writes);
+
+        System.out.printf("%n%-12s %10s %10s %10s %10s %10s %10s%n", "cache", "req/s", "p50 (us)", "p99 (us)", "hit rate", "evictions", "invalid.");
+        // The first two runs warm the code up and are not printed
+        for (int round = 0; round < 2; round++) {
+            for (boolean cached : new boolean[] {false, true}) {
+                ResponseCache.SHARED.setEnabled(cached);
+                CacheStats before = ResponseCache.SHARED.stats();
+                long[] nanos = new long[requests];
+                int reads = 0;
+                Random random = new Random(42);
+                long begin = System.nanoTime();
+                for (int i = 0; i < requests; i++) {
+                    int doctor = 1 + skewed(random, doctors);
+                    if (random.nextInt(100) < writes) {
+                        write(random, doctor);
+                        continue;
+                    }
+                    String path = random.nextBoolean() ? "/doctors/" + doctor : "/appointments/doctor/" + doctor + "?limit=" + page + "&expand=patient";
+                    long start = System.nanoTime();
+                    call("GET", path, null);
+                    nanos[reads++] = System.nanoTime() - start;
+                }
+                double seconds = (System.nanoTime() - begin) / 1e9;
+                if (round == 1) {
+                    CacheStats after = ResponseCache.SHARED.stats();
+                    long hits = after.getHits() - before.getHits();
+                    long lookups = hits + after.getMisses() - before.getMisses();
+                    long[] measured = Arrays.copyOf(nanos, reads);
+                    Arrays.sort(measured);
+                    System.out.printf("%-12s %10.0f %10.1f %10.1f %10s %10d %10d%n", cached ? "on" : "off", requests / seconds,
+                            measured[reads / 2] / 1e3, measured[(int) (reads * 0.99)] / 1e3,
+                            lookups == 0 ? "-" : String.format("%.1f%%", 100.0 * hits / lookups),
+                            after.getEvictions() - before.getEvictions(), after.getInvalidations() - before.getInvalidations());
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks a number below the bound, with the low numbers far more often than the high ones.
+     */
+    private static int skewed(Random random, int bound) {
+        double draw = random.nextDouble();
+        return (int) (draw * draw * draw * bound);
+    }
+
+    /**
+     * Updates the doctor, books one of their appointments or cancels one.
+     */
+    private static void write(Random random, int doctor) {
+        switch (random.nextInt(3)) {
+            case 0:
+                call("PUT", "/doctors/" + doctor, doctorJson(doctor - 1, random.nextInt(1000)));
+                break;
+            case 1:
+                call("POST", "/appointments", appointmentJson(doctor, nextSlot++));
+                break;
+            default:
+                call("DELETE", "/appointments/" + (1 + random.nextInt(nextSlot)), null);
+                break;
+        }
+    }
+
+    private static String doctorJson(int doctor, int revision) {
+        return "{\"name\":\"Dr. Doctor " + doctor + "\",\"contactInfo\":\"07" + (10000000 + doctor) + "\",\"address\":\"" + revision
+                + ", Main Street, Galle\",\"specialization\":\"Cardiology\"}";
+    }
+
+    private static String appointmentJson(int doctor, int slot) {
+        // Each slot is a separate half hour, so that bookings never conflict
+        long minute = 28000000L + slot * 30L;
+        String dateTime = LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC).toString();
+        return "{\"dateTime\":\"" + dateTime + "\",\"durationMinutes\":30,\"patientId\":1,\"doctorId\":" + doctor + "}";
+    }
+
+    /**
+     * Sends one request through the application and returns the body of the response.
+     */
+    private static byte[] call(String method, String path, String json) {
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/rest/"), URI.create("http://localhost/rest" + path),
+                method, ANONYMOUS, new MapPropertiesDelegate(), null);
+        if (json != null) {
+            request.header("Content-Type", "application/json");
+            request.setEntityStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        // The slow endpoints answer from another thread, so the request is over once its response is committed
+        CountDownLatch done = new CountDownLatch(1);
+        request.setWriter(new ContainerResponseWriter() {
+            @Override
+            public OutputStream writeResponseStatusAndHeaders(long contentLength, ContainerResponse response) {
+                return body;
+            }
+
+            @Override
+            public boolean suspend(long timeOut, TimeUnit timeUnit, TimeoutHandler timeoutHandler) {
+                // Deadlines are not enforced here, as no request is left waiting
+                return true;
+            }
+
+            @Override
+            public void setSuspendTimeout(long timeOut, TimeUnit timeUnit) {
+            }
+
+            @Override
+            public void commit() {
+                done.countDown();
+            }
+
+            @Override
+            public void failure(Throwable error) {
+                done.countDown();
+                throw new IllegalStateException(method + " " + path + " failed", error);
+            }
+
+            @Override
+            public boolean enableResponseBuffering() {
+                return false;
+            }
+        });
+        application.handle(request);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(method + " " + path + " was interrupted", e);
+        }
+        return body.toByteArray();
+    }
+}
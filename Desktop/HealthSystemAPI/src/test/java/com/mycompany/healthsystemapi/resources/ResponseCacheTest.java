@@ -0,0 +1,140 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.CacheStats;
+import com.mycompany.healthsystemapi.model.Patient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the response cache: hits while the tag holds, invalidation when it changes, including through the DAO writes,
+ * the responses it never keeps, and admission of new entries over frequently read ones.
+ *
+ * @author rachelcooray
+ */
+class ResponseCacheTest {
+    private static final EntityTag TAG = new EntityTag("v1", true);
+
+    /**
+     * Builds a JSON response with the given body, counting how many times it was built.
+     */
+    private static Supplier<Response> building(AtomicInteger builds, String body) {
+        return () -> {
+            builds.incrementAndGet();
+            return Response.ok(body.getBytes(StandardCharsets.UTF_8)).header(Pagination.NEXT_CURSOR_HEADER, "next").tag(TAG).build();
+        };
+    }
+
+    private static String body(Response response) {
+        return new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void servesCachedBodiesWhileTheTagHolds() {
+        ResponseCache cache = new ResponseCache(1 << 20);
+        AtomicInteger builds = new AtomicInteger();
+        cache.get("/patients/1", TAG, building(builds, "{\"id\":1}"));
+        Response cached = cache.get("/patients/1", TAG, building(builds, "{\"id\":1}"));
+
+        assertEquals(1, builds.get());
+        assertEquals("{\"id\":1}", body(cached));
+        assertEquals("next", cached.getHeaderString(Pagination.NEXT_CURSOR_HEADER));
+        // The tag is set again by the caller, for the request it answers
+        assertNull(cached.getEntityTag());
+
+        Response rebuilt = cache.get("/patients/1", new EntityTag("v2", true), building(builds, "{\"id\":1,\"name\":\"new\"}"));
+        assertEquals(2, builds.get());
+        assertEquals("{\"id\":1,\"name\":\"new\"}", body(rebuilt));
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getInvalidations());
+    }
+
+    @Test
+    void neverKeepsErrorsOrStreams() {
+        ResponseCache cache = new ResponseCache(1 << 20);
+        AtomicInteger builds = new AtomicInteger();
+        Supplier<Response> notFound = () -> {
+            builds.incrementAndGet();
+            return Response.status(404).entity("missing").build();
+        };
+        cache.get("/patients/404", TAG, notFound);
+        cache.get("/patients/404", TAG, notFound);
+        Supplier<Response> stream = () -> {
+            builds.incrementAndGet();
+            return Response.ok((StreamingOutput) output -> output.write('x')).build();
+        };
+        cache.get("/patients?stream=true", TAG, stream);
+        cache.get("/patients?stream=true", TAG, stream);
+        assertEquals(4, builds.get());
+        assertEquals(0, cache.stats().getEntries());
+    }
+
+    @Test
+    void letsNewEntriesInOnlyOverLessReadOnes() {
+        // Room for a single entry of this size per segment
+        ResponseCache cache = new ResponseCache(16 * 1000);
+        String body = new String(new char[400]).replace('\0', 'x');
+        String hot = "/doctors/1";
+        String cold = sameSegmentAs(hot);
+        AtomicInteger builds = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            cache.get(hot, TAG, building(builds, body));
+        }
+        cache.get(cold, TAG, building(builds, body));
+        assertEquals(1, cache.stats().getRejections());
+        cache.get(hot, TAG, building(builds, body));
+        assertEquals(2, builds.get());
+
+        // Once read more often than the hot entry, the other one takes its place
+        for (int i = 0; i < 6; i++) {
+            cache.get(cold, TAG, building(builds, body));
+        }
+        assertTrue(cache.stats().getEvictions() >= 1);
+        int before = builds.get();
+        cache.get(cold, TAG, building(builds, body));
+        assertEquals(before, builds.get());
+    }
+
+    /**
+     * Finds another key held by the same segment as the specified one.
+     */
+    private static String sameSegmentAs(String key) {
+        for (int i = 2; ; i++) {
+            String other = "/doctors/" + i;
+            if (Math.floorMod(other.hashCode(), 16) == Math.floorMod(key.hashCode(), 16)) {
+                return other;
+            }
+        }
+    }
+
+    @Test
+    void writesThroughTheResourcesInvalidateTheCachedReads() {
+        PatientResource patients = new PatientResource();
+        Patient patient = new Patient("History", "Stable", 0, "Cached Patient", "0770000000", "Main Street, Galle");
+        patients.addPatient(patient);
+        int id = patient.getId();
+
+        long hits = ResponseCache.SHARED.stats().getHits();
+        patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(null));
+        Response second = patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(null));
+        assertEquals(hits + 1, ResponseCache.SHARED.stats().getHits());
+        assertTrue(body(second).contains("Cached Patient"));
+
+        patients.updatePatient(id, new Patient("History", "Recovered", 0, "Renamed Patient", "0770000000", "Main Street, Galle"));
+        Response afterUpdate = patients.getPatientById(id, TestRequests.uri("/patients/" + id), TestRequests.get(null));
+        assertTrue(body(afterUpdate).contains("Renamed Patient"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.mycompany.healthsystemapi.resources;
+
+// Import required classes and libraries
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Stand-ins for the request context the container passes to the resource methods, holding only what they use:
+ * the If-None-Match tag of a GET, and the URI and query parameters of the request.
+ *
+ * @author rachelcooray
+ */
+final class TestRequests {
+
+    private TestRequests() {
+    }
+
+    /**
+     * Gives a GET request with the specified If-None-Match tag, or none if it is null.
+     */
+    static Request get(EntityTag ifNoneMatch) {
+        return (Request) Proxy.newProxyInstance(Request.class.getClassLoader(), new Class<?>[] {Request.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMethod":
+                    return "GET";
+                case "evaluatePreconditions":
+                    if (args != null && args.length == 1 && args[0] instanceof EntityTag) {
+                        EntityTag tag = (EntityTag) args[0];
+                        // Weak comparison, as for If-None-Match
+                        return ifNoneMatch != null && ifNoneMatch.getValue().equals(tag.getValue()) ? Response.notModified(tag) : null;
+                    }
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Gives the URI details of a request for the specified path and query, such as /billings?limit=2.
+     */
+    static UriInfo uri(String pathAndQuery) {
+        URI uri = URI.create("http://localhost:8080/api" + pathAndQuery);
+        MultivaluedMap<String, String> query = new MultivaluedHashMap<>();
+        if (uri.getRawQuery() != null) {
+            for (String parameter : uri.getQuery().split("&")) {
+                int equals = parameter.indexOf('=');
+                query.add(equals < 0 ? parameter : parameter.substring(0, equals), equals < 0 ? "" : parameter.substring(equals + 1));
+            }
+        }
+        return (UriInfo) Proxy.newProxyInstance(UriInfo.class.getClassLoader(), new Class<?>[] {UriInfo.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getRequestUri":
+                    return uri;
+                case "getRequestUriBuilder":
+                    return UriBuilder.fromUri(uri);
+                case "getQueryParameters":
+                    return query;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,48 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.fasterxml.jackson.core.JsonFactory;
+import com.mycompany.healthsystemapi.model.Prescription;
+import com.mycompany.healthsystemapi.provider.ObjectMapperProvider;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests that entities survive the JSON of the journal and the Smile of the snapshots,
+ * with both factories built with the shared settings.
+ *
+ * @author rachelcooray
+ */
+class EntityCodecTest {
+    private final EntityCodec<Prescription> codec = new EntityCodec<>(Prescription.class);
+
+    @Test
+    void factoriesDoNotInternFieldNames() {
+        assertFalse(ObjectMapperProvider.MAPPER.getFactory().isEnabled(JsonFactory.Feature.INTERN_FIELD_NAMES));
+    }
+
+    @Test
+    void roundTripsThroughJsonAndSmile() {
+        Prescription prescription = new Prescription(7, 3, "Paracetamol", "500mg", "Take twice daily", "7 days");
+
+        Prescription fromJson = codec.decode(codec.encode(prescription));
+        Prescription fromSmile = codec.decodeBinary(codec.encodeBinary(prescription));
+        for (Prescription copy : new Prescription[] {fromJson, fromSmile}) {
+            assertEquals(7, copy.getId());
+            assertEquals(3, copy.getPatientId());
+            assertEquals("Paracetamol", copy.getMedication());
+            assertEquals("7 days", copy.getDuration());
+        }
+    }
+
+    @Test
+    void ignoresUnknownProperties() {
+        byte[] json = "{\"id\":5,\"patientId\":2,\"medication\":\"Ibuprofen\",\"addedLater\":true}".getBytes(StandardCharsets.UTF_8);
+        assertEquals("Ibuprofen", codec.decode(json).getMedication());
+    }
+}
@@ -0,0 +1,216 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Patient;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of EntityStore under many threads creating, updating and deleting entities at once,
+ * on an in-memory engine without a journal.
+ *
+ * @author rachelcooray
+ */
+class EntityStoreConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 2000;
+
+    private EntityStore<Patient> store;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        store = new EntityStore<>("patients", Patient::getId, new MemoryStorageEngine<>("patients", Patient.class, Patient::getId, false));
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs the task on every thread at once and gives the result of each.
+     */
+    private <R> List<R> runOnAllThreads(Callable<R> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<R>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        List<R> results = new ArrayList<>();
+        for (Future<R> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private static Patient patient(int id, String name) {
+        return new Patient("History", "Stable", id, name, "0770000000", "Main Street, Galle");
+    }
+
+    @Test
+    void concurrentInsertsNeverShareAnId() throws Exception {
+        List<List<Integer>> idsPerThread = runOnAllThreads(() -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < PER_THREAD; i++) {
+                int id = store.nextId();
+                store.put(patient(id, "Patient " + id));
+                ids.add(id);
+            }
+            return ids;
+        });
+
+        Set<Integer> allIds = new HashSet<>();
+        for (List<Integer> ids : idsPerThread) {
+            allIds.addAll(ids);
+        }
+        assertEquals(THREADS * PER_THREAD, allIds.size());
+        assertEquals(THREADS * PER_THREAD, store.size());
+        assertEquals(THREADS * PER_THREAD, store.nextId() - 1);
+    }
+
+    @Test
+    void concurrentBlocksDoNotOverlapSingleIds() throws Exception {
+        List<List<Integer>> idsPerThread = runOnAllThreads(() -> {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < PER_THREAD / 10; i++) {
+                if (i % 2 == 0) {
+                    int first = store.nextIds(10);
+                    for (int j = 0; j < 10; j++) {
+                        ids.add(first + j);
+                    }
+                } else {
+                    ids.add(store.nextId());
+                }
+            }
+            return ids;
+        });
+
+        Set<Integer> allIds = new HashSet<>();
+        int count = 0;
+        for (List<Integer> ids : idsPerThread) {
+            allIds.addAll(ids);
+            count += ids.size();
+        }
+        assertEquals(count, allIds.size());
+    }
+
+    @Test
+    void concurrentUpdatesAndDeletesKeepIndexesAndVersionsConsistent() throws Exception {
+        SecondaryIndex<Patient> byBucket = store.addIndex("bucket", patient -> patient.getId() % 7);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS * PER_THREAD; i++) {
+            int id = store.nextId();
+            store.put(patient(id, "Patient " + id));
+            ids.add(id);
+        }
+        long versionBefore = store.version();
+
+        // Each thread renames its own slice of the patients and deletes every third one of them
+        AtomicInteger nextSlice = new AtomicInteger();
+        runOnAllThreads(() -> {
+            int slice = nextSlice.getAndIncrement();
+            for (int i = slice; i < ids.size(); i += THREADS) {
+                int id = ids.get(i);
+                assertTrue(store.replace(patient(id, "Renamed " + id)));
+                if (i % 3 == 0) {
+                    assertNotNull(store.remove(id));
+                }
+            }
+            return null;
+        });
+
+        int expected = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            Patient stored = store.get(ids.get(i));
+            if (i % 3 == 0) {
+                assertNull(stored);
+            } else {
+                expected++;
+                assertEquals("Renamed " + ids.get(i), stored.getName());
+                assertTrue(store.versionOf(ids.get(i)) > versionBefore);
+            }
+        }
+        assertEquals(expected, store.size());
+        assertEquals(versionBefore + ids.size() + (ids.size() + 2) / 3, store.version());
+
+        int indexed = 0;
+        for (int bucket = 0; bucket < 7; bucket++) {
+            for (Patient patient : store.findBy(byBucket, bucket)) {
+                assertEquals(bucket, patient.getId() % 7);
+                indexed++;
+            }
+        }
+        assertEquals(expected, indexed);
+    }
+
+    @Test
+    void insertsRacingTheRemovalOfTheLastEntityUnderAKeyStayIndexed() throws Exception {
+        // Keyed by the round, held in the contact number
+        SecondaryIndex<Patient> byRound = store.addIndex("round", patient -> Integer.valueOf(patient.getContactInfo()));
+        int rounds = 500;
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        AtomicInteger nextThread = new AtomicInteger();
+        List<List<Integer>> keptPerThread = runOnAllThreads(() -> {
+            // Half the threads add a patient under the round's key and remove it again, emptying its posting set,
+            // while the other half add patients under the same key and keep them
+            boolean churning = nextThread.getAndIncrement() % 2 == 0;
+            int churnId = store.nextId();
+            List<Integer> kept = new ArrayList<>();
+            for (int round = 0; round < rounds; round++) {
+                barrier.await(60, TimeUnit.SECONDS);
+                if (churning) {
+                    store.put(new Patient("History", "Stable", churnId, "Churn " + churnId, String.valueOf(round), "Galle"));
+                    assertNotNull(store.remove(churnId));
+                } else {
+                    int id = store.nextId();
+                    store.put(new Patient("History", "Stable", id, "Kept " + id, String.valueOf(round), "Galle"));
+                    kept.add(id);
+                }
+            }
+            return kept;
+        });
+
+        for (int round = 0; round < rounds; round++) {
+            Set<Integer> expected = new TreeSet<>();
+            for (List<Integer> kept : keptPerThread) {
+                if (!kept.isEmpty()) {
+                    expected.add(kept.get(round));
+                }
+            }
+            Set<Integer> indexed = new TreeSet<>();
+            for (Patient patient : store.findBy(byRound, round)) {
+                indexed.add(patient.getId());
+            }
+            assertEquals(THREADS / 2, expected.size());
+            assertEquals(expected, indexed, "Round " + round);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Appointment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests of the jdbc engine writing through plain UPDATE and INSERT statements: single and batch writes of new and existing rows,
+ * with the index columns following them, and updates and removals of rows that do not exist.
+ *
+ * @author rachelcooray
+ */
+class JdbcStorageEngineTest {
+    private static int databases;
+
+    private JdbcStorageEngine<Appointment> engine;
+    private SecondaryIndex<Appointment> byDoctor;
+
+    @BeforeEach
+    void setUp() {
+        // A new in-memory database for each test
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:jdbcEngineTest" + (++databases) + ";DB_CLOSE_DELAY=-1");
+        engine = new JdbcStorageEngine<>("appointments", Appointment.class, Appointment::getId, dataSource);
+        byDoctor = new SecondaryIndex<>("doctorId", Appointment::getDoctorId);
+        engine.addIndex(byDoctor);
+    }
+
+    private static List<Integer> idsOf(Iterator<Appointment> appointments) {
+        List<Integer> ids = new ArrayList<>();
+        appointments.forEachRemaining(appointment -> ids.add(appointment.getId()));
+        return ids;
+    }
+
+    @Test
+    void putInsertsNewRowsAndUpdatesExistingOnes() {
+        assertNull(engine.put(1, new Appointment(1, "2030-01-07T09:00", 1, 10)));
+        Appointment previous = engine.put(1, new Appointment(1, "2030-01-07T10:00", 1, 20));
+        assertEquals("2030-01-07T09:00", previous.getDateTime());
+
+        assertEquals(1, engine.size());
+        assertEquals("2030-01-07T10:00", engine.get(1).getDateTime());
+        assertEquals(Arrays.asList(), idsOf(engine.scanIndex(byDoctor, 10, null)));
+        assertEquals(Arrays.asList(1), idsOf(engine.scanIndex(byDoctor, 20, null)));
+    }
+
+    @Test
+    void putAllUpdatesExistingRowsAndInsertsTheRest() {
+        engine.put(2, new Appointment(2, "2030-01-07T09:00", 1, 10));
+        List<Appointment> batch = new ArrayList<>();
+        // More than one JDBC batch, with an existing row in the middle of the first
+        for (int id = 1; id <= JdbcStorageEngine.BATCH_SIZE + 20; id++) {
+            batch.add(new Appointment(id, "2030-01-08T09:00", 1, id % 2 == 0 ? 30 : 40));
+        }
+        engine.putAll(batch);
+
+        assertEquals(JdbcStorageEngine.BATCH_SIZE + 20, engine.size());
+        assertEquals(JdbcStorageEngine.BATCH_SIZE + 20, engine.highestId());
+        assertEquals("2030-01-08T09:00", engine.get(2).getDateTime());
+        assertEquals(Arrays.asList(), idsOf(engine.scanIndex(byDoctor, 10, null)));
+        assertEquals((JdbcStorageEngine.BATCH_SIZE + 20) / 2, idsOf(engine.scanIndex(byDoctor, 30, null)).size());
+    }
+
+    @Test
+    void replaceAndRemoveLeaveMissingRowsAlone() {
+        assertNull(engine.replace(5, new Appointment(5, "2030-01-07T09:00", 1, 10)));
+        assertNull(engine.remove(5));
+        assertEquals(0, engine.size());
+
+        engine.put(5, new Appointment(5, "2030-01-07T09:00", 1, 10));
+        assertEquals(10, engine.replace(5, new Appointment(5, "2030-01-07T11:00", 1, 11)).getDoctorId());
+        assertEquals(Arrays.asList(5), idsOf(engine.scanIndex(byDoctor, 11, null)));
+        assertEquals(11, engine.remove(5).getDoctorId());
+        assertNull(engine.get(5));
+    }
+}
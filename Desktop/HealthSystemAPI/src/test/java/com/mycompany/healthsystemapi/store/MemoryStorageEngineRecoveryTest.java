@@ -0,0 +1,179 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Patient;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a journaled memory engine recovers exactly what was written, from its journal alone,
+ * from a snapshot plus the journal written after it, and with snapshots taken while writers are running,
+ * and that the snapshot thread stops with the stores.
+ *
+ * @author rachelcooray
+ */
+class MemoryStorageEngineRecoveryTest {
+    private static final String STORE = "patients";
+
+    @TempDir
+    Path directory;
+
+    private String previousDirectory;
+
+    @BeforeEach
+    void setUp() {
+        previousDirectory = System.setProperty("healthsystem.data.dir", directory.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (previousDirectory == null) {
+            System.clearProperty("healthsystem.data.dir");
+        } else {
+            System.setProperty("healthsystem.data.dir", previousDirectory);
+        }
+    }
+
+    private static MemoryStorageEngine<Patient> open() {
+        return new MemoryStorageEngine<>(STORE, Patient.class, Patient::getId, true);
+    }
+
+    private static Patient patient(int id, String name) {
+        return new Patient("History", "Stable", id, name, "0770000000", "Main Street, Galle");
+    }
+
+    private static Map<Integer, String> contents(MemoryStorageEngine<Patient> engine) {
+        Map<Integer, String> names = new HashMap<>();
+        for (Iterator<Patient> it = engine.scan(null); it.hasNext(); ) {
+            Patient patient = it.next();
+            names.put(patient.getId(), patient.getName());
+        }
+        return names;
+    }
+
+    @Test
+    void recoversFromTheJournal() throws Exception {
+        MemoryStorageEngine<Patient> engine = open();
+        for (int id = 1; id <= 100; id++) {
+            engine.put(id, patient(id, "Patient " + id));
+        }
+        engine.replace(7, patient(7, "Renamed"));
+        engine.remove(8);
+        engine.close();
+
+        MemoryStorageEngine<Patient> reopened = open();
+        assertEquals(99, reopened.size());
+        assertEquals("Renamed", reopened.get(7).getName());
+        assertNull(reopened.get(8));
+        assertEquals(100, reopened.highestId());
+        reopened.close();
+    }
+
+    @Test
+    void recoversFromASnapshotAndTheLaterJournal() throws Exception {
+        MemoryStorageEngine<Patient> engine = open();
+        for (int id = 1; id <= 100; id++) {
+            engine.put(id, patient(id, "Patient " + id));
+        }
+        engine.snapshot();
+        engine.remove(1);
+        engine.put(101, patient(101, "After the snapshot"));
+        Map<Integer, String> expected = contents(engine);
+        engine.close();
+
+        assertTrue(Files.exists(Snapshot.path(directory, STORE, 2)));
+        MemoryStorageEngine<Patient> reopened = open();
+        assertEquals(expected, contents(reopened));
+        reopened.close();
+    }
+
+    @Test
+    void keepsTheHighestIdOnceTheSegmentsHoldingItArePruned() throws Exception {
+        MemoryStorageEngine<Patient> engine = open();
+        for (int id = 1; id <= 10; id++) {
+            engine.put(id, patient(id, "Patient " + id));
+        }
+        engine.remove(9);
+        engine.remove(10);
+        // Three snapshots delete the segments in which IDs 9 and 10 were written and removed
+        engine.snapshot();
+        engine.snapshot();
+        engine.snapshot();
+        engine.close();
+        assertTrue(Files.notExists(Journal.segmentPath(directory, STORE, 1)));
+
+        MemoryStorageEngine<Patient> reopened = open();
+        assertEquals(8, reopened.size());
+        assertEquals(10, reopened.highestId());
+        assertEquals(11, new EntityStore<>(STORE, Patient::getId, reopened).nextId());
+        reopened.close();
+    }
+
+    @Test
+    void snapshotsTakenWhileWritingLoseNothing() throws Exception {
+        MemoryStorageEngine<Patient> engine = open();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int seed = w;
+            writers[w] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    int round = 0;
+                    while (running.get()) {
+                        // Each writer owns the IDs congruent to its seed, so its last write to an ID is the one that counts
+                        int id = 1 + seed + writers.length * random.nextInt(500);
+                        if (random.nextInt(4) == 0) {
+                            engine.remove(id);
+                        } else {
+                            engine.put(id, patient(id, "Writer " + seed + " round " + round++));
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure.set(ex);
+                }
+            });
+            writers[w].start();
+        }
+        for (int i = 0; i < 20; i++) {
+            engine.snapshot();
+        }
+        running.set(false);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertNull(failure.get());
+        Map<Integer, String> expected = contents(engine);
+        engine.close();
+
+        MemoryStorageEngine<Patient> reopened = open();
+        assertEquals(expected, contents(reopened));
+        reopened.close();
+    }
+
+    @Test
+    void stoppingTheSnapshotsEndsTheSnapshotThread() throws Exception {
+        Snapshot.schedule(() -> { }, 3600);
+        assertTrue(Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().equals("snapshot-writer")));
+        Snapshot.stopAll();
+        Thread.sleep(100);
+        assertTrue(Thread.getAllStackTraces().keySet().stream().noneMatch(thread -> thread.getName().equals("snapshot-writer") && thread.isAlive()));
+    }
+}
@@ -0,0 +1,89 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Patient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests of the typeahead index: matching every word of the query by prefix, long words, paging and renames,
+ * and streaming every match.
+ *
+ * @author rachelcooray
+ */
+class PrefixIndexTest {
+    private EntityStore<Patient> patients;
+    private PrefixIndex<Patient> index;
+
+    @BeforeEach
+    void setUp() {
+        patients = new EntityStore<>("prefixIndexTest", Patient::getId,
+                new MemoryStorageEngine<>("prefixIndexTest", Patient.class, Patient::getId, false));
+        index = new PrefixIndex<>(Arrays.asList(Patient::getName, Patient::getContactInfo));
+        patients.addListener(index);
+    }
+
+    private void add(int id, String name, String contactInfo) {
+        patients.put(new Patient("History", "Stable", id, name, contactInfo, "Main Street, Galle"));
+    }
+
+    private List<Integer> find(String query, Integer afterId, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        for (Patient patient : patients.findByPrefix(index, query, afterId, limit).getItems()) {
+            ids.add(patient.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void matchesEveryWordOfTheQueryByPrefix() {
+        add(1, "Taylor Lautner", "taylor@example.com");
+        add(2, "Taylor Swift", "0771234567");
+        add(3, "Laura Palmer", "laura@example.com");
+
+        assertEquals(Arrays.asList(1, 2), find("tay", null, 10));
+        assertEquals(Arrays.asList(1), find("tay lau", null, 10));
+        assertEquals(Arrays.asList(1, 3), find("LAU", null, 10));
+        assertEquals(Arrays.asList(2), find("077", null, 10));
+        // Longer than the indexed prefixes, so checked against the entity itself
+        assertEquals(Arrays.asList(1), find("lautner", null, 10));
+        assertEquals(Arrays.asList(), find("lautnerx", null, 10));
+    }
+
+    @Test
+    void pagesInIdOrderAndFollowsRenames() {
+        for (int id = 1; id <= 25; id++) {
+            add(id, "Sam Perera " + id, "sam" + id + "@example.com");
+        }
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), find("sam per", null, 10));
+        assertEquals(Arrays.asList(21, 22, 23, 24, 25), find("sam per", 20, 10));
+
+        add(3, "Nimal Silva", "nimal@example.com");
+        assertFalse(find("sam", null, 30).contains(3));
+        assertEquals(Arrays.asList(3), find("nim sil", null, 10));
+    }
+
+    @Test
+    void scansEveryMatchInIdOrder() {
+        for (int id = 1; id <= 600; id++) {
+            add(id, (id % 3 == 0 ? "Kamal Perera " : "Nimal Silva ") + id, "0770000000");
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Patient patient : patients.scanByPrefix(index, "kam per")) {
+            ids.add(patient.getId());
+        }
+        assertEquals(200, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(3 * (i + 1), (int) ids.get(i));
+        }
+        assertFalse(patients.scanByPrefix(index, "  ").iterator().hasNext());
+    }
+}
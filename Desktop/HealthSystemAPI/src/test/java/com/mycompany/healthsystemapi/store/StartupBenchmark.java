@@ -0,0 +1,111 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Prescription;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Startup benchmark of the journaled memory engine, tracking how long a store takes to recover its entities. Run it with:
+ * MAVEN_OPTS=-Xmx4g mvn -Pbenchmark test-compile exec:java -Dbenchmark.main=com.mycompany.healthsystemapi.store.StartupBenchmark
+ *
+ * A store is filled with benchmark.records prescriptions, which are then rewritten benchmark.history times over,
+ * as a long-running service rewrites its records, and it is reopened from its journal alone; then a snapshot is taken,
+ * benchmark.tail more writes are made, and the store is reopened from the snapshot and that journal tail.
+ * Each reopening is timed benchmark.rounds times and the median is printed, along with the size of the files read.
+ *
+ * benchmark.records - prescriptions written before the first reopening (default: 1000000)
+ * benchmark.history - times every record is rewritten after being written (default: 3)
+ * benchmark.tail - writes made after the snapshot (default: 10000)
+ * benchmark.rounds - timed reopenings of each kind (default: 3)
+ *
+ * Files are written to a new temporary directory unless healthsystem.data.dir is set.
+ * The whole store is held in memory, so give the JVM room for it: recovery slows well beyond linear once the heap is tight,
+ * and 10 million records do not recover within a 4.6 GB heap at all. Measure at the size of interest rather than scaling up.
+ *
+ * @author rachelcooray
+ */
+public final class StartupBenchmark {
+    private static final String STORE = "startup-benchmark";
+
+    private StartupBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("healthsystem.data.dir") == null) {
+            System.setProperty("healthsystem.data.dir", Files.createTempDirectory("healthsystem-benchmark").toString());
+        }
+        // Snapshots are taken by the benchmark itself
+        System.setProperty("healthsystem.snapshot.intervalSeconds", "0");
+        int records = Integer.getInteger("benchmark.records", 1000000);
+        int history = Integer.getInteger("benchmark.history", 3);
+        int tail = Integer.getInteger("benchmark.tail", 10000);
+        int rounds = Integer.getInteger("benchmark.rounds", 3);
+        Path directory = StorageConfig.dataDirectory();
+        System.out.printf("%d records rewritten %d times, %d writes after the snapshot, data in %s%n%n", records, history, tail, directory);
+
+        Random random = new Random(42);
+        MemoryStorageEngine<Prescription> engine = open();
+        long start = System.nanoTime();
+        for (int pass = 0; pass <= history; pass++) {
+            for (int id = 1; id <= records; id++) {
+                engine.put(id, prescription(id, 1 + random.nextInt(Math.max(1, records / 10))));
+            }
+        }
+        engine.close();
+        System.out.printf("%-34s %10d ms%n", "write " + (long) records * (history + 1) + " records", (System.nanoTime() - start) / 1000000);
+
+        long[] fromJournal = reopen(rounds, records);
+        System.out.printf("%-34s %10d ms   (journal %d MB)%n", "reopen from the journal", median(fromJournal),
+                Files.size(Journal.segmentPath(directory, STORE, 1)) >> 20);
+
+        engine = open();
+        start = System.nanoTime();
+        engine.snapshot();
+        System.out.printf("%-34s %10d ms   (snapshot %d MB)%n", "take a snapshot", (System.nanoTime() - start) / 1000000,
+                Files.size(Snapshot.path(directory, STORE, 2)) >> 20);
+        for (int i = 0; i < tail; i++) {
+            int id = 1 + random.nextInt(records);
+            engine.put(id, prescription(id, 1 + random.nextInt(Math.max(1, records / 10))));
+        }
+        engine.close();
+
+        long[] fromSnapshot = reopen(rounds, records);
+        System.out.printf("%-34s %10d ms%n", "reopen from snapshot and tail", median(fromSnapshot));
+    }
+
+    private static MemoryStorageEngine<Prescription> open() {
+        return new MemoryStorageEngine<>(STORE, Prescription.class, Prescription::getId, true);
+    }
+
+    /**
+     * Reopens the store the specified number of times, checking it holds every record, and gives the time each took, in milliseconds.
+     */
+    private static long[] reopen(int rounds, int records) throws Exception {
+        long[] millis = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            System.gc();
+            long start = System.nanoTime();
+            MemoryStorageEngine<Prescription> engine = open();
+            millis[i] = (System.nanoTime() - start) / 1000000;
+            if (engine.size() != records) {
+                throw new IllegalStateException("Recovered " + engine.size() + " records instead of " + records);
+            }
+            engine.close();
+        }
+        return millis;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static Prescription prescription(int id, int patientId) {
+        return new Prescription(id, patientId, "Paracetamol", "500mg", "Take twice daily", "7 days");
+    }
+}
@@ -0,0 +1,181 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Prescription;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Benchmark running the same workload against every storage engine, so engines can be compared on
+ * measured throughput and latency. Run it with: mvn -Pbenchmark test-compile exec:java
+ *
+ * Each engine is first loaded with benchmark.records prescriptions through batch inserts, then
+ * benchmark.operations operations are spread over benchmark.threads threads with the mix below.
+ * For each kind of operation the throughput and the 50th and 99th percentile latencies are printed.
+ *
+ * benchmark.engines - comma-separated engine names (default: every registered engine)
+ * benchmark.records - entities loaded before the mixed workload (default: 100000)
+ * benchmark.operations - operations in the mixed workload (default: 200000)
+ * benchmark.threads - threads running the mixed workload (default: 4)
+ *
+ * Files are written to a new temporary directory unless healthsystem.data.dir is set.
+ *
+ * @author rachelcooray
+ */
+public final class StorageBenchmark {
+    private static final String[] OPERATIONS = {"get", "insert", "update", "delete", "index lookup", "scan page"};
+    // Share of the mixed workload taken by each operation, in percent, in the order above
+    private static final int[] MIX = {60, 10, 10, 5, 10, 5};
+    private static final int LOAD_BATCH = 1000;
+    private static final int PAGE_SIZE = 20;
+
+    private StorageBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("healthsystem.data.dir") == null) {
+            System.setProperty("healthsystem.data.dir", Files.createTempDirectory("healthsystem-benchmark").toString());
+        }
+        // Snapshots would only add noise to the measurements
+        System.setProperty("healthsystem.snapshot.intervalSeconds", "0");
+        int records = Integer.getInteger("benchmark.records", 100000);
+        int operations = Integer.getInteger("benchmark.operations", 200000);
+        int threads = Integer.getInteger("benchmark.threads", 4);
+        String engines = System.getProperty("benchmark.engines", String.join(",", StorageEngines.names()));
+
+        System.out.printf("%d records, %d operations on %d threads, data in %s%n",
+                records, operations, threads, StorageConfig.dataDirectory());
+        try {
+            for (String engine : engines.split(",")) {
+                run(engine.trim(), records, operations, threads);
+            }
+        } finally {
+            StorageEngines.closeAll();
+        }
+    }
+
+    private static void run(String engine, int records, int operations, int threads) throws Exception {
+        EntityStore<Prescription> store = new EntityStore<>("benchmark", Prescription::getId,
+                StorageEngines.create(engine, "benchmark", Prescription.class, Prescription::getId));
+        SecondaryIndex<Prescription> byPatient = store.addIndex("patientId", Prescription::getPatientId);
+        int patients = Math.max(1, records / 10);
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int loaded = 0; loaded < records; loaded += LOAD_BATCH) {
+            int count = Math.min(LOAD_BATCH, records - loaded);
+            int firstId = store.nextIds(count);
+            List<Prescription> batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(prescription(firstId + i, 1 + random.nextInt(patients)));
+            }
+            store.putAll(batch);
+        }
+        long loadNanos = System.nanoTime() - start;
+        System.out.printf("%n%s: loaded %d records in %d ms (%.0f records/s)%n",
+                engine, records, loadNanos / 1000000, records / (loadNanos / 1e9));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<long[][]>> results = new ArrayList<>();
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int share = operations / threads + (t < operations % threads ? 1 : 0);
+            long seed = t;
+            results.add(pool.submit(() -> workload(store, byPatient, share, records, patients, new Random(seed))));
+        }
+        long[][] latencies = new long[OPERATIONS.length][];
+        for (Future<long[][]> result : results) {
+            long[][] threadLatencies = result.get();
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                latencies[op] = latencies[op] == null ? threadLatencies[op] : concat(latencies[op], threadLatencies[op]);
+            }
+        }
+        long mixNanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        System.out.printf("%s: %d mixed operations in %d ms (%.0f ops/s)%n",
+                engine, operations, mixNanos / 1000000, operations / (mixNanos / 1e9));
+        System.out.printf("  %-14s %10s %12s %12s%n", "operation", "count", "p50 (us)", "p99 (us)");
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            long[] sorted = latencies[op];
+            Arrays.sort(sorted);
+            System.out.printf("  %-14s %10d %12.1f %12.1f%n",
+                    OPERATIONS[op], sorted.length, percentile(sorted, 50) / 1000.0, percentile(sorted, 99) / 1000.0);
+        }
+    }
+
+    /**
+     * Runs one thread's share of the mixed workload and returns the latency of each operation, in nanoseconds, by kind.
+     */
+    private static long[][] workload(EntityStore<Prescription> store, SecondaryIndex<Prescription> byPatient,
+            int operations, int records, int patients, Random random) {
+        long[][] latencies = new long[OPERATIONS.length][operations];
+        int[] counts = new int[OPERATIONS.length];
+        for (int i = 0; i < operations; i++) {
+            int op = pick(random.nextInt(100));
+            int id = 1 + random.nextInt(records);
+            long start = System.nanoTime();
+            switch (op) {
+                case 0:
+                    store.get(id);
+                    break;
+                case 1:
+                    store.put(prescription(store.nextId(), 1 + random.nextInt(patients)));
+                    break;
+                case 2:
+                    store.replace(prescription(id, 1 + random.nextInt(patients)));
+                    break;
+                case 3:
+                    store.remove(id);
+                    break;
+                case 4:
+                    store.findBy(byPatient, 1 + random.nextInt(patients), null, PAGE_SIZE);
+                    break;
+                default:
+                    store.page(id, PAGE_SIZE);
+                    break;
+            }
+            latencies[op][counts[op]++] = System.nanoTime() - start;
+        }
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            latencies[op] = Arrays.copyOf(latencies[op], counts[op]);
+        }
+        return latencies;
+    }
+
+    /**
+     * Maps a number from 0 to 99 to an operation according to the mix.
+     */
+    private static int pick(int roll) {
+        int op = 0;
+        while (roll >= MIX[op]) {
+            roll -= MIX[op];
+            op++;
+        }
+        return op;
+    }
+
+    private static Prescription prescription(int id, int patientId) {
+        return new Prescription(id, patientId, "Paracetamol", "500mg", "Take twice daily", "7 days");
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) ((long) sorted.length * percent / 100))];
+    }
+}
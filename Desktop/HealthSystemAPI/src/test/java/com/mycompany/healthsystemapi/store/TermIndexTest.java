@@ -0,0 +1,97 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.Doctor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the term index: normalized lookups that follow the writes, and entities added under a term
+ * while the last other entity under it is removed by another thread.
+ *
+ * @author rachelcooray
+ */
+class TermIndexTest {
+
+    private static Doctor doctor(int id, String specialization) {
+        return new Doctor(id, "Doctor " + id, "0770000000", "Main Street, Galle", specialization);
+    }
+
+    @Test
+    void looksUpNormalizedTermsAndFollowsTheWrites() {
+        TermIndex<Doctor> index = new TermIndex<>(Doctor::getSpecialization);
+        Doctor first = doctor(1, "Cardiologist");
+        index.onWrite(1, null, first);
+        index.onWrite(2, null, doctor(2, "  cardiologist "));
+        index.onWrite(3, null, doctor(3, "Neurologist"));
+        index.onWrite(4, null, doctor(4, " "));
+
+        assertEquals(new TreeSet<>(Arrays.asList(1, 2)), index.ids("CARDIOLOGIST"));
+        assertTrue(index.ids(" ").isEmpty());
+
+        index.onWrite(1, first, doctor(1, "Paediatric   Surgeon"));
+        index.onWrite(3, doctor(3, "Neurologist"), null);
+        assertEquals(new TreeSet<>(Arrays.asList(2)), index.ids("cardiologist"));
+        assertEquals(new TreeSet<>(Arrays.asList(1)), index.ids("paediatric surgeon"));
+        assertTrue(index.ids("neurologist").isEmpty());
+    }
+
+    @Test
+    void addsRacingTheRemovalOfTheLastEntityUnderATermStayIndexed() throws Exception {
+        TermIndex<Doctor> index = new TermIndex<>(Doctor::getSpecialization);
+        int threads = 8;
+        int rounds = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < rounds; round++) {
+                        barrier.await(60, TimeUnit.SECONDS);
+                        String term = "Specialization " + round;
+                        int id = round * threads + thread;
+                        index.onWrite(id, null, doctor(id, term));
+                        // Half the threads remove their doctor again, emptying the term's set if it is the last one
+                        if (thread % 2 == 0) {
+                            index.onWrite(id, doctor(id, term), null);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            Set<Integer> expected = new TreeSet<>();
+            for (int thread = 1; thread < threads; thread += 2) {
+                expected.add(round * threads + thread);
+            }
+            assertEquals(expected, index.ids("Specialization " + round), "Round " + round);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mycompany.healthsystemapi.store;
+
+// Import required classes and libraries
+import com.mycompany.healthsystemapi.model.MedicalRecord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the full-text index: ranking, and paging through the results while records are being added.
+ *
+ * @author rachelcooray
+ */
+class TextIndexTest {
+    private EntityStore<MedicalRecord> records;
+    private TextIndex<MedicalRecord> index;
+
+    @BeforeEach
+    void setUp() {
+        records = new EntityStore<>("textIndexTest", MedicalRecord::getId,
+                new MemoryStorageEngine<>("textIndexTest", MedicalRecord.class, MedicalRecord::getId, false));
+        index = new TextIndex<>(Arrays.asList(MedicalRecord::getRecordDetails, MedicalRecord::getConveringDiagnose));
+        records.addListener(index);
+    }
+
+    private void add(int id, String details, String diagnosis) {
+        records.put(new MedicalRecord(id, 1, details, diagnosis, "Rest", "None"));
+    }
+
+    private static List<Integer> ids(Page<MedicalRecord> page) {
+        List<Integer> ids = new ArrayList<>();
+        for (MedicalRecord record : page.getItems()) {
+            ids.add(record.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    void ranksShorterAndMoreFrequentMatchesFirst() {
+        add(1, "Patient reports mild fever after a long walk in the rain", "Cold");
+        add(2, "Fever", "Fever");
+        add(3, "Fever since Monday", "Influenza");
+        add(4, "Headache", "Migraine");
+
+        Page<MedicalRecord> page = records.search(index, "fever", null, null, 10);
+        assertEquals(3, page.getItems().size());
+        assertEquals(2, (int) page.getItems().get(0).getId());
+        assertEquals(1, (int) page.getItems().get(2).getId());
+        assertEquals(1, ids(records.search(index, "fever rain", null, null, 10)).size());
+    }
+
+    @Test
+    void pagesStayInPlaceWhileRecordsAreAdded() {
+        for (int id = 1; id <= 40; id++) {
+            StringBuilder details = new StringBuilder("fever");
+            for (int word = 0; word < id % 7; word++) {
+                details.append(" observed").append(word);
+            }
+            add(id, details.toString(), id % 3 == 0 ? "fever" : "cold");
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        Page<MedicalRecord> page = records.search(index, "fever", null, null, 5);
+        seen.addAll(ids(page));
+        int next = 1000;
+        while (page.hasNext()) {
+            // The first pages come after bursts of long records mentioning the word once, which lower the score of every record
+            for (int i = 0; next < 1400 && i < 50; i++) {
+                add(next++, "fever noted among a great many other words describing an unrelated and lengthy visit", "none");
+            }
+            page = records.search(index, "fever", null, page.getNextSearchCursor(), 5);
+            for (int id : ids(page)) {
+                assertTrue(seen.add(id), "Record " + id + " was returned twice");
+            }
+        }
+        for (int id = 1; id <= 40; id++) {
+            assertTrue(seen.contains(id), "Record " + id + " was skipped");
+        }
+    }
+
+    @Test
+    void cursorsSurviveBeingWrittenAsText() {
+        for (int id = 1; id <= 10; id++) {
+            add(id, "fever day " + id, "cold");
+        }
+        Page<MedicalRecord> first = records.search(index, "fever", null, null, 4);
+        TextIndex.Cursor cursor = TextIndex.Cursor.parse(first.getNextSearchCursor().toString());
+        assertEquals(first.getNextSearchCursor().toString(), cursor.toString());
+        assertEquals(ids(records.search(index, "fever", null, first.getNextSearchCursor(), 4)),
+                ids(records.search(index, "fever", null, cursor, 4)));
+
+        assertThrows(IllegalArgumentException.class, () -> TextIndex.Cursor.parse("12/1.5"));
+        assertThrows(IllegalArgumentException.class, () -> TextIndex.Cursor.parse("12/0.5/1.0"));
+        assertThrows(IllegalArgumentException.class, () -> TextIndex.Cursor.parse("12/1.5/NaN"));
+    }
+}